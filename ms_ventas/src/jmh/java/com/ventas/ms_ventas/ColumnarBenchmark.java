@@ -0,0 +1,80 @@
+package com.ventas.ms_ventas;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consultas de ganancias sobre AlmacenColumnar con ventas sintéticas de un año (GeneradorVentas),
+ * cargadas en orden de fecha como al arrancar y seguidas de un 1% de escrituras fuera de orden
+ * (modificaciones de ventas anteriores). Al preparar se imprimen las filas y los bytes ocupados
+ * por línea: 28 por fila más la capacidad libre de los arreglos (hasta un 50%).
+ * Comparar con GananciasBenchmark, que mide las mismas consultas contra la base de datos:
+ * ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="ColumnarBenchmark -p ventas=1000000"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class ColumnarBenchmark {
+
+    private static final LocalDate DESDE = LocalDate.of(2025, 1, 1);
+    private static final LocalDate HASTA = LocalDate.of(2026, 1, 1);
+
+    @Param({"100000", "1000000"})
+    private int ventas;
+
+    private AlmacenColumnar almacen;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        GeneradorVentas generador = new GeneradorVentas(42);
+        List<MovimientoDetalle> lineas = new ArrayList<>();
+        for (int i = 0; i < ventas; i++) {
+            lineas.addAll(MovimientoDetalle.de(generador.siguienteVenta(DESDE, HASTA)));
+        }
+        lineas.sort(Comparator.comparing(MovimientoDetalle::fecha));
+        almacen = new AlmacenColumnar(true, null, null, new SimpleMeterRegistry());
+        almacen.cargar(lineas.iterator());
+
+        List<MovimientoDetalle> modificaciones = new ArrayList<>();
+        for (int i = 0; i < lineas.size() / 100; i++) {
+            MovimientoDetalle anterior = lineas.get((i * 7919) % lineas.size());
+            modificaciones.add(anterior.negado());
+            modificaciones.add(new MovimientoDetalle(anterior.fecha(), anterior.producto(), anterior.cantidad() + 1,
+                    anterior.precioCentavos(), anterior.costoCentavos()));
+        }
+        almacen.agregar(modificaciones);
+        System.out.printf("%n%d líneas, %d filas, %d bytes (%.1f bytes por línea)%n", lineas.size(),
+                almacen.filas(), almacen.bytes(), (double) almacen.bytes() / lineas.size());
+    }
+
+    @Benchmark
+    public BigDecimal gananciasDiarias() {
+        return almacen.ganancia(LocalDate.of(2025, 6, 15), LocalDate.of(2025, 6, 16));
+    }
+
+    @Benchmark
+    public BigDecimal gananciasMensuales() {
+        return almacen.ganancia(LocalDate.of(2025, 6, 1), LocalDate.of(2025, 7, 1));
+    }
+
+    @Benchmark
+    public BigDecimal gananciasAnuales() {
+        return almacen.ganancia(DESDE, HASTA);
+    }
+
+    @Benchmark
+    public Map<String, FilaAnalitica> gananciasPorProductoAnuales() {
+        return almacen.porProducto(DESDE, HASTA);
+    }
+}
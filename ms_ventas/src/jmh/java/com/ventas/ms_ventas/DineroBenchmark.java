@@ -0,0 +1,70 @@
+package com.ventas.ms_ventas;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara el cálculo anterior de totales y ganancias (double y BigDecimal por línea con streams)
+ * con el actual en centavos (long). Ejecutar con -prof gc para ver los bytes asignados por operación:
+ * ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="DineroBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DineroBenchmark {
+
+    @Param({"10", "500"})
+    private int lineas;
+
+    private Venta venta;
+
+    @Setup
+    public void preparar() {
+        List<DetalleVenta> detalles = new ArrayList<>(lineas);
+        for (int i = 0; i < lineas; i++) {
+            detalles.add(new DetalleVenta("Prod " + i, 1 + i % 7,
+                    BigDecimal.valueOf(1999 + i, 2), BigDecimal.valueOf(1250 + i, 2)));
+        }
+        venta = new Venta();
+        venta.setCliente("Cliente");
+        venta.setFecha(LocalDateTime.of(2025, 10, 5, 10, 0));
+        venta.setDetalles(detalles);
+    }
+
+    // --- CÁLCULO ANTERIOR ---
+
+    @Benchmark
+    public double totalAnteriorDouble() {
+        return venta.getDetalles().stream()
+                .mapToDouble(detalle -> detalle.getPrecio().multiply(new BigDecimal(detalle.getCantidad())).doubleValue())
+                .sum();
+    }
+
+    @Benchmark
+    public BigDecimal gananciaAnteriorBigDecimal() {
+        return venta.getDetalles().stream()
+                .map(detalle -> detalle.getPrecio().subtract(detalle.getCosto())
+                        .multiply(new BigDecimal(detalle.getCantidad())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    // --- CÁLCULO ACTUAL ---
+
+    @Benchmark
+    public BigDecimal totalCentavos() {
+        return venta.calcularTotal();
+    }
+
+    @Benchmark
+    public BigDecimal gananciaCentavos() {
+        return venta.getGananciaTotal();
+    }
+}
@@ -0,0 +1,43 @@
+package com.ventas.ms_ventas;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cálculos de las entidades sobre una venta sintética: total, ganancia total y ganancia de un detalle.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntidadesBenchmark {
+
+    private Venta venta;
+    private DetalleVenta detalle;
+
+    @Setup
+    public void preparar() {
+        venta = new GeneradorVentas(42).siguienteVenta(LocalDate.of(2025, 1, 1), LocalDate.of(2026, 1, 1));
+        detalle = venta.getDetalles().get(0);
+    }
+
+    @Benchmark
+    public BigDecimal ventaCalcularTotal() {
+        return venta.calcularTotal();
+    }
+
+    @Benchmark
+    public BigDecimal ventaGetGananciaTotal() {
+        return venta.getGananciaTotal();
+    }
+
+    @Benchmark
+    public BigDecimal detalleVentaGetGanancia() {
+        return detalle.getGanancia();
+    }
+}
@@ -0,0 +1,66 @@
+package com.ventas.ms_ventas;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Los tres cálculos de ganancias de VentaService contra H2 en memoria cargada con ventas sintéticas
+ * de un año (entre 1 y 5 detalles por venta). Levanta la aplicación sin servidor web; la carga de
+ * 1M de ventas tarda algunos minutos y necesita varios GB de heap. La caché de ganancias se
+ * deshabilita (tamaño 0) para medir las consultas y no los aciertos de la caché.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+@State(Scope.Benchmark)
+public class GananciasBenchmark {
+
+    private static final LocalDate DESDE = LocalDate.of(2025, 1, 1);
+    private static final LocalDate HASTA = LocalDate.of(2026, 1, 1);
+
+    @Param({"10000", "1000000"})
+    private int ventas;
+
+    private ConfigurableApplicationContext contexto;
+    private VentaService ventaService;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        contexto = SpringApplication.run(MsVentasApplication.class,
+                "--spring.main.web-application-type=none",
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=Oracle;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "--ventas.ganancias.cache.tamanio-maximo=0",
+                "--logging.level.root=WARN");
+        new GeneradorVentas(42).cargar(contexto.getBean(JdbcTemplate.class), ventas, DESDE, HASTA);
+        contexto.getBean(GananciaDiariaService.class).reconstruir(DESDE, HASTA);
+        ventaService = contexto.getBean(VentaService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public BigDecimal gananciasDiarias() {
+        return ventaService.getGananciasDiarias(LocalDate.of(2025, 6, 15));
+    }
+
+    @Benchmark
+    public BigDecimal gananciasMensuales() {
+        return ventaService.getGananciasMensuales(6, 2025);
+    }
+
+    @Benchmark
+    public BigDecimal gananciasAnuales() {
+        return ventaService.getGananciasAnuales(2025);
+    }
+}
@@ -0,0 +1,49 @@
+package com.ventas.ms_ventas;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+/**
+ * Envuelve el DataSource para que cada ejecución de una sentencia espere la latencia indicada con la
+ * conexión del pool tomada, como un viaje de ida y vuelta a Oracle. Lo usan PruebaCarga y PruebaRendimiento.
+ */
+record LatenciaSimulada(long milisegundos) implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String nombre) {
+        return bean instanceof DataSource dataSource && milisegundos > 0 ? envolver(DataSource.class, dataSource) : bean;
+    }
+
+    private <T> T envolver(Class<T> tipo, T objeto) {
+        Object proxy = Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo}, (p, metodo, argumentos) -> {
+            if (metodo.getName().startsWith("execute")) {
+                Thread.sleep(milisegundos);
+            }
+            Object resultado;
+            try {
+                resultado = metodo.invoke(objeto, argumentos);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            Class<?> retorno = metodo.getReturnType();
+            if (retorno == Connection.class || retorno == Statement.class
+                    || retorno == PreparedStatement.class || retorno == CallableStatement.class) {
+                return envolverSinTipo(retorno, resultado);
+            }
+            return resultado;
+        });
+        return tipo.cast(proxy);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T envolverSinTipo(Class<T> tipo, Object objeto) {
+        return objeto == null ? null : envolver(tipo, (T) objeto);
+    }
+}
@@ -0,0 +1,50 @@
+package com.ventas.ms_ventas;
+
+import java.util.Arrays;
+
+/**
+ * Latencias de un tipo de petición en una prueba de carga, en nanosegundos, y las peticiones fallidas.
+ * Cada cliente registra las suyas sin sincronizar y al final se juntan en una sola.
+ */
+final class Latencias {
+
+    private long[] nanos = new long[1024];
+    private int cantidad;
+    private int errores;
+    private boolean ordenadas = true;
+
+    void agregar(long valor) {
+        if (cantidad == nanos.length) {
+            nanos = Arrays.copyOf(nanos, cantidad * 2);
+        }
+        nanos[cantidad++] = valor;
+        ordenadas = false;
+    }
+
+    void agregarError() {
+        errores++;
+    }
+
+    void agregar(Latencias otras) {
+        for (int i = 0; i < otras.cantidad; i++) {
+            agregar(otras.nanos[i]);
+        }
+        errores += otras.errores;
+    }
+
+    int cantidad() { return cantidad; }
+    int errores() { return errores; }
+
+    // Percentil p (0 a 1) en milisegundos
+    double percentil(double p) {
+        if (cantidad == 0) {
+            return 0;
+        }
+        if (!ordenadas) {
+            Arrays.sort(nanos, 0, cantidad);
+            ordenadas = true;
+        }
+        int indice = Math.max(0, (int) Math.ceil(p * cantidad) - 1);
+        return nanos[indice] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,165 @@
+package com.ventas.ms_ventas;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Tiempo de arranque de la aplicación en un proceso nuevo, repetido --repeticiones veces. Para cada
+ * arranque se informa el tiempo hasta "Started" que registra Spring Boot y el tiempo hasta la primera
+ * respuesta 200 de --ruta (por defecto GET /ventas?tamanio=1, que pasa por JPA), ambos desde que se
+ * lanza el proceso, y la duración de esa primera petición.
+ * <p>
+ * La aplicación usa una base H2 en memoria vacía (solo las migraciones). Sin --jar se lanza con el
+ * classpath de pruebas; con --jar se lanza el jar indicado, por ejemplo el extraído por el perfil
+ * produccion, agregando H2 al final del classpath. --jvm agrega opciones a la JVM y --perfil activa
+ * perfiles de Spring. Para medir la compilación AOT y el archivo CDS del perfil produccion:
+ * <p>
+ * ./mvnw -Pproduccion package
+ * <br>
+ * ./mvnw -Pbenchmark test-compile exec:exec -Dbenchmark.clase=com.ventas.ms_ventas.PruebaArranque
+ * -Djmh.args="--jar=target/aplicacion/ms_ventas-0.0.1-SNAPSHOT.jar --perfil=produccion
+ * --jvm=-XX:SharedArchiveFile=target/aplicacion/ms_ventas.jsa,-Dspring.aot.enabled=true"
+ */
+public class PruebaArranque {
+
+    private static final Pattern INICIADA = Pattern.compile("Started \\w+ in ([0-9.]+) seconds");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opciones = new HashMap<>();
+        for (String arg : args) {
+            String[] partes = arg.replaceFirst("^--", "").split("=", 2);
+            opciones.put(partes[0], partes.length > 1 ? partes[1] : "true");
+        }
+        int repeticiones = Integer.parseInt(opciones.getOrDefault("repeticiones", "5"));
+        String ruta = opciones.getOrDefault("ruta", "/ventas?tamanio=1");
+        Duration limite = Duration.ofSeconds(Long.parseLong(opciones.getOrDefault("limite", "120")));
+
+        System.out.printf("%-10s %12s %16s %16s%n", "arranque", "started ms", "primera resp. ms", "peticion ms");
+        long[] iniciada = new long[repeticiones];
+        long[] primeraRespuesta = new long[repeticiones];
+        for (int i = 0; i < repeticiones; i++) {
+            Medicion medicion = medir(comando(opciones), ruta, limite);
+            iniciada[i] = medicion.iniciadaMs();
+            primeraRespuesta[i] = medicion.primeraRespuestaMs();
+            System.out.printf("%-10d %12d %16d %16d%n", i + 1, medicion.iniciadaMs(),
+                    medicion.primeraRespuestaMs(), medicion.peticionMs());
+        }
+        System.out.printf("%-10s %12d %16d%n", "mediana", mediana(iniciada), mediana(primeraRespuesta));
+    }
+
+    // Línea de comandos del proceso, sin el puerto (se agrega en cada arranque)
+    private static List<String> comando(Map<String, String> opciones) {
+        List<String> comando = new ArrayList<>();
+        comando.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if (opciones.containsKey("jvm")) {
+            comando.addAll(Arrays.asList(opciones.get("jvm").split(",")));
+        }
+        String classpath = System.getProperty("java.class.path");
+        if (opciones.containsKey("jar")) {
+            // El jar va primero para que el classpath coincida con el del archivo CDS
+            String h2 = Arrays.stream(classpath.split(File.pathSeparator))
+                    .filter(entrada -> new File(entrada).getName().startsWith("h2-"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("H2 no está en el classpath"));
+            classpath = opciones.get("jar") + File.pathSeparator + h2;
+        }
+        comando.addAll(List.of("-Dspring.devtools.restart.enabled=false", "-cp", classpath,
+                MsVentasApplication.class.getName(),
+                "--spring.datasource.url=jdbc:h2:mem:arranque;MODE=Oracle;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.datasource.driverClassName=org.h2.Driver",
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect"));
+        if (opciones.containsKey("perfil")) {
+            comando.add("--spring.profiles.active=" + opciones.get("perfil"));
+        }
+        return comando;
+    }
+
+    private static Medicion medir(List<String> comando, String ruta, Duration limite) throws Exception {
+        int puerto = puertoLibre();
+        List<String> completo = new ArrayList<>(comando);
+        completo.add("--server.port=" + puerto);
+        HttpClient cliente = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest peticion = HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + ruta)).build();
+
+        long lanzado = System.nanoTime();
+        Process proceso = new ProcessBuilder(completo).redirectErrorStream(true).start();
+        try {
+            AtomicLong iniciada = new AtomicLong(-1);
+            Thread.ofVirtual().start(() -> leerSalida(proceso, lanzado, iniciada));
+            long fin = lanzado + limite.toNanos();
+            while (System.nanoTime() < fin) {
+                if (!proceso.isAlive()) {
+                    throw new IllegalStateException("La aplicación terminó con código " + proceso.exitValue());
+                }
+                long inicioPeticion = System.nanoTime();
+                try {
+                    HttpResponse<Void> respuesta = cliente.send(peticion, HttpResponse.BodyHandlers.discarding());
+                    if (respuesta.statusCode() == 200) {
+                        long ahora = System.nanoTime();
+                        // Tomcat acepta conexiones un poco antes de que se registre "Started"
+                        for (int espera = 0; iniciada.get() < 0 && espera < 500; espera++) {
+                            Thread.sleep(10);
+                        }
+                        return new Medicion(iniciada.get(), (ahora - lanzado) / 1_000_000, (ahora - inicioPeticion) / 1_000_000);
+                    }
+                } catch (ConnectException e) {
+                    // Todavía no escucha
+                }
+                Thread.sleep(5);
+            }
+            throw new IllegalStateException("Sin respuesta en " + limite);
+        } finally {
+            proceso.destroy();
+            proceso.waitFor();
+        }
+    }
+
+    // Lee y descarta la salida del proceso (para que no se bloquee al llenarse el pipe), salvo la
+    // línea "Started ..." cuyo instante se registra
+    private static void leerSalida(Process proceso, long lanzado, AtomicLong iniciada) {
+        try (BufferedReader salida = new BufferedReader(new InputStreamReader(proceso.getInputStream(), StandardCharsets.UTF_8))) {
+            String linea;
+            while ((linea = salida.readLine()) != null) {
+                if (iniciada.get() < 0 && INICIADA.matcher(linea).find()) {
+                    iniciada.set((System.nanoTime() - lanzado) / 1_000_000);
+                }
+            }
+        } catch (IOException e) {
+            // El proceso terminó
+        }
+    }
+
+    private static int puertoLibre() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static long mediana(long[] valores) {
+        long[] ordenados = valores.clone();
+        Arrays.sort(ordenados);
+        return ordenados[ordenados.length / 2];
+    }
+
+    private record Medicion(long iniciadaMs, long primeraRespuestaMs, long peticionMs) {}
+}
@@ -0,0 +1,158 @@
+package com.ventas.ms_ventas;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Prueba de carga con hilos de plataforma y con hilos virtuales (spring.threads.virtual.enabled).
+ * Cada cliente repite en bucle cerrado una mezcla de 80 % GET /ventas/{id} sobre 1000 ventas (servidas
+ * desde la caché) y 20 % GET /ventas?cliente= (dos consultas a la base), y se informa el rendimiento y
+ * la latencia p50/p99 de cada tipo de petición.
+ * <p>
+ * Sin --url levanta la aplicación dos veces sobre H2 con ventas sintéticas; cada sentencia JDBC espera
+ * --latencia-bd milisegundos con la conexión tomada, como un viaje de ida y vuelta a Oracle. Con --url
+ * mide una instancia ya levantada (el modo de hilos lo decide su configuración), o varias separadas por
+ * comas y con un nombre cada una, una después de la otra. Así se compara ms_ventas con ms_ventas_reactivo
+ * (WebFlux + R2DBC) sobre la misma base de datos; la variante reactiva no tiene la caché de ventas por
+ * ID, así que conviene comparar también con spring.cache.type=none en ms_ventas:
+ * <p>
+ * -Djmh.args="--url=mvc=http://localhost:8080,reactivo=http://localhost:8081 --concurrencia=2000"
+ * <p>
+ * ./mvnw -Pbenchmark test-compile exec:exec -Dbenchmark.clase=com.ventas.ms_ventas.PruebaCarga
+ * -Djmh.args="--concurrencia=400 --duracion=30 --pool=20"
+ */
+public class PruebaCarga {
+
+    private static final int VENTAS_FRECUENTES = 1_000;
+    private static final int CLIENTES = 5_000;
+
+    public static void main(String[] args) throws Exception {
+        // devtools reinicia main en otro hilo al levantar la aplicación
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        Map<String, String> opciones = new HashMap<>();
+        for (String arg : args) {
+            String[] partes = arg.replaceFirst("^--", "").split("=", 2);
+            opciones.put(partes[0], partes.length > 1 ? partes[1] : "true");
+        }
+        int concurrencia = Integer.parseInt(opciones.getOrDefault("concurrencia", "400"));
+        Duration duracion = Duration.ofSeconds(Long.parseLong(opciones.getOrDefault("duracion", "20")));
+        Duration calentamiento = Duration.ofSeconds(Long.parseLong(opciones.getOrDefault("calentamiento", "5")));
+
+        System.out.printf("%-11s %-8s %10s %9s %9s %9s %8s%n",
+                "modo", "peticion", "peticion/s", "p50 ms", "p99 ms", "max ms", "errores");
+        if (opciones.containsKey("url")) {
+            // Una o varias instancias ya levantadas, cada una con un nombre opcional (nombre=url)
+            for (String instancia : opciones.get("url").split(",")) {
+                String[] partes = instancia.split("=", 2);
+                String modo = partes.length > 1 ? partes[0] : "externo";
+                String url = partes[partes.length - 1];
+                ejecutar(url, concurrencia, calentamiento);
+                imprimir(modo, ejecutar(url, concurrencia, duracion), duracion);
+            }
+            return;
+        }
+        for (boolean virtuales : new boolean[]{false, true}) {
+            try (ConfigurableApplicationContext contexto = iniciar(virtuales, opciones)) {
+                String url = "http://localhost:" + contexto.getEnvironment().getProperty("local.server.port");
+                ejecutar(url, concurrencia, calentamiento);
+                imprimir(virtuales ? "virtuales" : "plataforma", ejecutar(url, concurrencia, duracion), duracion);
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext iniciar(boolean virtuales, Map<String, String> opciones) {
+        long latenciaBd = Long.parseLong(opciones.getOrDefault("latencia-bd", "5"));
+        ConfigurableApplicationContext contexto = new SpringApplicationBuilder(MsVentasApplication.class)
+                .initializers(ctx -> ctx.getBeanFactory().addBeanPostProcessor(new LatenciaSimulada(latenciaBd)))
+                .run("--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtuales,
+                        "--spring.datasource.url=jdbc:h2:mem:carga-" + virtuales + ";MODE=Oracle;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.hikari.maximum-pool-size=" + opciones.getOrDefault("pool", "20"),
+                        "--server.tomcat.threads.max=" + opciones.getOrDefault("hilos-tomcat", "200"),
+                        "--spring.jpa.properties.hibernate.generate_statistics=false",
+                        "--logging.level.root=WARN");
+        int ventas = Integer.parseInt(opciones.getOrDefault("ventas", "10000"));
+        new GeneradorVentas(42).cargar(contexto.getBean(JdbcTemplate.class), ventas,
+                LocalDate.of(2025, 1, 1), LocalDate.of(2026, 1, 1));
+        return contexto;
+    }
+
+    private static Resultado ejecutar(String url, int concurrencia, Duration duracion) throws Exception {
+        HttpClient cliente = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        long fin = System.nanoTime() + duracion.toNanos();
+        List<Future<Resultado>> clientes = new ArrayList<>(concurrencia);
+        try (ExecutorService ejecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrencia; i++) {
+                long semilla = i;
+                clientes.add(ejecutor.submit(() -> repetir(cliente, url, fin, new SplittableRandom(semilla))));
+            }
+        }
+        Resultado total = new Resultado();
+        for (Future<Resultado> resultado : clientes) {
+            total.agregar(resultado.get());
+        }
+        return total;
+    }
+
+    private static Resultado repetir(HttpClient cliente, String url, long fin, SplittableRandom aleatorio) {
+        Resultado resultado = new Resultado();
+        while (System.nanoTime() < fin) {
+            boolean porId = aleatorio.nextInt(100) < 80;
+            String ruta = porId
+                    ? "/ventas/" + (1 + aleatorio.nextInt(VENTAS_FRECUENTES))
+                    : "/ventas?tamanio=20&cliente=Cliente-" + aleatorio.nextInt(CLIENTES);
+            Latencias latencias = porId ? resultado.porId : resultado.listado;
+            long inicio = System.nanoTime();
+            try {
+                HttpResponse<Void> respuesta = cliente.send(HttpRequest.newBuilder(URI.create(url + ruta)).build(),
+                        HttpResponse.BodyHandlers.discarding());
+                if (respuesta.statusCode() != 200) {
+                    latencias.agregarError();
+                    continue;
+                }
+            } catch (Exception e) {
+                latencias.agregarError();
+                continue;
+            }
+            latencias.agregar(System.nanoTime() - inicio);
+        }
+        return resultado;
+    }
+
+    private static void imprimir(String modo, Resultado resultado, Duration duracion) {
+        imprimir(modo, "por-id", resultado.porId, duracion);
+        imprimir(modo, "listado", resultado.listado, duracion);
+    }
+
+    private static void imprimir(String modo, String peticion, Latencias latencias, Duration duracion) {
+        System.out.printf("%-11s %-8s %10.0f %9.1f %9.1f %9.1f %8d%n", modo, peticion,
+                latencias.cantidad() / (double) duracion.toSeconds(), latencias.percentil(0.50),
+                latencias.percentil(0.99), latencias.percentil(1.0), latencias.errores());
+    }
+
+    private static final class Resultado {
+        final Latencias porId = new Latencias();
+        final Latencias listado = new Latencias();
+
+        void agregar(Resultado otro) {
+            porId.agregar(otro.porId);
+            listado.agregar(otro.listado);
+        }
+    }
+}
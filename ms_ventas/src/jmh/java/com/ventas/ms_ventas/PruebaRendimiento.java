@@ -0,0 +1,420 @@
+package com.ventas.ms_ventas;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Prueba de rendimiento de todos los endpoints de VentaController contra la aplicación levantada sobre
+ * H2 con ventas sintéticas sesgadas (GeneradorVentas con sesgo, por defecto Zipf 1.0 en clientes y
+ * productos). Cada cliente repite en bucle cerrado una mezcla de lecturas (por ID con las ventas
+ * recientes más consultadas, listados, ganancias, analítica y exportación) y escrituras (alta, PUT,
+ * PATCH y DELETE de las ventas que el mismo cliente creó, e importación por lotes), y se informa el
+ * rendimiento y la latencia p50/p95/p99 de cada operación.
+ * <p>
+ * El resultado se escribe en target/rendimiento.properties y se compara con la línea base
+ * (src/jmh/linea-base-rendimiento.properties): el proceso termina con código 1, y la compilación de
+ * Maven falla, si alguna operación tuvo errores, si su p99 superó el de la línea base en más de
+ * --umbral (proporción, 0.30 por defecto) y --tolerancia-ms, o si su rendimiento bajó más de --umbral.
+ * La línea base depende de la máquina: se regenera con --actualizar-linea-base y solo se compara con
+ * corridas de los mismos parámetros (ventas, sesgo, fechas, concurrencia, pool y latencia).
+ * <p>
+ * Con --archivo=ruta la base es un archivo H2 que se carga la primera vez y se reutiliza después, para
+ * probar con millones de ventas sin generarlas en cada corrida (--ventas=5000000 necesita varios GB de heap).
+ * <p>
+ * ./mvnw -Pbenchmark,rendimiento verify -DskipTests
+ * <br>
+ * ./mvnw -Pbenchmark test-compile exec:exec -Dbenchmark.clase=com.ventas.ms_ventas.PruebaRendimiento
+ * -Djmh.args="--ventas=1000000 --archivo=target/rendimiento/ventas --actualizar-linea-base"
+ */
+public class PruebaRendimiento {
+
+    // Operaciones de la mezcla con su peso (suman 100)
+    enum Operacion {
+        POR_ID(30), LISTADO(15), PAGINA(5),
+        GANANCIA_DIA(8), GANANCIA_MES(8), GANANCIA_ANIO(3), GANANCIA_RANGO(4),
+        ANALITICA(3), EXPORTAR(2),
+        ALTA(10), ACTUALIZAR(4), LINEA(4), BAJA(2), LOTE(2);
+
+        final int peso;
+
+        Operacion(int peso) {
+            this.peso = peso;
+        }
+    }
+
+    private static final int VENTAS_POR_LOTE = 20;
+    // Ventas propias que recuerda cada cliente para modificarlas y eliminarlas
+    private static final int VENTAS_PROPIAS = 50;
+
+    // Parámetros que deben coincidir con los de la línea base para comparar
+    private static final List<String> PARAMETROS =
+            List.of("ventas", "sesgo", "desde", "hasta", "concurrencia", "pool", "latencia-bd");
+
+    public static void main(String[] args) throws Exception {
+        // devtools reinicia main en otro hilo al levantar la aplicación
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        Map<String, String> opciones = new HashMap<>(Map.of(
+                "ventas", "200000", "sesgo", "1.0", "desde", "2024-01-01", "hasta", "2026-01-01",
+                "concurrencia", "32", "pool", "20", "latencia-bd", "0"));
+        for (String arg : args) {
+            String[] partes = arg.replaceFirst("^--", "").split("=", 2);
+            opciones.put(partes[0], partes.length > 1 ? partes[1] : "true");
+        }
+        Duration duracion = Duration.ofSeconds(Long.parseLong(opciones.getOrDefault("duracion", "30")));
+        Duration calentamiento = Duration.ofSeconds(Long.parseLong(opciones.getOrDefault("calentamiento", "10")));
+        Path lineaBase = Path.of(opciones.getOrDefault("linea-base", "src/jmh/linea-base-rendimiento.properties"));
+        Path salida = Path.of(opciones.getOrDefault("resultado", "target/rendimiento.properties"));
+
+        Map<Operacion, Latencias> resultado;
+        try (ConfigurableApplicationContext contexto = iniciar(opciones)) {
+            int ventas = Integer.parseInt(opciones.get("ventas"));
+            double sesgo = Double.parseDouble(opciones.get("sesgo"));
+            Escenario escenario = new Escenario(
+                    "http://localhost:" + contexto.getEnvironment().getProperty("local.server.port"),
+                    HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build(),
+                    contexto.getBean(ObjectMapper.class), ventas, sesgo,
+                    LocalDate.parse(opciones.get("desde")), LocalDate.parse(opciones.get("hasta")),
+                    new GeneradorVentas.Zipf(ventas, Math.max(sesgo, 0.5)));
+            int concurrencia = Integer.parseInt(opciones.get("concurrencia"));
+            ejecutar(escenario, concurrencia, calentamiento);
+            resultado = ejecutar(escenario, concurrencia, duracion);
+        }
+
+        Map<String, String> medido = medir(opciones, resultado, duracion);
+        escribir(salida, medido);
+        if (opciones.containsKey("actualizar-linea-base")) {
+            escribir(lineaBase, medido);
+            System.out.println("Línea base actualizada: " + lineaBase);
+            return;
+        }
+        List<String> regresiones = comparar(leer(lineaBase), medido,
+                Double.parseDouble(opciones.getOrDefault("umbral", "0.30")),
+                Double.parseDouble(opciones.getOrDefault("tolerancia-ms", "2")));
+        if (!regresiones.isEmpty()) {
+            System.out.println("Regresiones respecto de " + lineaBase + ":");
+            regresiones.forEach(regresion -> System.out.println("  " + regresion));
+            System.exit(1);
+        }
+        System.out.println("Sin regresiones respecto de " + lineaBase);
+    }
+
+    // --- APLICACIÓN Y DATOS ---
+
+    private static ConfigurableApplicationContext iniciar(Map<String, String> opciones) {
+        String base = opciones.containsKey("archivo")
+                ? "jdbc:h2:file:" + Path.of(opciones.get("archivo")).toAbsolutePath() + ";MODE=Oracle"
+                : "jdbc:h2:mem:rendimiento;MODE=Oracle;DB_CLOSE_DELAY=-1";
+        ConfigurableApplicationContext contexto = new SpringApplicationBuilder(MsVentasApplication.class)
+                .initializers(ctx -> ctx.getBeanFactory().addBeanPostProcessor(
+                        new LatenciaSimulada(Long.parseLong(opciones.get("latencia-bd")))))
+                .run("--server.port=0",
+                        "--spring.datasource.url=" + base,
+                        "--spring.datasource.hikari.maximum-pool-size=" + opciones.get("pool"),
+                        "--spring.jpa.properties.hibernate.generate_statistics=false",
+                        "--logging.level.root=WARN");
+        int ventas = Integer.parseInt(opciones.get("ventas"));
+        LocalDate desde = LocalDate.parse(opciones.get("desde"));
+        LocalDate hasta = LocalDate.parse(opciones.get("hasta"));
+        JdbcTemplate jdbc = contexto.getBean(JdbcTemplate.class);
+        // Una base en archivo ya cargada se reutiliza; las escrituras de corridas anteriores se descartan
+        jdbc.update("DELETE FROM DETALLE_VENTA WHERE ID_VENTA > ?", ventas);
+        jdbc.update("DELETE FROM VENTA WHERE ID > ?", ventas);
+        Integer cargadas = jdbc.queryForObject("SELECT COUNT(*) FROM VENTA", Integer.class);
+        if (cargadas != ventas) {
+            long inicio = System.nanoTime();
+            jdbc.update("DELETE FROM DETALLE_VENTA");
+            jdbc.update("DELETE FROM VENTA");
+            new GeneradorVentas(42, Double.parseDouble(opciones.get("sesgo"))).cargar(jdbc, ventas, desde, hasta);
+            System.out.printf("%d ventas generadas en %d s%n", ventas, (System.nanoTime() - inicio) / 1_000_000_000);
+        } else {
+            GeneradorVentas.reiniciarSecuencias(jdbc, ventas,
+                    jdbc.queryForObject("SELECT MAX(ID) FROM DETALLE_VENTA", Integer.class));
+        }
+        contexto.getBean(GananciaDiariaService.class).reconstruir(desde, hasta);
+        return contexto;
+    }
+
+    // --- CARGA ---
+
+    // Lo que comparten los clientes: la aplicación, el rango de los datos cargados y la distribución de
+    // las consultas por ID (las ventas más recientes son las más consultadas)
+    private record Escenario(String url, HttpClient cliente, ObjectMapper objectMapper, int ventas,
+                             double sesgo, LocalDate desde, LocalDate hasta, GeneradorVentas.Zipf recientes) {
+    }
+
+    private static Map<Operacion, Latencias> ejecutar(Escenario escenario, int concurrencia, Duration duracion)
+            throws Exception {
+        long fin = System.nanoTime() + duracion.toNanos();
+        List<Future<Map<Operacion, Latencias>>> clientes = new ArrayList<>(concurrencia);
+        try (ExecutorService ejecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrencia; i++) {
+                Cliente cliente = new Cliente(escenario, i);
+                clientes.add(ejecutor.submit(() -> cliente.repetir(fin)));
+            }
+        }
+        Map<Operacion, Latencias> total = latenciasVacias();
+        for (Future<Map<Operacion, Latencias>> resultado : clientes) {
+            resultado.get().forEach((operacion, latencias) -> total.get(operacion).agregar(latencias));
+        }
+        return total;
+    }
+
+    private static Map<Operacion, Latencias> latenciasVacias() {
+        Map<Operacion, Latencias> latencias = new EnumMap<>(Operacion.class);
+        for (Operacion operacion : Operacion.values()) {
+            latencias.put(operacion, new Latencias());
+        }
+        return latencias;
+    }
+
+    // Un cliente en bucle cerrado. Recuerda las últimas ventas que creó (ID de la venta y de su primera
+    // línea) para modificarlas y eliminarlas sin chocar con los demás clientes.
+    private static final class Cliente {
+
+        private final Escenario escenario;
+        private final SplittableRandom aleatorio;
+        private final GeneradorVentas generador;
+        private final Deque<int[]> propias = new ArrayDeque<>();
+        private final Map<Operacion, Latencias> latencias = latenciasVacias();
+
+        Cliente(Escenario escenario, long semilla) {
+            this.escenario = escenario;
+            this.aleatorio = new SplittableRandom(semilla);
+            this.generador = new GeneradorVentas(1_000 + semilla, escenario.sesgo());
+        }
+
+        Map<Operacion, Latencias> repetir(long fin) {
+            while (System.nanoTime() < fin) {
+                Operacion operacion = elegir();
+                long inicio = System.nanoTime();
+                try {
+                    if (!enviar(operacion)) {
+                        latencias.get(operacion).agregarError();
+                        continue;
+                    }
+                } catch (Exception e) {
+                    latencias.get(operacion).agregarError();
+                    continue;
+                }
+                latencias.get(operacion).agregar(System.nanoTime() - inicio);
+            }
+            return latencias;
+        }
+
+        private Operacion elegir() {
+            int sorteo = aleatorio.nextInt(100);
+            for (Operacion operacion : Operacion.values()) {
+                sorteo -= operacion.peso;
+                if (sorteo < 0) {
+                    // Sin ventas propias que modificar, el cliente crea una
+                    boolean necesitaPropia = operacion == Operacion.ACTUALIZAR
+                            || operacion == Operacion.LINEA || operacion == Operacion.BAJA;
+                    return necesitaPropia && propias.isEmpty() ? Operacion.ALTA : operacion;
+                }
+            }
+            throw new IllegalStateException("Los pesos de las operaciones no suman 100");
+        }
+
+        // Envía la petición de la operación; devuelve false si la respuesta no fue la esperada
+        private boolean enviar(Operacion operacion) throws Exception {
+            LocalDate dia = diaAleatorio();
+            return switch (operacion) {
+                case POR_ID -> get("/ventas/" + (escenario.ventas() - escenario.recientes().siguiente(aleatorio)));
+                case LISTADO -> get("/ventas?tamanio=20&cliente=" + generador.siguienteVenta(dia, dia.plusDays(1)).getCliente());
+                case PAGINA -> get("/ventas?tamanio=50&desde=" + dia + "&hasta=" + dia.plusWeeks(1));
+                case GANANCIA_DIA -> get("/ventas/ganancias/diarias?fecha=" + dia);
+                case GANANCIA_MES -> get("/ventas/ganancias/mensuales?mes=" + dia.getMonthValue() + "&anio=" + dia.getYear());
+                case GANANCIA_ANIO -> get("/ventas/ganancias/anuales?anio=" + dia.getYear());
+                case GANANCIA_RANGO -> get("/ventas/ganancias/rango?desde=" + dia + "&hasta=" + dia.plusDays(1 + aleatorio.nextInt(90)));
+                case ANALITICA -> get("/ventas/analitica?desde=" + dia + "&hasta=" + dia.plusDays(30));
+                case EXPORTAR -> get("/ventas/exportar?formato=CSV&desde=" + dia + "&hasta=" + dia.plusDays(1));
+                case ALTA -> recordar(enviar("POST", "/ventas", "application/json", json(generador.siguienteVenta(dia, dia.plusDays(1)))));
+                case ACTUALIZAR -> {
+                    int[] propia = propias.removeFirst();
+                    yield recordar(enviar("PUT", "/ventas/" + propia[0], "application/json",
+                            json(generador.siguienteVenta(dia, dia.plusDays(1)))));
+                }
+                case LINEA -> {
+                    int[] propia = propias.getFirst();
+                    yield enviar("PATCH", "/ventas/" + propia[0] + "/detalles/" + propia[1], "application/json",
+                            "{\"cantidad\":" + (1 + aleatorio.nextInt(10)) + "}") != null;
+                }
+                case BAJA -> enviar("DELETE", "/ventas/" + propias.removeLast()[0], null, null) != null;
+                case LOTE -> {
+                    StringBuilder cuerpo = new StringBuilder();
+                    for (int i = 0; i < VENTAS_POR_LOTE; i++) {
+                        cuerpo.append(json(generador.siguienteVenta(dia, dia.plusDays(1)))).append('\n');
+                    }
+                    JsonNode resultado = enviar("POST", "/ventas/lote", "application/x-ndjson", cuerpo.toString());
+                    yield resultado != null && resultado.path("guardadas").asInt() == VENTAS_POR_LOTE;
+                }
+            };
+        }
+
+        private LocalDate diaAleatorio() {
+            return escenario.desde().plusDays(aleatorio.nextLong(ChronoUnit.DAYS.between(escenario.desde(), escenario.hasta())));
+        }
+
+        private String json(Venta venta) throws IOException {
+            return escenario.objectMapper().writeValueAsString(venta);
+        }
+
+        // Guarda el ID de la venta creada o reemplazada y el de su primera línea
+        private boolean recordar(JsonNode venta) {
+            if (venta == null) {
+                return false;
+            }
+            propias.addFirst(new int[]{venta.get("id").asInt(), venta.get("detalles").get(0).get("id").asInt()});
+            if (propias.size() > VENTAS_PROPIAS) {
+                propias.removeLast();
+            }
+            return true;
+        }
+
+        private boolean get(String ruta) throws Exception {
+            HttpResponse<Void> respuesta = escenario.cliente().send(
+                    HttpRequest.newBuilder(URI.create(escenario.url() + ruta)).build(),
+                    HttpResponse.BodyHandlers.discarding());
+            return respuesta.statusCode() == 200;
+        }
+
+        // Envía una escritura y devuelve el cuerpo de la respuesta, o null si no fue 2xx
+        private JsonNode enviar(String metodo, String ruta, String tipo, String cuerpo) throws Exception {
+            HttpRequest.Builder peticion = HttpRequest.newBuilder(URI.create(escenario.url() + ruta));
+            if (cuerpo == null) {
+                peticion.method(metodo, HttpRequest.BodyPublishers.noBody());
+            } else {
+                peticion.header("Content-Type", tipo).method(metodo, HttpRequest.BodyPublishers.ofString(cuerpo));
+            }
+            HttpResponse<String> respuesta = escenario.cliente().send(peticion.build(), HttpResponse.BodyHandlers.ofString());
+            if (respuesta.statusCode() / 100 != 2) {
+                return null;
+            }
+            return respuesta.body().isEmpty()
+                    ? escenario.objectMapper().missingNode()
+                    : escenario.objectMapper().readTree(respuesta.body());
+        }
+    }
+
+    // --- RESULTADO Y LÍNEA BASE ---
+
+    private static String nombre(Operacion operacion) {
+        return operacion.name().toLowerCase().replace('_', '-');
+    }
+
+    // Imprime la tabla de resultados y devuelve los parámetros y las medidas como en la línea base
+    private static Map<String, String> medir(Map<String, String> opciones, Map<Operacion, Latencias> resultado,
+                                             Duration duracion) {
+        Map<String, String> medido = new LinkedHashMap<>();
+        for (String parametro : PARAMETROS) {
+            medido.put("parametro." + parametro, opciones.get(parametro));
+        }
+        System.out.printf("%-15s %10s %9s %9s %9s %9s %8s%n",
+                "operacion", "peticion/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "errores");
+        for (Operacion operacion : Operacion.values()) {
+            Latencias latencias = resultado.get(operacion);
+            double porSegundo = latencias.cantidad() / (double) duracion.toSeconds();
+            System.out.printf("%-15s %10.1f %9.1f %9.1f %9.1f %9.1f %8d%n", nombre(operacion), porSegundo,
+                    latencias.percentil(0.50), latencias.percentil(0.95), latencias.percentil(0.99),
+                    latencias.percentil(1.0), latencias.errores());
+            String clave = nombre(operacion) + ".";
+            medido.put(clave + "peticiones-por-segundo", String.format(Locale.ROOT, "%.1f", porSegundo));
+            medido.put(clave + "p50-ms", String.format(Locale.ROOT, "%.2f", latencias.percentil(0.50)));
+            medido.put(clave + "p95-ms", String.format(Locale.ROOT, "%.2f", latencias.percentil(0.95)));
+            medido.put(clave + "p99-ms", String.format(Locale.ROOT, "%.2f", latencias.percentil(0.99)));
+            medido.put(clave + "errores", String.valueOf(latencias.errores()));
+        }
+        return medido;
+    }
+
+    private static List<String> comparar(Properties base, Map<String, String> medido, double umbral,
+                                         double toleranciaMs) {
+        List<String> regresiones = new ArrayList<>();
+        if (base.isEmpty()) {
+            regresiones.add("no hay línea base; se crea con --actualizar-linea-base");
+            return regresiones;
+        }
+        for (String parametro : PARAMETROS) {
+            String clave = "parametro." + parametro;
+            if (!medido.get(clave).equals(base.getProperty(clave))) {
+                regresiones.add("la línea base es de otros parámetros: " + clave + "=" + base.getProperty(clave)
+                        + " y esta corrida usó " + medido.get(clave));
+                return regresiones;
+            }
+        }
+        for (Operacion operacion : Operacion.values()) {
+            String clave = nombre(operacion) + ".";
+            long errores = Long.parseLong(medido.get(clave + "errores"));
+            if (errores > 0) {
+                regresiones.add(nombre(operacion) + ": " + errores + " peticiones fallidas");
+            }
+            double p99 = Double.parseDouble(medido.get(clave + "p99-ms"));
+            double p99Base = Double.parseDouble(base.getProperty(clave + "p99-ms", "0"));
+            if (p99 > p99Base * (1 + umbral) && p99 - p99Base > toleranciaMs) {
+                regresiones.add(String.format(Locale.ROOT, "%s: p99 %.1f ms, línea base %.1f ms",
+                        nombre(operacion), p99, p99Base));
+            }
+            double porSegundo = Double.parseDouble(medido.get(clave + "peticiones-por-segundo"));
+            double porSegundoBase = Double.parseDouble(base.getProperty(clave + "peticiones-por-segundo", "0"));
+            if (porSegundo < porSegundoBase * (1 - umbral)) {
+                regresiones.add(String.format(Locale.ROOT, "%s: %.1f peticiones/s, línea base %.1f",
+                        nombre(operacion), porSegundo, porSegundoBase));
+            }
+        }
+        return regresiones;
+    }
+
+    private static Properties leer(Path archivo) throws IOException {
+        Properties propiedades = new Properties();
+        if (Files.exists(archivo)) {
+            try (Reader lector = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+                propiedades.load(lector);
+            }
+        }
+        return propiedades;
+    }
+
+    // Escribe las medidas en orden (Properties.store las desordena)
+    private static void escribir(Path archivo, Map<String, String> medido) throws IOException {
+        if (archivo.getParent() != null) {
+            Files.createDirectories(archivo.getParent());
+        }
+        try (Writer escritor = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8)) {
+            escritor.write("# Resultado de PruebaRendimiento. Depende de la máquina: se regenera con --actualizar-linea-base\n");
+            for (Map.Entry<String, String> medida : medido.entrySet()) {
+                escritor.write(medida.getKey() + "=" + medida.getValue() + "\n");
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.ventas.ms_ventas;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.core.DelegatingLinkRelationProvider;
+import org.springframework.hateoas.server.core.DefaultLinkRelationProvider;
+import org.springframework.hateoas.server.core.EmbeddedWrapper;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialización de una venta (entidad y VentaVista, JSON y CBOR) y armado + serialización HAL de
+ * una página de GET /ventas. El controlador se usa tal cual, con un VentaService que devuelve
+ * siempre la misma página. Los bytes de cada representación se imprimen al preparar el estado.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializacionBenchmark {
+
+    @Param({"50", "500"})
+    private int tamanioPagina;
+
+    private ObjectMapper json;
+    private ObjectMapper hal;
+    private ObjectMapper halCbor;
+    private Venta venta;
+    private VentaVista vista;
+    private VentaController controlador;
+    private CollectionModel<EmbeddedWrapper> pagina;
+
+    @Setup
+    public void preparar() {
+        List<Venta> ventas = new GeneradorVentas(42).generar(tamanioPagina, LocalDate.of(2025, 1, 1), LocalDate.of(2026, 1, 1));
+        for (int i = 0; i < ventas.size(); i++) {
+            ventas.get(i).setId(i + 1);
+        }
+        venta = ventas.get(0);
+        List<VentaVista> vistas = ventas.stream().map(SerializacionBenchmark::vista).toList();
+        vista = vistas.get(0);
+
+        json = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        hal = conHal(json.copy());
+        halCbor = conHal(new ObjectMapper(new CBORFactory()).registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS));
+
+        PaginaVentas paginaVentas = new PaginaVentas(vistas, tamanioPagina);
+        VentaService ventaService = new VentaService(null, null, null, null, null, null, null, null, null, null, tamanioPagina) {
+            @Override
+            public PaginaVentas listarPagina(FiltroVentas filtro, Integer despuesDe, int tamanio) {
+                return paginaVentas;
+            }
+        };
+        controlador = new VentaController(ventaService, null, null, null, null);
+        pagina = armarPagina();
+
+        try {
+            System.out.printf("%nBytes: venta %d (entidad JSON), %d (vista JSON), %d (vista CBOR); "
+                            + "página de %d: %d (HAL JSON), %d (HAL CBOR)%n",
+                    serializarVenta().length, serializarVista().length, serializarVistaCbor().length,
+                    tamanioPagina, serializarPaginaHal().length, serializarPaginaCbor().length);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ObjectMapper conHal(ObjectMapper mapper) {
+        mapper.registerModule(new Jackson2HalModule());
+        mapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(
+                new DelegatingLinkRelationProvider(new DefaultLinkRelationProvider()),
+                CurieProvider.NONE, MessageResolver.DEFAULTS_ONLY));
+        return mapper;
+    }
+
+    // La vista que armaría LecturaVentas con las filas de la venta
+    private static VentaVista vista(Venta venta) {
+        List<FilaExportacion> filas = venta.getDetalles().stream()
+                .map(d -> new FilaExportacion(venta.getId(), venta.getCliente(), venta.getFecha(), venta.getTotal(), 0,
+                        d.getId(), d.getProducto(), d.getCantidad(), d.getPrecio(), d.getCosto()))
+                .toList();
+        return VentaVista.agrupar(filas).get(0);
+    }
+
+    // Entidad: subtotales y ganancias se calculan en cada serialización
+    @Benchmark
+    public byte[] serializarVenta() throws Exception {
+        return json.writeValueAsBytes(venta);
+    }
+
+    @Benchmark
+    public byte[] serializarVista() throws Exception {
+        return json.writeValueAsBytes(vista);
+    }
+
+    @Benchmark
+    public byte[] serializarVistaCbor() throws Exception {
+        return halCbor.writeValueAsBytes(vista);
+    }
+
+    // Enlaces de la colección con linkTo(methodOn(...)), el de cada fila concatenando su ID y la
+    // lista envuelta con su relación HAL
+    @Benchmark
+    public CollectionModel<EmbeddedWrapper> armarPagina() {
+        return controlador.listarTodasLasVentas(null, null, null, null, tamanioPagina).getBody();
+    }
+
+    @Benchmark
+    public byte[] serializarPaginaHal() throws Exception {
+        return hal.writeValueAsBytes(pagina);
+    }
+
+    @Benchmark
+    public byte[] serializarPaginaCbor() throws Exception {
+        return halCbor.writeValueAsBytes(pagina);
+    }
+}
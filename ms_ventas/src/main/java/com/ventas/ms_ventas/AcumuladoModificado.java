@@ -0,0 +1,10 @@
+package com.ventas.ms_ventas;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Evento publicado por GananciaDiariaService con cada diferencia que suma a GANANCIA_DIARIA: ventas
+// (1 por alta, -1 por baja, 0 por modificación), ingresos y costos del día. TotalesEnCurso lo
+// aplica al confirmarse la transacción.
+public record AcumuladoModificado(LocalDate fecha, long ventas, BigDecimal ingresos, BigDecimal costos) {
+}
@@ -0,0 +1,39 @@
+package com.ventas.ms_ventas;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+// Períodos en los que se agrupan las ventas en GET /ventas/analitica. Las semanas empiezan el lunes.
+public enum AgrupacionTiempo {
+
+    // Expresiones de agrupación en la base de datos. La semana se agrupa por día y los días se
+    // juntan al leerlos, para no depender de cómo cada motor numera las semanas.
+    DIA("YEAR(v.fecha), MONTH(v.fecha), DAY(v.fecha)"),
+    SEMANA("YEAR(v.fecha), MONTH(v.fecha), DAY(v.fecha)"),
+    MES("YEAR(v.fecha), MONTH(v.fecha)"),
+    TOTAL(null);
+
+    private final String expresion;
+
+    AgrupacionTiempo(String expresion) {
+        this.expresion = expresion;
+    }
+
+    public String getExpresion() { return expresion; }
+
+    // Cantidad de columnas (año, mes, día) que devuelve la expresión
+    public int columnas() {
+        return expresion == null ? 0 : expresion.split(",").length;
+    }
+
+    // Primer día del período que contiene a fecha; TOTAL es un único período que empieza en desde
+    public LocalDate inicioDe(LocalDate fecha, LocalDate desde) {
+        return switch (this) {
+            case DIA -> fecha;
+            case SEMANA -> fecha.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MES -> fecha.withDayOfMonth(1);
+            case TOTAL -> desde;
+        };
+    }
+}
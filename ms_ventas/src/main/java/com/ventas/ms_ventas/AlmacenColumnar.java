@@ -0,0 +1,452 @@
+package com.ventas.ms_ventas;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
+
+// Copia en memoria de las líneas de venta en columnas de tipos primitivos (día, producto, cantidad,
+// precio y costo en centavos) para responder las consultas de ganancias sin ir a la base de datos.
+// Se carga desde VENTA/DETALLE_VENTA al arrancar, antes de que el servidor acepte peticiones, y
+// después solo se le agregan filas: cada escritura confirmada agrega las líneas nuevas y las
+// anteriores con la cantidad negada (ver DetallesModificados).
+//
+// Mientras las filas llegan en orden de día (la carga inicial y las ventas del día en curso) quedan
+// en un tramo ordenado donde un rango se ubica con búsqueda binaria; solo la cola desordenada se
+// recorre completa. Cuando la cola y las filas negativas crecen se compacta: la cola se mezcla en
+// el tramo ordenado y las filas iguales de cada día se suman en una, así que las negativas se
+// cancelan con sus positivas.
+//
+// Los lectores usan la foto inmutable publicada en columnas (volatile). El único escritor, bajo el
+// monitor del almacén, escribe después de la última fila publicada o en arreglos nuevos, así que
+// nunca cambia lo que una foto ya publicada puede leer.
+//
+// Solo ve las escrituras de esta instancia: con varias instancias o con cargas directas a la base de
+// datos debe quedar deshabilitado (ventas.columnar.habilitado=false, el valor por defecto).
+@Component
+public class AlmacenColumnar implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(AlmacenColumnar.class);
+
+    // Día, producto y cantidad (int) más precio y costo (long)
+    public static final int BYTES_POR_FILA = 3 * Integer.BYTES + 2 * Long.BYTES;
+    // Los tramos con más filas se suman en paralelo en el ForkJoinPool común
+    static final int FILAS_POR_TAREA = 1 << 16;
+    // Se compacta cuando la cola desordenada más las filas negativas superan este mínimo
+    // y la octava parte de las filas
+    static final int MINIMO_COMPACTACION = 4096;
+    private static final int CAPACIDAD_INICIAL = 1024;
+
+    private final boolean habilitado;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile Columnas columnas = Columnas.VACIAS;
+    private volatile boolean cargado;
+
+    // Estado del escritor, protegido por el monitor del almacén
+    private int[] dias = new int[0];
+    private int[] productos = new int[0];
+    private int[] cantidades = new int[0];
+    private long[] precios = new long[0];
+    private long[] costos = new long[0];
+    private int filas;
+    private int ordenadas;
+    private int negativas;
+    private String[] nombres = new String[0];
+    private final Map<String, Integer> idsProducto = new HashMap<>();
+
+    public AlmacenColumnar(@Value("${ventas.columnar.habilitado:false}") boolean habilitado,
+                           EntityManager entityManager, PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry) {
+        this.habilitado = habilitado;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        Gauge.builder("ventas.columnar.filas", this, almacen -> almacen.columnas.filas())
+                .register(meterRegistry);
+        Gauge.builder("ventas.columnar.memoria", this, almacen -> almacen.columnas.bytes())
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    // --- CARGA Y ESCRITURAS ---
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (habilitado) {
+            recargar();
+        }
+    }
+
+    // Reemplaza el contenido por las líneas actuales de la base de datos, leídas con un cursor en
+    // orden de fecha. Las escrituras que se confirmen durante la carga pueden quedar contadas dos
+    // veces o ninguna, por eso al arrancar se carga antes de abrir el puerto HTTP.
+    public void recargar() {
+        long inicio = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Object[]> lineas = entityManager.createQuery(
+                            "SELECT v.fecha, d.producto, d.cantidad, d.precio, d.costo "
+                                    + "FROM DetalleVenta d JOIN d.venta v ORDER BY v.fecha", Object[].class)
+                    .setHint(HibernateHints.HINT_FETCH_SIZE, 1000)
+                    .setHint(HibernateHints.HINT_READ_ONLY, true)
+                    .getResultStream()) {
+                cargar(lineas.map(AlmacenColumnar::movimiento).iterator());
+            }
+        });
+        Columnas cargadas = columnas;
+        log.info("Almacén columnar cargado: {} filas, {} bytes, {} ms", cargadas.filas(), cargadas.bytes(),
+                (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    // Reemplaza el contenido por los movimientos recibidos
+    synchronized void cargar(Iterator<MovimientoDetalle> movimientos) {
+        dias = new int[CAPACIDAD_INICIAL];
+        productos = new int[CAPACIDAD_INICIAL];
+        cantidades = new int[CAPACIDAD_INICIAL];
+        precios = new long[CAPACIDAD_INICIAL];
+        costos = new long[CAPACIDAD_INICIAL];
+        filas = 0;
+        ordenadas = 0;
+        negativas = 0;
+        nombres = new String[0];
+        idsProducto.clear();
+        while (movimientos.hasNext()) {
+            agregarFila(movimientos.next());
+        }
+        publicar();
+        cargado = true;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarDetalles(DetallesModificados evento) {
+        if (habilitado && !evento.movimientos().isEmpty()) {
+            agregar(evento.movimientos());
+        }
+    }
+
+    synchronized void agregar(Collection<MovimientoDetalle> movimientos) {
+        for (MovimientoDetalle movimiento : movimientos) {
+            agregarFila(movimiento);
+        }
+        publicar();
+    }
+
+    private void agregarFila(MovimientoDetalle movimiento) {
+        if (movimiento.cantidad() == 0) {
+            return;
+        }
+        if (filas == dias.length) {
+            crecer(Math.max(CAPACIDAD_INICIAL, filas + (filas >> 1)));
+        }
+        int dia = (int) movimiento.fecha().toEpochDay();
+        dias[filas] = dia;
+        productos[filas] = idProducto(movimiento.producto());
+        cantidades[filas] = movimiento.cantidad();
+        precios[filas] = movimiento.precioCentavos();
+        costos[filas] = movimiento.costoCentavos();
+        if (ordenadas == filas && (filas == 0 || dias[filas - 1] <= dia)) {
+            ordenadas++;
+        }
+        if (movimiento.cantidad() < 0) {
+            negativas++;
+        }
+        filas++;
+    }
+
+    private int idProducto(String producto) {
+        return idsProducto.computeIfAbsent(producto, nombre -> {
+            int id = idsProducto.size();
+            if (id == nombres.length) {
+                nombres = Arrays.copyOf(nombres, Math.max(64, id * 2));
+            }
+            nombres[id] = nombre;
+            return id;
+        });
+    }
+
+    private void crecer(int capacidad) {
+        dias = Arrays.copyOf(dias, capacidad);
+        productos = Arrays.copyOf(productos, capacidad);
+        cantidades = Arrays.copyOf(cantidades, capacidad);
+        precios = Arrays.copyOf(precios, capacidad);
+        costos = Arrays.copyOf(costos, capacidad);
+    }
+
+    private void publicar() {
+        if ((filas - ordenadas) + negativas > Math.max(MINIMO_COMPACTACION, filas / 8)) {
+            compactar();
+        }
+        columnas = new Columnas(dias, productos, cantidades, precios, costos, filas, ordenadas,
+                nombres, idsProducto.size());
+    }
+
+    // Copia las filas a arreglos nuevos ordenadas por día (mezclando el tramo ordenado con la cola
+    // ordenada), suma en la primera las filas del mismo día, producto, precio y costo, y descarta las
+    // que quedan en cero. Cada día se agrupa en una pasada con un mapa, así que el costo es lineal
+    // en las filas aunque un día tenga muchas negativas.
+    private void compactar() {
+        int cola = filas - ordenadas;
+        // Día en los 32 bits altos e índice de la fila en los bajos: se ordena sin crear objetos
+        long[] orden = new long[cola];
+        for (int i = 0; i < cola; i++) {
+            orden[i] = ((long) dias[ordenadas + i] << 32) | (ordenadas + i);
+        }
+        Arrays.sort(orden);
+
+        int capacidad = dias.length;
+        int[] nuevosDias = new int[capacidad];
+        int[] nuevosProductos = new int[capacidad];
+        int[] nuevasCantidades = new int[capacidad];
+        long[] nuevosPrecios = new long[capacidad];
+        long[] nuevosCostos = new long[capacidad];
+        int a = 0;
+        int b = 0;
+        for (int k = 0; k < filas; k++) {
+            int origen = b == cola || (a < ordenadas && dias[a] <= (int) (orden[b] >> 32)) ? a++ : (int) orden[b++];
+            nuevosDias[k] = dias[origen];
+            nuevosProductos[k] = productos[origen];
+            nuevasCantidades[k] = cantidades[origen];
+            nuevosPrecios[k] = precios[origen];
+            nuevosCostos[k] = costos[origen];
+        }
+
+        for (int inicio = 0; inicio < filas; ) {
+            int fin = inicio;
+            while (fin < filas && nuevosDias[fin] == nuevosDias[inicio]) {
+                fin++;
+            }
+            if (fin - inicio > 1) {
+                Map<LineaDelDia, Integer> primeras = new HashMap<>(2 * (fin - inicio));
+                for (int i = inicio; i < fin; i++) {
+                    Integer primera = primeras.putIfAbsent(
+                            new LineaDelDia(nuevosProductos[i], nuevosPrecios[i], nuevosCostos[i]), i);
+                    if (primera == null) {
+                        continue;
+                    }
+                    // Una suma que no entra en un int deja las dos filas como estaban
+                    long suma = (long) nuevasCantidades[primera] + nuevasCantidades[i];
+                    if (suma == (int) suma) {
+                        nuevasCantidades[primera] = (int) suma;
+                        nuevasCantidades[i] = 0;
+                    }
+                }
+            }
+            inicio = fin;
+        }
+
+        int restantes = 0;
+        negativas = 0;
+        for (int k = 0; k < filas; k++) {
+            if (nuevasCantidades[k] == 0) {
+                continue;
+            }
+            nuevosDias[restantes] = nuevosDias[k];
+            nuevosProductos[restantes] = nuevosProductos[k];
+            nuevasCantidades[restantes] = nuevasCantidades[k];
+            nuevosPrecios[restantes] = nuevosPrecios[k];
+            nuevosCostos[restantes] = nuevosCostos[k];
+            if (nuevasCantidades[k] < 0) {
+                negativas++;
+            }
+            restantes++;
+        }
+        dias = nuevosDias;
+        productos = nuevosProductos;
+        cantidades = nuevasCantidades;
+        precios = nuevosPrecios;
+        costos = nuevosCostos;
+        filas = restantes;
+        ordenadas = restantes;
+    }
+
+    // --- CONSULTAS ---
+
+    // Sin cargar no hay datos, y dentro de una transacción de escritura la base de datos puede tener
+    // cambios todavía no confirmados que el almacén no ve
+    public boolean disponible() {
+        return cargado && !(TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+    }
+
+    // Ganancia de las líneas con fecha en [desde, hasta)
+    public BigDecimal ganancia(LocalDate desde, LocalDate hasta) {
+        Columnas foto = columnas;
+        int diaDesde = (int) desde.toEpochDay();
+        int diaHasta = (int) hasta.toEpochDay();
+        long[] ordenado = sumar(foto, foto.primeraFilaDesde(diaDesde), foto.primeraFilaDesde(diaHasta), diaDesde, diaHasta);
+        long[] cola = sumar(foto, foto.ordenadas(), foto.filas(), diaDesde, diaHasta);
+        return Dinero.deCentavos((ordenado[1] + cola[1]) - (ordenado[2] + cola[2]));
+    }
+
+    // Cantidad, ingresos y costos por producto de las líneas con fecha en [desde, hasta). Los
+    // productos sin líneas vigentes en el rango no se incluyen.
+    public Map<String, FilaAnalitica> porProducto(LocalDate desde, LocalDate hasta) {
+        Columnas foto = columnas;
+        int diaDesde = (int) desde.toEpochDay();
+        int diaHasta = (int) hasta.toEpochDay();
+        int distintos = foto.productosDistintos();
+        long[] cantidad = new long[distintos];
+        long[] ingresos = new long[distintos];
+        long[] costosTotales = new long[distintos];
+        acumularPorProducto(foto, foto.primeraFilaDesde(diaDesde), foto.primeraFilaDesde(diaHasta),
+                diaDesde, diaHasta, cantidad, ingresos, costosTotales);
+        acumularPorProducto(foto, foto.ordenadas(), foto.filas(), diaDesde, diaHasta, cantidad, ingresos, costosTotales);
+
+        Map<String, FilaAnalitica> resultado = new HashMap<>();
+        for (int p = 0; p < distintos; p++) {
+            if (cantidad[p] != 0 || ingresos[p] != 0 || costosTotales[p] != 0) {
+                String nombre = foto.nombres()[p];
+                resultado.put(nombre, new FilaAnalitica(nombre, cantidad[p],
+                        Dinero.deCentavos(ingresos[p]), Dinero.deCentavos(costosTotales[p])));
+            }
+        }
+        return resultado;
+    }
+
+    public int filas() {
+        return columnas.filas();
+    }
+
+    public long bytes() {
+        return columnas.bytes();
+    }
+
+    private static long[] sumar(Columnas foto, int desde, int hasta, int diaDesde, int diaHasta) {
+        if (hasta - desde > FILAS_POR_TAREA) {
+            return ForkJoinPool.commonPool().invoke(new Suma(foto, desde, hasta, diaDesde, diaHasta));
+        }
+        return Suma.sumar(foto, desde, hasta, diaDesde, diaHasta);
+    }
+
+    private static void acumularPorProducto(Columnas foto, int desde, int hasta, int diaDesde, int diaHasta,
+                                            long[] cantidad, long[] ingresos, long[] costosTotales) {
+        int[] dias = foto.dias();
+        int[] productos = foto.productos();
+        int[] cantidades = foto.cantidades();
+        long[] precios = foto.precios();
+        long[] costos = foto.costos();
+        for (int i = desde; i < hasta; i++) {
+            if (dias[i] >= diaDesde && dias[i] < diaHasta) {
+                int p = productos[i];
+                long q = cantidades[i];
+                cantidad[p] += q;
+                ingresos[p] += q * precios[i];
+                costosTotales[p] += q * costos[i];
+            }
+        }
+    }
+
+    private static MovimientoDetalle movimiento(Object[] linea) {
+        return new MovimientoDetalle(((LocalDateTime) linea[0]).toLocalDate(), (String) linea[1], ((Number) linea[2]).intValue(),
+                Dinero.aCentavos((BigDecimal) linea[3]), Dinero.aCentavos((BigDecimal) linea[4]));
+    }
+
+    // Filas que se suman al compactar un día
+    private record LineaDelDia(int producto, long precio, long costo) {}
+
+    // Foto de las columnas que ven los lectores: solo las primeras filas de cada arreglo son válidas
+    // y las primeras ordenadas están en orden de día
+    private record Columnas(int[] dias, int[] productos, int[] cantidades, long[] precios, long[] costos,
+                            int filas, int ordenadas, String[] nombres, int productosDistintos) {
+
+        static final Columnas VACIAS = new Columnas(new int[0], new int[0], new int[0], new long[0], new long[0],
+                0, 0, new String[0], 0);
+
+        long bytes() {
+            return (long) dias.length * BYTES_POR_FILA;
+        }
+
+        // Primera fila del tramo ordenado con día mayor o igual al indicado
+        int primeraFilaDesde(int dia) {
+            int bajo = 0;
+            int alto = ordenadas;
+            while (bajo < alto) {
+                int medio = (bajo + alto) >>> 1;
+                if (dias[medio] < dia) {
+                    bajo = medio + 1;
+                } else {
+                    alto = medio;
+                }
+            }
+            return bajo;
+        }
+    }
+
+    // Suma de cantidad, ingresos y costos de las filas [desde, hasta) con día en [diaDesde, diaHasta),
+    // partida en mitades hasta FILAS_POR_TAREA filas por tarea
+    private static final class Suma extends RecursiveTask<long[]> {
+
+        private final Columnas foto;
+        private final int desde;
+        private final int hasta;
+        private final int diaDesde;
+        private final int diaHasta;
+
+        Suma(Columnas foto, int desde, int hasta, int diaDesde, int diaHasta) {
+            this.foto = foto;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.diaDesde = diaDesde;
+            this.diaHasta = diaHasta;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (hasta - desde <= FILAS_POR_TAREA) {
+                return sumar(foto, desde, hasta, diaDesde, diaHasta);
+            }
+            int medio = (desde + hasta) >>> 1;
+            Suma izquierda = new Suma(foto, desde, medio, diaDesde, diaHasta);
+            izquierda.fork();
+            long[] derecha = new Suma(foto, medio, hasta, diaDesde, diaHasta).compute();
+            long[] resultado = izquierda.join();
+            for (int i = 0; i < resultado.length; i++) {
+                resultado[i] += derecha[i];
+            }
+            return resultado;
+        }
+
+        // El filtro por día se calcula como 1 o 0 y multiplica la cantidad, sin saltos, para que el
+        // JIT pueda vectorizar el ciclo. Los productos no se verifican contra desbordes, que
+        // requieren importes por encima de Long.MAX_VALUE centavos.
+        static long[] sumar(Columnas foto, int desde, int hasta, int diaDesde, int diaHasta) {
+            int[] dias = foto.dias();
+            int[] cantidades = foto.cantidades();
+            long[] precios = foto.precios();
+            long[] costos = foto.costos();
+            long cantidad = 0;
+            long ingresos = 0;
+            long costosTotales = 0;
+            for (int i = desde; i < hasta; i++) {
+                int dentro = (((dias[i] - diaDesde) >>> 31) ^ 1) & ((dias[i] - diaHasta) >>> 31);
+                long q = (long) (cantidades[i] * dentro);
+                cantidad += q;
+                ingresos += q * precios[i];
+                costosTotales += q * costos[i];
+            }
+            return new long[] {cantidad, ingresos, costosTotales};
+        }
+    }
+}
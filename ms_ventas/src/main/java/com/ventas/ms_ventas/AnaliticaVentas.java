@@ -0,0 +1,157 @@
+package com.ventas.ms_ventas;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Ventas agrupadas por período y por producto o cliente en un rango de fechas [desde, hasta).
+// La base de datos agrupa por día (o por mes) y por clave en una sola consulta, y las filas se
+// leen con un cursor ordenadas por período: solo se mantienen en memoria las claves del período
+// en curso, así que un rango de un año no ocupa más que un período. El total del rango es un solo
+// período: la base de datos ordena las claves y devuelve solo las primeras N, y los totales y la
+// cantidad de claves salen de otra consulta agregada. GANANCIA_DIARIA no sirve aquí porque no
+// tiene producto ni cliente. El total por producto se calcula en AlmacenColumnar cuando está
+// cargado.
+@Service
+public class AnaliticaVentas {
+
+    public static final int MAXIMO_PRIMEROS = 100;
+
+    private static final String DETALLES_DEL_RANGO = "FROM DetalleVenta d JOIN d.venta v "
+            + "WHERE v.fecha >= :desde AND v.fecha < :hasta ";
+
+    private final EntityManager entityManager;
+    private final AlmacenColumnar almacenColumnar;
+
+    public AnaliticaVentas(EntityManager entityManager, AlmacenColumnar almacenColumnar) {
+        this.entityManager = entityManager;
+        this.almacenColumnar = almacenColumnar;
+    }
+
+    @Transactional(readOnly = true)
+    public List<PeriodoAnalitica> agrupar(LocalDate desde, LocalDate hasta, DimensionAnalitica dimension,
+                                          AgrupacionTiempo agrupacion, OrdenAnalitica orden, int primeros) {
+        int limite = Math.max(1, Math.min(primeros, MAXIMO_PRIMEROS));
+        if (dimension == DimensionAnalitica.PRODUCTO && agrupacion == AgrupacionTiempo.TOTAL
+                && almacenColumnar.disponible()) {
+            Map<String, FilaAnalitica> claves = almacenColumnar.porProducto(desde, hasta);
+            return claves.isEmpty() ? List.of() : List.of(cerrarPeriodo(desde, claves, orden, limite));
+        }
+        if (agrupacion == AgrupacionTiempo.TOTAL) {
+            return totalDelRango(desde, hasta, dimension, orden, limite);
+        }
+        // La consulta se arma solo con expresiones fijas de los enums; las fechas van como parámetros
+        String tiempo = agrupacion.getExpresion() + ", ";
+        String jpql = "SELECT " + tiempo + dimension.getExpresion() + ", SUM(d.cantidad), "
+                + "SUM(d.precio * d.cantidad), SUM(d.costo * d.cantidad) "
+                + DETALLES_DEL_RANGO
+                + "GROUP BY " + tiempo + dimension.getExpresion()
+                + " ORDER BY " + agrupacion.getExpresion();
+
+        List<PeriodoAnalitica> periodos = new ArrayList<>();
+        try (Stream<Object[]> filas = entityManager.createQuery(jpql, Object[].class)
+                .setParameter("desde", desde.atStartOfDay())
+                .setParameter("hasta", hasta.atStartOfDay())
+                .setHint(HibernateHints.HINT_FETCH_SIZE, 1000)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+            int columnasTiempo = agrupacion.columnas();
+            LocalDate periodoActual = null;
+            Map<String, FilaAnalitica> claves = new HashMap<>();
+            for (Iterator<Object[]> it = filas.iterator(); it.hasNext(); ) {
+                Object[] fila = it.next();
+                LocalDate periodo = agrupacion.inicioDe(fecha(fila, columnasTiempo, desde), desde);
+                if (!periodo.equals(periodoActual)) {
+                    if (periodoActual != null) {
+                        periodos.add(cerrarPeriodo(periodoActual, claves, orden, limite));
+                        claves = new HashMap<>();
+                    }
+                    periodoActual = periodo;
+                }
+                FilaAnalitica valor = filaAnalitica((String) fila[columnasTiempo], fila, columnasTiempo + 1);
+                claves.merge(valor.clave(), valor, FilaAnalitica::sumar);
+            }
+            if (periodoActual != null) {
+                periodos.add(cerrarPeriodo(periodoActual, claves, orden, limite));
+            }
+        }
+        return periodos;
+    }
+
+    // Un solo período con las primeras N claves ordenadas y limitadas en la base de datos (FETCH FIRST
+    // en Oracle): solo se leen N filas aunque el rango tenga muchos clientes. Los empates se ordenan
+    // por clave, como en OrdenAnalitica.descendente.
+    private List<PeriodoAnalitica> totalDelRango(LocalDate desde, LocalDate hasta, DimensionAnalitica dimension,
+                                                 OrdenAnalitica orden, int limite) {
+        Object[] totales = entityManager.createQuery("SELECT SUM(d.cantidad), SUM(d.precio * d.cantidad), "
+                        + "SUM(d.costo * d.cantidad), COUNT(DISTINCT " + dimension.getExpresion() + ") "
+                        + DETALLES_DEL_RANGO, Object[].class)
+                .setParameter("desde", desde.atStartOfDay())
+                .setParameter("hasta", hasta.atStartOfDay())
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getSingleResult();
+        if (totales[0] == null) {
+            return List.of();
+        }
+
+        String jpql = "SELECT " + dimension.getExpresion() + ", SUM(d.cantidad), "
+                + "SUM(d.precio * d.cantidad), SUM(d.costo * d.cantidad) "
+                + DETALLES_DEL_RANGO
+                + "GROUP BY " + dimension.getExpresion()
+                + " ORDER BY " + orden.getExpresion() + " DESC, " + dimension.getExpresion();
+        List<FilaAnalitica> primeros = entityManager.createQuery(jpql, Object[].class)
+                .setParameter("desde", desde.atStartOfDay())
+                .setParameter("hasta", hasta.atStartOfDay())
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .setMaxResults(limite)
+                .getResultList().stream()
+                .map(fila -> normalizar(filaAnalitica((String) fila[0], fila, 1)))
+                .toList();
+        return List.of(new PeriodoAnalitica(desde, normalizar(filaAnalitica(null, totales, 0)),
+                ((Number) totales[3]).intValue(), primeros));
+    }
+
+    // Cantidad, ingresos y costos de una fila de la consulta a partir de la columna indicada
+    private static FilaAnalitica filaAnalitica(String clave, Object[] fila, int columna) {
+        return new FilaAnalitica(clave, ((Number) fila[columna]).longValue(),
+                (BigDecimal) fila[columna + 1], (BigDecimal) fila[columna + 2]);
+    }
+
+    private static LocalDate fecha(Object[] fila, int columnas, LocalDate desde) {
+        return switch (columnas) {
+            case 3 -> LocalDate.of(((Number) fila[0]).intValue(), ((Number) fila[1]).intValue(), ((Number) fila[2]).intValue());
+            case 2 -> LocalDate.of(((Number) fila[0]).intValue(), ((Number) fila[1]).intValue(), 1);
+            default -> desde;
+        };
+    }
+
+    private static PeriodoAnalitica cerrarPeriodo(LocalDate inicio, Map<String, FilaAnalitica> claves,
+                                                  OrdenAnalitica orden, int limite) {
+        FilaAnalitica total = new FilaAnalitica(null, 0, BigDecimal.ZERO, BigDecimal.ZERO);
+        for (FilaAnalitica fila : claves.values()) {
+            total = total.sumar(fila);
+        }
+        List<FilaAnalitica> primeros = claves.values().stream()
+                .sorted(orden.descendente())
+                .limit(limite)
+                .map(AnaliticaVentas::normalizar)
+                .toList();
+        return new PeriodoAnalitica(inicio, normalizar(total), claves.size(), primeros);
+    }
+
+    // Importes con la escala de Dinero, sin importar la que devuelva cada motor en las sumas
+    private static FilaAnalitica normalizar(FilaAnalitica fila) {
+        return new FilaAnalitica(fila.clave(), fila.cantidad(),
+                Dinero.normalizar(fila.ingresos()), Dinero.normalizar(fila.costos()));
+    }
+}
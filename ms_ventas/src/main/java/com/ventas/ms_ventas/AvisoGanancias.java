@@ -0,0 +1,83 @@
+package com.ventas.ms_ventas;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+// Invalida en esta instancia las ganancias de los días que escribieron otras instancias o
+// ms_ventas_reactivo. Cada ventas.ganancias.aviso.intervalo lee del primario los días de
+// GANANCIA_DIARIA con ACTUALIZADA reciente y publica GananciasModificadas por cada uno que cambió
+// desde la revisión anterior, igual que una escritura propia (CacheGanancias y GananciasEnCurso).
+// ACTUALIZADA es la hora de la sentencia y no la de la confirmación, así que cada revisión vuelve a
+// mirar ventas.ganancias.aviso.margen hacia atrás: debe superar la transacción de escritura más larga.
+// Los días que elimina una reconstrucción no quedan registrados; los cubre el vencimiento de los
+// períodos cerrados de CacheGanancias.
+@Component
+@Lazy(false)
+@ConditionalOnProperty(name = "ventas.ganancias.aviso.habilitado", havingValue = "true", matchIfMissing = true)
+public class AvisoGanancias {
+
+    private static final Logger log = LoggerFactory.getLogger(AvisoGanancias.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventos;
+    private final Duration margen;
+    // ACTUALIZADA más reciente leída y los días de la última revisión con la que se leyeron
+    private Timestamp marca;
+    private Map<LocalDate, Timestamp> revisados = Map.of();
+
+    public AvisoGanancias(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventos,
+                          @Value("${ventas.ganancias.aviso.margen:1m}") Duration margen) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventos = eventos;
+        this.margen = margen;
+    }
+
+    // Fuera de una transacción, así que las consultas van al primario aunque haya réplica de lectura.
+    // Retorna la cantidad de días invalidados.
+    @Scheduled(fixedDelayString = "${ventas.ganancias.aviso.intervalo:2s}",
+            initialDelayString = "${ventas.ganancias.aviso.intervalo:2s}")
+    public synchronized int revisar() {
+        try {
+            if (marca == null) {
+                Timestamp ultima = jdbcTemplate.queryForObject("SELECT MAX(ACTUALIZADA) FROM GANANCIA_DIARIA", Timestamp.class);
+                marca = ultima != null ? ultima : new Timestamp(0);
+            }
+            Map<LocalDate, Timestamp> recientes = new HashMap<>();
+            jdbcTemplate.query("SELECT FECHA, ACTUALIZADA FROM GANANCIA_DIARIA WHERE ACTUALIZADA > ?",
+                    fila -> {
+                        recientes.put(fila.getObject(1, LocalDate.class), fila.getTimestamp(2));
+                    },
+                    Timestamp.from(marca.toInstant().minus(margen)));
+            int invalidados = 0;
+            for (Map.Entry<LocalDate, Timestamp> dia : recientes.entrySet()) {
+                if (!dia.getValue().equals(revisados.get(dia.getKey()))) {
+                    eventos.publishEvent(GananciasModificadas.delDia(dia.getKey()));
+                    invalidados++;
+                }
+                if (dia.getValue().after(marca)) {
+                    marca = dia.getValue();
+                }
+            }
+            revisados = recientes;
+            return invalidados;
+        } catch (DataAccessException e) {
+            // Se vuelve a mirar desde la misma marca en la próxima revisión
+            log.warn("No se pudieron leer los días modificados de GANANCIA_DIARIA: {}", e.getMessage());
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.ventas.ms_ventas;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+// Resultados de los cálculos de ganancias por período. Cuando se guarda, modifica o elimina una
+// venta de alguno de sus días se invalidan al confirmarse la transacción (ver GananciasModificadas);
+// las escrituras de otras instancias llegan por el mismo evento desde AvisoGanancias. Los períodos
+// abiertos vencen a los ventas.ganancias.cache.vencimiento-abiertos y los cerrados a los
+// ventas.ganancias.cache.vencimiento-cerrados, por si algún cambio no llega a invalidarlos.
+@Component
+public class CacheGanancias {
+
+    public static final String NOMBRE = "ganancias";
+
+    private final Cache<ClaveGanancia, BigDecimal> cache;
+    private final DesalojoDiferido desalojoDiferido;
+
+    public CacheGanancias(MeterRegistry meterRegistry, DesalojoDiferido desalojoDiferido,
+                          @Value("${ventas.ganancias.cache.tamanio-maximo:10000}") long tamanioMaximo,
+                          @Value("${ventas.ganancias.cache.vencimiento-abiertos:5s}") Duration vencimientoAbiertos,
+                          @Value("${ventas.ganancias.cache.vencimiento-cerrados:10m}") Duration vencimientoCerrados) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tamanioMaximo)
+                .expireAfter(new VencimientoPorPeriodo(vencimientoAbiertos.toNanos(), vencimientoCerrados.toNanos()))
+                .recordStats()
+                .build();
+        // Con las mismas etiquetas que las cachés de Spring (cache y cache.manager): Prometheus no
+        // admite una misma métrica con distintos conjuntos de etiquetas
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, NOMBRE, Tags.of("cache.manager", "cacheGanancias"));
+        this.desalojoDiferido = desalojoDiferido;
+    }
+
+    // Retorna el resultado guardado o lo calcula. El cálculo se hace dentro de Cache.get, que es
+    // atómico por clave: una invalidación que llega mientras se calcula espera a que termine y
+    // descarta el resultado, así que un cálculo que leyó datos anteriores a una escritura no queda
+    // guardado. Dentro de una transacción de escritura no se usa la caché porque la transacción
+    // puede ver sus propios cambios todavía no confirmados.
+    public BigDecimal obtener(ClaveGanancia clave, Function<ClaveGanancia, BigDecimal> calculo) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return calculo.apply(clave);
+        }
+        return cache.get(clave, calculo);
+    }
+
+    // Invalida el día, el mes y el año de cada fecha modificada, clave por clave para que también
+    // alcance a los cálculos en curso. Sin transacción activa se invalida de inmediato. Con réplica
+    // de lectura se vuelve a invalidar más tarde (ver DesalojoDiferido).
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarGanancias(GananciasModificadas evento) {
+        Set<ClaveGanancia> claves = new HashSet<>();
+        for (LocalDate fecha = evento.desde(); fecha.isBefore(evento.hasta()); fecha = fecha.plusDays(1)) {
+            claves.addAll(List.of(ClaveGanancia.periodosDe(fecha)));
+        }
+        cache.invalidateAll(claves);
+        desalojoDiferido.repetir(() -> cache.invalidateAll(claves));
+    }
+
+    public void invalidarTodo() {
+        cache.invalidateAll();
+    }
+
+    private record VencimientoPorPeriodo(long nanosAbiertos, long nanosCerrados) implements Expiry<ClaveGanancia, BigDecimal> {
+
+        @Override
+        public long expireAfterCreate(ClaveGanancia clave, BigDecimal ganancia, long tiempoActual) {
+            return clave.cerrado(LocalDate.now()) ? nanosCerrados : nanosAbiertos;
+        }
+
+        @Override
+        public long expireAfterUpdate(ClaveGanancia clave, BigDecimal ganancia, long tiempoActual, long duracionActual) {
+            return expireAfterCreate(clave, ganancia, tiempoActual);
+        }
+
+        @Override
+        public long expireAfterRead(ClaveGanancia clave, BigDecimal ganancia, long tiempoActual, long duracionActual) {
+            return duracionActual;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.ventas.ms_ventas;
+
+import java.math.BigDecimal;
+
+// Cuerpo de PATCH /ventas/{id}/detalles/{idDetalle}: solo se modifican los campos informados
+public record CambioDetalle(String producto, Integer cantidad, BigDecimal precio, BigDecimal costo) {
+
+    // Valida la línea como quedaría después del cambio, con las mismas reglas que una venta nueva
+    // (ValidacionVenta), sin modificar el detalle. Retorna el error o null.
+    public String validarSobre(DetalleVenta detalle) {
+        return ValidacionVenta.validar(new DetalleVenta(
+                producto != null ? producto : detalle.getProducto(),
+                cantidad != null ? cantidad : detalle.getCantidad(),
+                precio != null ? precio : detalle.getPrecio(),
+                costo != null ? costo : detalle.getCosto()));
+    }
+
+    public void aplicarA(DetalleVenta detalle) {
+        if (producto != null) {
+            detalle.setProducto(producto);
+        }
+        if (cantidad != null) {
+            detalle.setCantidad(cantidad);
+        }
+        if (precio != null) {
+            detalle.setPrecio(precio);
+        }
+        if (costo != null) {
+            detalle.setCosto(costo);
+        }
+    }
+}
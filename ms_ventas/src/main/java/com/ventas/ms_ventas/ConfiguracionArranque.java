@@ -0,0 +1,22 @@
+package com.ventas.ms_ventas;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationInitializer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+
+@Configuration
+public class ConfiguracionArranque {
+
+    // Con spring.main.lazy-initialization (perfil produccion) cada bean se crea con la primera petición
+    // que lo necesita. JPA y las migraciones de Flyway se siguen iniciando al arrancar: cualquier
+    // petición los necesita, y así un error de conexión o de migración detiene el arranque en lugar
+    // de aparecer cuando la instancia ya recibe tráfico.
+    @Bean
+    public static LazyInitializationExcludeFilter jpaAlArrancar() {
+        return LazyInitializationExcludeFilter.forBeanTypes(EntityManagerFactory.class,
+                AbstractEntityManagerFactoryBean.class, FlywayMigrationInitializer.class);
+    }
+}
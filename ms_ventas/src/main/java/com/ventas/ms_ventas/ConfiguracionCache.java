@@ -0,0 +1,75 @@
+package com.ventas.ms_ventas;
+
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.util.concurrent.Callable;
+
+@Configuration
+@EnableConfigurationProperties(CacheProperties.class)
+public class ConfiguracionCache {
+
+    // Cachés Caffeine con la especificación de spring.cache.caffeine.spec. Las escrituras y
+    // desalojos hechos dentro de una transacción se aplican recién al confirmarla: una lectura
+    // en una transacción revertida no deja datos que nunca existieron, y el desalojo de una
+    // venta actualizada ocurre después de que el cambio es visible para otras sesiones.
+    // Las lecturas con @Cacheable(sync = true) cargan dentro de Cache.get, atómico por clave como
+    // en CacheGanancias: un desalojo que llega mientras una lectura carga el valor anterior espera
+    // a que termine y lo descarta, así que esa lectura no lo deja en caché después de la escritura.
+    // Con réplica de lectura cada desalojo se repite además más tarde (ver DesalojoDiferido).
+    @Bean
+    public CacheManager cacheManager(CacheProperties propiedades, DesalojoDiferido desalojoDiferido) {
+        CaffeineCacheManager cacheManager = new CacheManagerVentas(desalojoDiferido);
+        String especificacion = propiedades.getCaffeine().getSpec();
+        if (StringUtils.hasText(especificacion)) {
+            cacheManager.setCacheSpecification(especificacion);
+        }
+        if (!propiedades.getCacheNames().isEmpty()) {
+            cacheManager.setCacheNames(propiedades.getCacheNames());
+        }
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+
+    private static final class CacheManagerVentas extends CaffeineCacheManager {
+
+        private final DesalojoDiferido desalojoDiferido;
+
+        private CacheManagerVentas(DesalojoDiferido desalojoDiferido) {
+            this.desalojoDiferido = desalojoDiferido;
+        }
+
+        @Override
+        protected Cache adaptCaffeineCache(String nombre, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+            return new CaffeineCache(nombre, cache, isAllowNullValues()) {
+                // Un resultado null (por ejemplo un ID inexistente) no se guarda, para que una venta
+                // creada después se encuentre enseguida
+                @Override
+                @SuppressWarnings("unchecked")
+                public <T> T get(Object clave, Callable<T> cargar) {
+                    return (T) fromStoreValue(cache.get(clave, k -> {
+                        try {
+                            T valor = cargar.call();
+                            return valor != null ? toStoreValue(valor) : null;
+                        } catch (Exception e) {
+                            throw new ValueRetrievalException(k, cargar, e);
+                        }
+                    }));
+                }
+
+                @Override
+                public void evict(Object clave) {
+                    super.evict(clave);
+                    desalojoDiferido.repetir(() -> super.evict(clave));
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.ventas.ms_ventas;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ConfiguracionMetricas {
+
+    // Registra MetricasSql en Hibernate para contar sentencias, filas y entidades por petición
+    @Bean
+    public HibernatePropertiesCustomizer metricasSqlHibernate(MetricasSql metricasSql) {
+        return propiedades -> {
+            propiedades.put(AvailableSettings.STATEMENT_INSPECTOR, metricasSql);
+            propiedades.put(AvailableSettings.INTERCEPTOR, metricasSql);
+            propiedades.put(AvailableSettings.STATS_BUILDER, metricasSql);
+        };
+    }
+
+    @Bean
+    public FiltroMetricasSql filtroMetricasSql(MetricasSql metricasSql, MeterRegistry meterRegistry) {
+        return new FiltroMetricasSql(metricasSql, meterRegistry);
+    }
+}
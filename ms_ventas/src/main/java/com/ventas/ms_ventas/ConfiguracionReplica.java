@@ -0,0 +1,69 @@
+package com.ventas.ms_ventas;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+// Réplica de lectura (ventas.replica.habilitado). Las transacciones de solo lectura
+// (@Transactional(readOnly = true): listado y búsqueda de ventas, ganancias, analítica y
+// exportación) usan el pool de la réplica, y las escrituras, las migraciones y las consultas fuera
+// de una transacción el del primario. Con AOT (perfil produccion) la condición se evalúa al compilar.
+@Configuration
+@ConditionalOnProperty(name = "ventas.replica.habilitado", havingValue = "true")
+public class ConfiguracionReplica {
+
+    // Pool del primario con spring.datasource.* y spring.datasource.hikari.*, como el que crearía
+    // Spring Boot sin réplica. Solo se inyecta por nombre: el resto de la aplicación usa dataSource.
+    @Bean(defaultCandidate = false)
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSourcePrimario(DataSourceProperties propiedades) {
+        return propiedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    // Pool de la réplica con ventas.replica.datasource.* (jdbc-url, username, password, maximum-pool-size...)
+    @Bean(defaultCandidate = false)
+    @ConfigurationProperties("ventas.replica.datasource")
+    public HikariDataSource dataSourceReplica() {
+        return DataSourceBuilder.create().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @Lazy(false)
+    public LatidoReplica latidoReplica(@Qualifier("dataSourcePrimario") DataSource primario,
+                                       @Qualifier("dataSourceReplica") DataSource replica,
+                                       @Value("${ventas.replica.retraso-maximo:5s}") Duration retrasoMaximo,
+                                       MeterRegistry meterRegistry) {
+        return new LatidoReplica(primario, replica, retrasoMaximo, meterRegistry);
+    }
+
+    // El DataSource de la aplicación. JpaTransactionManager pide la conexión al comenzar la
+    // transacción, antes de marcarla como de solo lectura; LazyConnectionDataSourceProxy la pide
+    // recién con la primera sentencia, cuando EnrutadorLecturas ya puede elegir el pool.
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("dataSourcePrimario") DataSource primario,
+                                 @Qualifier("dataSourceReplica") DataSource replica,
+                                 LatidoReplica latidoReplica) {
+        EnrutadorLecturas enrutador = new EnrutadorLecturas(latidoReplica);
+        enrutador.setTargetDataSources(Map.of(
+                EnrutadorLecturas.Destino.PRIMARIO, primario,
+                EnrutadorLecturas.Destino.REPLICA, replica));
+        enrutador.setDefaultTargetDataSource(primario);
+        enrutador.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(enrutador);
+    }
+}
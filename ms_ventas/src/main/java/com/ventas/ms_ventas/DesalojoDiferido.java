@@ -0,0 +1,38 @@
+package com.ventas.ms_ventas;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+// Con réplica de lectura (ventas.replica.habilitado) una lectura hecha justo después de una escritura
+// puede llegar a la réplica antes que el cambio y volver a guardar en caché el valor anterior. Los
+// desalojos de CacheGanancias y de la caché de ventas se repiten pasado el mayor retraso con el que
+// la réplica todavía se usa (ventas.replica.retraso-maximo más un latido, ver LatidoReplica).
+@Component
+public class DesalojoDiferido {
+
+    private final Executor diferido;
+
+    public DesalojoDiferido(@Value("${ventas.replica.habilitado:false}") boolean replica,
+                            @Value("${ventas.replica.retraso-maximo:5s}") Duration retrasoMaximo,
+                            @Value("${ventas.replica.latido:1s}") Duration latido) {
+        this.diferido = replica
+                ? CompletableFuture.delayedExecutor(retrasoMaximo.plus(latido).toMillis(), TimeUnit.MILLISECONDS)
+                : null;
+    }
+
+    public boolean habilitado() {
+        return diferido != null;
+    }
+
+    // Ejecuta el desalojo otra vez más tarde; sin réplica no hace nada
+    public void repetir(Runnable desalojo) {
+        if (diferido != null) {
+            diferido.execute(desalojo);
+        }
+    }
+}
@@ -1,9 +1,25 @@
 package com.ventas.ms_ventas;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Repository
 public interface DetalleVentaRepository extends JpaRepository<DetalleVenta, Integer> {
 
-}
\ No newline at end of file
+    // Suma de la ganancia ((PRECIO - COSTO) * CANTIDAD) calculada en la base de datos
+    // para las ventas cuya FECHA cae en el rango semiabierto [desde, hasta). De solo lectura para
+    // que vaya a la réplica cuando está habilitada (ConfiguracionReplica).
+    @Transactional(readOnly = true)
+    @Query("""
+            SELECT COALESCE(SUM((d.precio - d.costo) * d.cantidad), 0)
+            FROM DetalleVenta d
+            WHERE d.venta.fecha >= :desde AND d.venta.fecha < :hasta
+            """)
+    BigDecimal sumarGananciasEntre(@Param("desde") LocalDateTime desde, @Param("hasta") LocalDateTime hasta);
+}
@@ -0,0 +1,45 @@
+package com.ventas.ms_ventas;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Evento publicado por VentaService e ImportadorVentas con las líneas que cambian en una escritura.
+// AlmacenColumnar lo aplica al confirmarse la transacción.
+public record DetallesModificados(List<MovimientoDetalle> movimientos) {
+
+    public static DetallesModificados altas(Venta venta) {
+        return new DetallesModificados(MovimientoDetalle.de(venta));
+    }
+
+    public static DetallesModificados bajas(Venta venta) {
+        return entre(MovimientoDetalle.de(venta), List.of());
+    }
+
+    // Diferencia entre las líneas anteriores y las nuevas: las que no cambiaron se cancelan entre sí,
+    // las anteriores restantes se niegan y las nuevas restantes se agregan tal cual
+    public static DetallesModificados entre(List<MovimientoDetalle> anteriores, List<MovimientoDetalle> nuevas) {
+        Map<MovimientoDetalle, Integer> pendientes = new HashMap<>();
+        for (MovimientoDetalle anterior : anteriores) {
+            pendientes.merge(anterior, 1, Integer::sum);
+        }
+        List<MovimientoDetalle> movimientos = new ArrayList<>();
+        for (MovimientoDetalle nueva : nuevas) {
+            Integer repetidas = pendientes.get(nueva);
+            if (repetidas == null) {
+                movimientos.add(nueva);
+            } else if (repetidas == 1) {
+                pendientes.remove(nueva);
+            } else {
+                pendientes.put(nueva, repetidas - 1);
+            }
+        }
+        pendientes.forEach((anterior, repetidas) -> {
+            for (int i = 0; i < repetidas; i++) {
+                movimientos.add(anterior.negado());
+            }
+        });
+        return new DetallesModificados(movimientos);
+    }
+}
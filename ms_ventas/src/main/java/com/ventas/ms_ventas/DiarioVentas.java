@@ -0,0 +1,305 @@
+package com.ventas.ms_ventas;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Diario local de solo agregado para EscrituraDiferida. Los registros se escriben en segmentos de
+// tamaño fijo mapeados en memoria (diario-<n>.log), rellenos con ceros al crearse, con el formato
+// [longitud int][crc32 int][secuencia long][datos]: una longitud 0 marca el final y un registro
+// cortado por una caída no pasa el CRC y también termina la lectura.
+//
+// Un registro es durable cuando termina el force() de su segmento. Los hilos que agregan mientras
+// otro hace force() esperan y quedan cubiertos por el siguiente, así que con muchas escrituras
+// simultáneas se hace un fsync por grupo y no uno por registro (group commit).
+//
+// El archivo "confirmado" guarda la secuencia hasta la que todo está en la base de datos. Al abrir
+// se devuelven los registros posteriores, y los segmentos que ya no tienen pendientes se borran.
+final class DiarioVentas implements Closeable {
+
+    static final int CABECERA = 2 * Integer.BYTES + Long.BYTES;
+    private static final String PREFIJO = "diario-";
+    private static final String EXTENSION = ".log";
+    private static final String CONFIRMADO = "confirmado";
+
+    // Registro leído al abrir el diario
+    record Registro(long secuencia, byte[] datos) {}
+
+    private final Path directorio;
+    private final int tamanioSegmento;
+    private final long esperaGrupoNanos;
+
+    // Escritura, protegida por el monitor del diario
+    private FileChannel canal;
+    private MappedByteBuffer segmento;
+    private long numeroSegmento;
+    private long ultimaSecuencia;
+    // Última secuencia escrita en cada segmento, para borrar los ya confirmados
+    private final Map<Long, Long> ultimaPorSegmento = new TreeMap<>();
+
+    // Durabilidad, protegida por el monitor disco
+    private final Object disco = new Object();
+    private long secuenciaEnDisco;
+    private boolean sincronizando;
+
+    private volatile long confirmada;
+
+    DiarioVentas(Path directorio, int tamanioSegmento, Duration esperaGrupo) {
+        this.directorio = directorio;
+        this.tamanioSegmento = tamanioSegmento;
+        this.esperaGrupoNanos = esperaGrupo.toNanos();
+    }
+
+    // --- APERTURA Y RECUPERACIÓN ---
+
+    // Abre el diario y retorna, en orden, los registros posteriores a la secuencia confirmada.
+    // Se sigue escribiendo al final del último segmento, o en uno nuevo si terminó en un registro cortado.
+    synchronized List<Registro> abrir() throws IOException {
+        Files.createDirectories(directorio);
+        Path archivoConfirmado = directorio.resolve(CONFIRMADO);
+        confirmada = Files.exists(archivoConfirmado)
+                ? Long.parseLong(Files.readString(archivoConfirmado, StandardCharsets.UTF_8).trim()) : 0;
+        ultimaSecuencia = confirmada;
+
+        List<Registro> pendientes = new ArrayList<>();
+        boolean cortado = false;
+        for (long numero : numerosDeSegmento()) {
+            cerrarSegmento();
+            numeroSegmento = numero;
+            canal = FileChannel.open(rutaSegmento(numero), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segmento = canal.map(FileChannel.MapMode.READ_WRITE, 0, canal.size());
+            cortado = leerRegistros(numero, pendientes);
+        }
+        if (segmento == null || cortado) {
+            numeroSegmento++;
+            nuevoSegmento();
+        }
+        secuenciaEnDisco = ultimaSecuencia;
+        borrarConfirmados();
+        return pendientes;
+    }
+
+    // Lee los registros del segmento abierto y deja la posición al final del último válido.
+    // Retorna true si la lectura terminó en un registro cortado.
+    private boolean leerRegistros(long numero, List<Registro> pendientes) {
+        while (segmento.remaining() >= CABECERA) {
+            int inicio = segmento.position();
+            int largo = segmento.getInt();
+            if (largo == 0) {
+                segmento.position(inicio);
+                return false;
+            }
+            int crc = segmento.getInt();
+            long secuencia = segmento.getLong();
+            if (largo < 0 || largo > segmento.remaining()) {
+                segmento.position(inicio);
+                return true;
+            }
+            byte[] datos = new byte[largo];
+            segmento.get(datos);
+            if (crc(datos) != crc) {
+                segmento.position(inicio);
+                return true;
+            }
+            ultimaSecuencia = Math.max(ultimaSecuencia, secuencia);
+            ultimaPorSegmento.put(numero, secuencia);
+            if (secuencia > confirmada) {
+                pendientes.add(new Registro(secuencia, datos));
+            }
+        }
+        return false;
+    }
+
+    private List<Long> numerosDeSegmento() throws IOException {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos.map(archivo -> archivo.getFileName().toString())
+                    .filter(nombre -> nombre.startsWith(PREFIJO) && nombre.endsWith(EXTENSION))
+                    .map(nombre -> Long.parseLong(nombre.substring(PREFIJO.length(), nombre.length() - EXTENSION.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    // --- ESCRITURA ---
+
+    // Agrega un registro y retorna su secuencia cuando ya está en disco. alEscribir recibe la
+    // secuencia bajo el monitor del diario, así que se llama en el mismo orden de las secuencias.
+    long agregar(byte[] datos, LongConsumer alEscribir) throws IOException {
+        long secuencia;
+        synchronized (this) {
+            int largo = CABECERA + datos.length;
+            if (largo > tamanioSegmento) {
+                throw new IllegalArgumentException("El registro ocupa " + largo + " bytes y el segmento " + tamanioSegmento);
+            }
+            if (segmento.remaining() < largo) {
+                rotar();
+            }
+            secuencia = ++ultimaSecuencia;
+            segmento.putInt(datos.length).putInt(crc(datos)).putLong(secuencia).put(datos);
+            ultimaPorSegmento.put(numeroSegmento, secuencia);
+            alEscribir.accept(secuencia);
+        }
+        esperarDisco(secuencia);
+        return secuencia;
+    }
+
+    // Espera a que la secuencia esté en disco. Si nadie está sincronizando, este hilo hace el
+    // force() para todo lo escrito hasta ese momento; si no, espera al que está en curso y vuelve
+    // a comprobar. espera-grupo retrasa el force() para juntar más registros en cada fsync.
+    private void esperarDisco(long secuencia) throws IOException {
+        while (true) {
+            synchronized (disco) {
+                if (secuenciaEnDisco >= secuencia) {
+                    return;
+                }
+                if (sincronizando) {
+                    esperar();
+                    continue;
+                }
+                sincronizando = true;
+            }
+            long hasta = 0;
+            boolean sincronizado = false;
+            try {
+                if (esperaGrupoNanos > 0) {
+                    LockSupport.parkNanos(esperaGrupoNanos);
+                }
+                MappedByteBuffer actual;
+                synchronized (this) {
+                    hasta = ultimaSecuencia;
+                    actual = segmento;
+                }
+                actual.force();
+                sincronizado = true;
+            } finally {
+                synchronized (disco) {
+                    sincronizando = false;
+                    if (sincronizado) {
+                        secuenciaEnDisco = Math.max(secuenciaEnDisco, hasta);
+                    }
+                    disco.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void esperar() throws InterruptedIOException {
+        try {
+            disco.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrumpido esperando la escritura del diario");
+        }
+    }
+
+    // El segmento lleno se fuerza a disco antes de pasar al siguiente, así que la sincronización
+    // agrupada solo tiene que cubrir el segmento actual
+    private void rotar() throws IOException {
+        segmento.force();
+        synchronized (disco) {
+            secuenciaEnDisco = Math.max(secuenciaEnDisco, ultimaSecuencia);
+        }
+        numeroSegmento++;
+        nuevoSegmento();
+    }
+
+    private void nuevoSegmento() throws IOException {
+        cerrarSegmento();
+        canal = FileChannel.open(rutaSegmento(numeroSegmento),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segmento = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanioSegmento);
+        forzarDirectorio();
+    }
+
+    // --- CONFIRMACIÓN ---
+
+    // Registra que todo hasta la secuencia está en la base de datos y borra los segmentos que ya no
+    // tienen pendientes (nunca el actual). El archivo se reemplaza de forma atómica.
+    void confirmar(long secuencia) throws IOException {
+        Path temporal = directorio.resolve(CONFIRMADO + ".tmp");
+        try (FileChannel archivo = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            archivo.write(ByteBuffer.wrap(Long.toString(secuencia).getBytes(StandardCharsets.UTF_8)));
+            archivo.force(true);
+        }
+        Files.move(temporal, directorio.resolve(CONFIRMADO), StandardCopyOption.ATOMIC_MOVE);
+        forzarDirectorio();
+        confirmada = secuencia;
+        synchronized (this) {
+            borrarConfirmados();
+        }
+    }
+
+    private void borrarConfirmados() throws IOException {
+        var segmentos = ultimaPorSegmento.entrySet().iterator();
+        while (segmentos.hasNext()) {
+            Map.Entry<Long, Long> entrada = segmentos.next();
+            if (entrada.getKey() != numeroSegmento && entrada.getValue() <= confirmada) {
+                Files.deleteIfExists(rutaSegmento(entrada.getKey()));
+                segmentos.remove();
+            }
+        }
+    }
+
+    // --- ESTADO ---
+
+    synchronized long ultimaSecuencia() {
+        return ultimaSecuencia;
+    }
+
+    long confirmada() {
+        return confirmada;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (segmento != null) {
+            segmento.force();
+        }
+        cerrarSegmento();
+    }
+
+    private void cerrarSegmento() throws IOException {
+        if (canal != null) {
+            canal.close();
+            canal = null;
+        }
+    }
+
+    // La creación, el borrado y el reemplazo de archivos son durables cuando se fuerza el
+    // directorio. No todos los sistemas lo permiten (Windows), y ahí se omite.
+    private void forzarDirectorio() {
+        try (FileChannel canalDirectorio = FileChannel.open(directorio, StandardOpenOption.READ)) {
+            canalDirectorio.force(true);
+        } catch (IOException e) {
+            // Sin soporte para sincronizar directorios
+        }
+    }
+
+    private Path rutaSegmento(long numero) {
+        return directorio.resolve(String.format("%s%06d%s", PREFIJO, numero, EXTENSION));
+    }
+
+    private static int crc(byte[] datos) {
+        CRC32 crc = new CRC32();
+        crc.update(datos);
+        return (int) crc.getValue();
+    }
+}
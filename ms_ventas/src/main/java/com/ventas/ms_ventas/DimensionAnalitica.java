@@ -0,0 +1,17 @@
+package com.ventas.ms_ventas;
+
+// Dimensión por la que se agrupan las ventas en GET /ventas/analitica
+public enum DimensionAnalitica {
+
+    PRODUCTO("d.producto"),
+    CLIENTE("v.cliente");
+
+    // Expresión JPQL sobre DetalleVenta d JOIN d.venta v
+    private final String expresion;
+
+    DimensionAnalitica(String expresion) {
+        this.expresion = expresion;
+    }
+
+    public String getExpresion() { return expresion; }
+}
@@ -0,0 +1,8 @@
+package com.ventas.ms_ventas;
+
+import java.time.LocalDate;
+
+// Día en el que GANANCIA_DIARIA no coincide con lo calculado desde VENTA/DETALLE_VENTA.
+// Cualquiera de los dos resúmenes puede ser null si el día falta en uno de los lados.
+public record DiscrepanciaGanancia(LocalDate fecha, ResumenDiario esperado, ResumenDiario registrado) {
+}
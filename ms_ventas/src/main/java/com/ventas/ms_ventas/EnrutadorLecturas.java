@@ -0,0 +1,23 @@
+package com.ventas.ms_ventas;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Elige el pool de cada conexión (ver ConfiguracionReplica): la réplica para las transacciones de
+// solo lectura mientras LatidoReplica la considere al día, y el primario para todo lo demás.
+class EnrutadorLecturas extends AbstractRoutingDataSource {
+
+    enum Destino { PRIMARIO, REPLICA }
+
+    private final LatidoReplica latido;
+
+    EnrutadorLecturas(LatidoReplica latido) {
+        this.latido = latido;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && latido.alDia()
+                ? Destino.REPLICA : Destino.PRIMARIO;
+    }
+}
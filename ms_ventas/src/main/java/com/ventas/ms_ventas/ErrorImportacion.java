@@ -0,0 +1,5 @@
+package com.ventas.ms_ventas;
+
+// Venta rechazada en una importación: posición (desde 0) en el cuerpo recibido y motivo
+public record ErrorImportacion(int indice, String mensaje) {
+}
@@ -0,0 +1,380 @@
+package com.ventas.ms_ventas;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Escritura diferida de ventas nuevas (POST /ventas con ventas.diario.habilitado=true). La venta se
+// valida, recibe sus IDs de las secuencias, se agrega al diario local (DiarioVentas) y se responde
+// cuando el registro está en disco. Un hilo aparte la guarda después en la base de datos en lotes,
+// cada uno en una transacción con sus INSERT en lotes JDBC, el acumulado diario y el evento para
+// AlmacenColumnar, y recién entonces confirma la secuencia en el diario.
+//
+// Al arrancar se vuelven a encolar los registros no confirmados. Como una caída entre el COMMIT y
+// la confirmación deja en el diario ventas ya guardadas, los lotes recuperados omiten los IDs que
+// ya existen. Si la base de datos falla, el lote se reintenta cada ventas.diario.reintento sin
+// perder el orden, y también omite los IDs existentes porque no se sabe si el intento anterior
+// llegó a confirmar. El estado muestra los pendientes y el último error.
+//
+// Una venta que la base de datos rechaza de forma permanente (DataIntegrityViolationException) no se
+// reintenta, porque frenaría a todas las posteriores: el lote se guarda venta por venta, las
+// rechazadas se agregan a rechazadas.log en el directorio del diario con su error y el estado de su
+// ID pasa a RECHAZADA. La validación al registrar ya descarta lo que no entra en las columnas.
+//
+// Hasta que se guardan, las ventas pendientes no aparecen en las consultas ni en las ganancias.
+@Service
+public class EscrituraDiferida implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(EscrituraDiferida.class);
+    private static final int MAXIMO_LOTE = 1000;
+    private static final Duration ESPERA_CIERRE = Duration.ofSeconds(30);
+    private static final String RECHAZADAS = "rechazadas.log";
+
+    // Venta leída del diario o recién registrada, con la secuencia de su registro
+    private record Pendiente(long secuencia, Venta venta, boolean recuperada) {}
+
+    // Línea de rechazadas.log: la venta tal como estaba en el diario y el error de la base de datos
+    record Rechazada(long secuencia, String error, Venta venta) {}
+
+    private final boolean habilitada;
+    private final DiarioVentas diario;
+    private final Path archivoRechazadas;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final GananciaDiariaService gananciaDiariaService;
+    private final ApplicationEventPublisher eventos;
+    private final ObjectMapper objectMapper;
+    private final ReservaIds idsVenta;
+    private final ReservaIds idsDetalle;
+    private final int tamanioLote;
+    private final Duration reintento;
+
+    private final BlockingQueue<Pendiente> cola = new LinkedBlockingQueue<>();
+    private final Map<Integer, Long> pendientesPorId = new ConcurrentHashMap<>();
+    // Error de cada venta rechazada, desde rechazadas.log
+    private final Map<Integer, String> rechazadasPorId = new ConcurrentHashMap<>();
+    private volatile boolean activa;
+    private volatile long guardadas;
+    private volatile Instant ultimoGuardado;
+    private volatile String ultimoError;
+    private Thread hiloGuardado;
+
+    public EscrituraDiferida(@Value("${ventas.diario.habilitado:false}") boolean habilitada,
+                             @Value("${ventas.diario.directorio:diario}") Path directorio,
+                             @Value("${ventas.diario.tamanio-segmento:64MB}") DataSize tamanioSegmento,
+                             @Value("${ventas.diario.espera-grupo:1ms}") Duration esperaGrupo,
+                             @Value("${ventas.diario.tamanio-lote:500}") int tamanioLote,
+                             @Value("${ventas.diario.reintento:5s}") Duration reintento,
+                             JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                             GananciaDiariaService gananciaDiariaService, ApplicationEventPublisher eventos,
+                             ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.habilitada = habilitada;
+        this.diario = new DiarioVentas(directorio, Math.toIntExact(tamanioSegmento.toBytes()), esperaGrupo);
+        this.archivoRechazadas = directorio.resolve(RECHAZADAS);
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.gananciaDiariaService = gananciaDiariaService;
+        this.eventos = eventos;
+        this.objectMapper = objectMapper;
+        this.idsVenta = new ReservaIds(jdbcTemplate, "VENTA_SEQ");
+        this.idsDetalle = new ReservaIds(jdbcTemplate, "DETALLE_VENTA_SEQ");
+        this.tamanioLote = Math.max(1, Math.min(tamanioLote, MAXIMO_LOTE));
+        this.reintento = reintento;
+        Gauge.builder("ventas.diario.pendientes", pendientesPorId, Map::size).register(meterRegistry);
+        Gauge.builder("ventas.diario.rechazadas", rechazadasPorId, Map::size).register(meterRegistry);
+    }
+
+    public boolean isHabilitada() {
+        return habilitada;
+    }
+
+    // --- REGISTRO ---
+
+    // Valida la venta, le asigna IDs y total y la agrega al diario. Retorna la venta cuando el
+    // registro está en disco; la base de datos se actualiza después.
+    public Venta registrar(Venta venta) {
+        String error = ValidacionVenta.validar(venta);
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+        if (!activa) {
+            throw new IllegalStateException("La escritura diferida no está activa");
+        }
+        venta.setId(idsVenta.siguiente());
+        for (DetalleVenta detalle : venta.getDetalles()) {
+            detalle.setId(idsDetalle.siguiente());
+        }
+        // Asigna la venta a cada detalle y calcula el total
+        venta.setDetalles(venta.getDetalles());
+        try {
+            byte[] datos = objectMapper.writeValueAsBytes(venta);
+            diario.agregar(datos, secuencia -> {
+                pendientesPorId.put(venta.getId(), secuencia);
+                cola.add(new Pendiente(secuencia, venta, false));
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir la venta en el diario", e);
+        }
+        return venta;
+    }
+
+    // --- ESTADO ---
+
+    public EstadoEscrituraDiferida estado() {
+        return new EstadoEscrituraDiferida(habilitada, diario.ultimaSecuencia(),
+                diario.confirmada(), pendientesPorId.size(), rechazadasPorId.size(), guardadas, ultimoGuardado,
+                ultimoError);
+    }
+
+    public PersistenciaVenta estado(int id) {
+        if (pendientesPorId.containsKey(id)) {
+            return new PersistenciaVenta(id, PersistenciaVenta.Estado.PENDIENTE);
+        }
+        String rechazo = rechazadasPorId.get(id);
+        if (rechazo != null) {
+            return new PersistenciaVenta(id, PersistenciaVenta.Estado.RECHAZADA, rechazo);
+        }
+        Integer existentes = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM VENTA WHERE ID = ?", Integer.class, id);
+        return new PersistenciaVenta(id, existentes != null && existentes > 0
+                ? PersistenciaVenta.Estado.PERSISTIDA : PersistenciaVenta.Estado.DESCONOCIDA);
+    }
+
+    // --- GUARDADO EN LA BASE DE DATOS ---
+
+    private void guardarPendientes() {
+        List<Pendiente> lote = new ArrayList<>(tamanioLote);
+        while (activa || !cola.isEmpty()) {
+            try {
+                Pendiente primero = cola.poll(200, TimeUnit.MILLISECONDS);
+                if (primero == null) {
+                    continue;
+                }
+                lote.add(primero);
+                cola.drainTo(lote, tamanioLote - 1);
+                guardarConReintentos(lote);
+                lote.clear();
+            } catch (InterruptedException e) {
+                // Cierre sin terminar de vaciar: lo que queda se recupera del diario al arrancar
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void guardarConReintentos(List<Pendiente> lote) throws InterruptedException {
+        while (true) {
+            try {
+                try {
+                    guardar(lote);
+                } catch (DataIntegrityViolationException e) {
+                    guardarDeAUna(lote);
+                }
+                diario.confirmar(lote.get(lote.size() - 1).secuencia());
+                lote.forEach(pendiente -> pendientesPorId.remove(pendiente.venta().getId()));
+                guardadas += lote.size();
+                ultimoGuardado = Instant.now();
+                ultimoError = null;
+                return;
+            } catch (RuntimeException | IOException e) {
+                // El intento pudo haber confirmado en la base de datos (por ejemplo si falló la
+                // confirmación en el diario), así que desde ahora el lote omite los IDs existentes
+                lote.replaceAll(pendiente -> new Pendiente(pendiente.secuencia(), pendiente.venta(), true));
+                ultimoError = e.getMessage();
+                log.warn("No se pudo guardar un lote de {} ventas del diario, se reintenta en {}: {}",
+                        lote.size(), reintento, e.getMessage());
+                Thread.sleep(reintento.toMillis());
+            }
+        }
+    }
+
+    // Guarda el lote venta por venta para apartar las que la base de datos rechaza. Cualquier otro
+    // error corta el recorrido y el lote entero se reintenta.
+    private void guardarDeAUna(List<Pendiente> lote) throws IOException {
+        for (Pendiente pendiente : lote) {
+            if (rechazadasPorId.containsKey(pendiente.venta().getId())) {
+                continue;
+            }
+            try {
+                guardar(List.of(pendiente));
+            } catch (DataIntegrityViolationException e) {
+                rechazar(pendiente, e.getMostSpecificCause().getMessage());
+            }
+        }
+    }
+
+    // Registra la venta en rechazadas.log con fsync antes de que la confirmación del lote la saque
+    // del diario
+    private void rechazar(Pendiente pendiente, String error) throws IOException {
+        byte[] linea = objectMapper.writeValueAsBytes(new Rechazada(pendiente.secuencia(), error, pendiente.venta()));
+        try (FileChannel archivo = FileChannel.open(archivoRechazadas, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            archivo.write(ByteBuffer.wrap(linea));
+            archivo.write(ByteBuffer.wrap(new byte[]{'\n'}));
+            archivo.force(true);
+        }
+        rechazadasPorId.put(pendiente.venta().getId(), error);
+        log.error("Diario de ventas: la venta {} (secuencia {}) fue rechazada por la base de datos y se apartó en {}: {}",
+                pendiente.venta().getId(), pendiente.secuencia(), archivoRechazadas, error);
+    }
+
+    private void guardar(List<Pendiente> lote) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Set<Integer> existentes = existentes(lote);
+            List<Object[]> filasVenta = new ArrayList<>(lote.size());
+            List<Object[]> filasDetalle = new ArrayList<>();
+            List<ContribucionVenta> contribuciones = new ArrayList<>(lote.size());
+            List<MovimientoDetalle> lineas = new ArrayList<>();
+            for (Pendiente pendiente : lote) {
+                Venta venta = pendiente.venta();
+                if (existentes.contains(venta.getId())) {
+                    continue;
+                }
+                filasVenta.add(new Object[]{venta.getId(), venta.getCliente(), venta.getTotal(),
+                        Timestamp.valueOf(venta.getFecha())});
+                for (DetalleVenta detalle : venta.getDetalles()) {
+                    filasDetalle.add(new Object[]{detalle.getId(), venta.getId(), detalle.getProducto(),
+                            detalle.getCantidad(), detalle.getPrecio(), detalle.getCosto()});
+                }
+                contribuciones.add(ContribucionVenta.de(venta));
+                lineas.addAll(MovimientoDetalle.de(venta));
+            }
+            if (filasVenta.isEmpty()) {
+                return;
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO VENTA (ID, CLIENTE, TOTAL, FECHA) VALUES (?, ?, ?, ?)", filasVenta);
+            jdbcTemplate.batchUpdate("INSERT INTO DETALLE_VENTA (ID, ID_VENTA, PRODUCTO, CANTIDAD, PRECIO, COSTO) "
+                    + "VALUES (?, ?, ?, ?, ?, ?)", filasDetalle);
+            gananciaDiariaService.aplicarNuevas(contribuciones);
+            eventos.publishEvent(new DetallesModificados(lineas));
+        });
+    }
+
+    // IDs del lote que ya están en la base de datos. Solo puede pasar con ventas recuperadas del
+    // diario, así que los lotes de ventas nuevas no consultan.
+    private Set<Integer> existentes(List<Pendiente> lote) {
+        List<Integer> ids = lote.stream().filter(Pendiente::recuperada).map(pendiente -> pendiente.venta().getId()).toList();
+        if (ids.isEmpty()) {
+            return Collections.emptySet();
+        }
+        String marcadores = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT ID FROM VENTA WHERE ID IN (" + marcadores + ")",
+                Integer.class, ids.toArray()));
+    }
+
+    // --- CICLO DE VIDA ---
+    // Arranca antes que el servidor web y se detiene después de él, así que no llegan peticiones
+    // con el diario cerrado.
+
+    @Override
+    public void start() {
+        if (!habilitada) {
+            return;
+        }
+        try {
+            List<DiarioVentas.Registro> registros = diario.abrir();
+            leerRechazadas();
+            for (DiarioVentas.Registro registro : registros) {
+                Venta venta = objectMapper.readValue(registro.datos(), Venta.class);
+                pendientesPorId.put(venta.getId(), registro.secuencia());
+                cola.add(new Pendiente(registro.secuencia(), venta, true));
+            }
+            if (!registros.isEmpty()) {
+                log.info("Diario de ventas: {} ventas sin confirmar se guardarán en la base de datos", registros.size());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el diario de ventas", e);
+        }
+        activa = true;
+        hiloGuardado = Thread.ofPlatform().name("diario-ventas").daemon().start(this::guardarPendientes);
+    }
+
+    // Deja de aceptar ventas y espera a que se guarden las pendientes. Si la base de datos no responde
+    // a tiempo, el resto queda en el diario para el próximo arranque.
+    @Override
+    public void stop() {
+        if (!activa) {
+            return;
+        }
+        activa = false;
+        try {
+            hiloGuardado.join(ESPERA_CIERRE.toMillis());
+            if (hiloGuardado.isAlive()) {
+                log.warn("Diario de ventas: {} ventas quedan pendientes para el próximo arranque", pendientesPorId.size());
+                hiloGuardado.interrupt();
+                hiloGuardado.join(ESPERA_CIERRE.toMillis());
+            }
+            diario.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.warn("No se pudo cerrar el diario de ventas", e);
+        }
+    }
+
+    // Una línea cortada por una caída se omite: su venta sigue sin confirmar en el diario y se
+    // vuelve a rechazar
+    private void leerRechazadas() throws IOException {
+        if (!Files.exists(archivoRechazadas)) {
+            return;
+        }
+        try (BufferedReader lector = Files.newBufferedReader(archivoRechazadas, StandardCharsets.UTF_8)) {
+            String linea;
+            while ((linea = lector.readLine()) != null) {
+                if (linea.isBlank()) {
+                    continue;
+                }
+                try {
+                    Rechazada rechazada = objectMapper.readValue(linea, Rechazada.class);
+                    rechazadasPorId.put(rechazada.venta().getId(), rechazada.error());
+                } catch (JsonProcessingException e) {
+                    log.warn("Diario de ventas: se omite una línea ilegible de {}", archivoRechazadas);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return activa;
+    }
+
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+}
@@ -0,0 +1,26 @@
+package com.ventas.ms_ventas;
+
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/ventas/diario")
+public class EscrituraDiferidaController {
+
+    private final EscrituraDiferida escrituraDiferida;
+
+    public EscrituraDiferidaController(EscrituraDiferida escrituraDiferida) {
+        this.escrituraDiferida = escrituraDiferida;
+    }
+
+    // Método GET con el estado de la escritura diferida: secuencias escrita y confirmada, pendientes, rechazadas y último error
+    @GetMapping
+    public EstadoEscrituraDiferida estado() {
+        return escrituraDiferida.estado();
+    }
+
+    // Método GET para saber si una venta registrada con escritura diferida ya está en la base de datos o fue rechazada
+    @GetMapping("/{id}")
+    public PersistenciaVenta estado(@PathVariable int id) {
+        return escrituraDiferida.estado(id);
+    }
+}
@@ -0,0 +1,11 @@
+package com.ventas.ms_ventas;
+
+import java.time.Instant;
+
+// Estado de la escritura diferida (GET /ventas/diario): última secuencia escrita en el diario,
+// última confirmada en la base de datos, ventas pendientes, ventas rechazadas por la base de datos,
+// ventas guardadas desde el arranque y el último error al guardar un lote (null si el último lote
+// se guardó bien)
+public record EstadoEscrituraDiferida(boolean habilitada, long secuenciaEscrita, long secuenciaConfirmada,
+                                      int pendientes, int rechazadas, long guardadas, Instant ultimoGuardado,
+                                      String ultimoError) {}
@@ -0,0 +1,88 @@
+package com.ventas.ms_ventas;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+// Escribe las ventas de un rango de fechas directamente en la respuesta, fila a fila desde el
+// cursor JDBC. Nunca se arma la lista completa: la memoria usada no depende del tamaño del rango,
+// y si el cliente lee lento la escritura se bloquea y el cursor deja de avanzar.
+@Service
+public class ExportadorVentas {
+
+    // Cada cuántas ventas se vacía el buffer hacia el cliente
+    private static final int VENTAS_POR_ENVIO = 500;
+
+    private final VentaRepository ventaRepository;
+    private final ObjectMapper objectMapper;
+
+    public ExportadorVentas(VentaRepository ventaRepository, ObjectMapper objectMapper) {
+        this.ventaRepository = ventaRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    // Exporta las ventas con FECHA en [desde, hasta) ordenadas por ID
+    @Transactional(readOnly = true)
+    public void exportar(LocalDate desde, LocalDate hasta, FormatoExportacion formato, OutputStream salida) throws IOException {
+        try (Stream<FilaExportacion> filas = ventaRepository.exportarEntre(desde.atStartOfDay(), hasta.atStartOfDay())) {
+            if (formato == FormatoExportacion.CSV) {
+                escribirCsv(filas.iterator(), salida);
+            } else {
+                escribirNdjson(filas.iterator(), salida);
+            }
+        }
+    }
+
+    // Una venta por línea. Las filas llegan ordenadas por venta, así que basta con abrir un
+    // objeto nuevo cada vez que cambia el ID; solo los detalles de la venta actual están en vuelo.
+    private void escribirNdjson(Iterator<FilaExportacion> filas, OutputStream salida) throws IOException {
+        JsonGenerator json = objectMapper.getFactory().createGenerator(salida);
+        // Sin el espacio que Jackson pone por defecto entre valores raíz: el separador es el salto de línea
+        json.setRootValueSeparator(null);
+        Integer ventaActual = null;
+        int ventasEscritas = 0;
+        while (filas.hasNext()) {
+            FilaExportacion fila = filas.next();
+            if (ventaActual == null || ventaActual != fila.idVenta()) {
+                if (ventaActual != null) {
+                    LineasExportacion.cerrarVenta(json);
+                    if (++ventasEscritas % VENTAS_POR_ENVIO == 0) {
+                        json.flush();
+                    }
+                }
+                ventaActual = fila.idVenta();
+                LineasExportacion.abrirVenta(json, fila);
+            }
+            LineasExportacion.escribirDetalle(json, fila);
+        }
+        if (ventaActual != null) {
+            LineasExportacion.cerrarVenta(json);
+        }
+        json.flush();
+    }
+
+    private void escribirCsv(Iterator<FilaExportacion> filas, OutputStream salida) throws IOException {
+        Writer csv = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        csv.write(LineasExportacion.CABECERA_CSV);
+        csv.write('\n');
+        int filasEscritas = 0;
+        while (filas.hasNext()) {
+            LineasExportacion.escribirCsv(csv, filas.next());
+            if (++filasEscritas % VENTAS_POR_ENVIO == 0) {
+                csv.flush();
+            }
+        }
+        csv.flush();
+    }
+}
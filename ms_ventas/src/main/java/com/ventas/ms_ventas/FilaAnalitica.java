@@ -0,0 +1,16 @@
+package com.ventas.ms_ventas;
+
+import java.math.BigDecimal;
+
+// Totales de un producto o cliente en un período: unidades, ingresos (PRECIO * CANTIDAD),
+// costos (COSTO * CANTIDAD) y ganancia. En el total del período la clave es null.
+public record FilaAnalitica(String clave, long cantidad, BigDecimal ingresos, BigDecimal costos, BigDecimal ganancia) {
+
+    public FilaAnalitica(String clave, long cantidad, BigDecimal ingresos, BigDecimal costos) {
+        this(clave, cantidad, ingresos, costos, ingresos.subtract(costos));
+    }
+
+    public FilaAnalitica sumar(FilaAnalitica otra) {
+        return new FilaAnalitica(clave, cantidad + otra.cantidad, ingresos.add(otra.ingresos), costos.add(otra.costos));
+    }
+}
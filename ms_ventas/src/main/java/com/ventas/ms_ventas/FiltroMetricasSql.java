@@ -0,0 +1,53 @@
+package com.ventas.ms_ventas;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+// Registra por petición HTTP cuántas sentencias SQL se ejecutaron, cuántas filas devolvieron y cuántas
+// entidades se cargaron (ventas.peticion.sentencias, ventas.peticion.filas y ventas.peticion.entidades,
+// con la plantilla de la URI y el método), para detectar consultas N+1 o lecturas de más en
+// producción. Se registra en ConfiguracionMetricas.
+public class FiltroMetricasSql extends OncePerRequestFilter {
+
+    private final MetricasSql metricasSql;
+    private final MeterRegistry meterRegistry;
+
+    public FiltroMetricasSql(MetricasSql metricasSql, MeterRegistry meterRegistry) {
+        this.metricasSql = metricasSql;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        MetricasSql.Contadores contadores = metricasSql.iniciarPeticion();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            metricasSql.terminarPeticion();
+            Object patron = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = patron != null ? patron.toString() : "UNKNOWN";
+            registrar("ventas.peticion.sentencias", "Sentencias SQL por petición", uri, request, contadores.getSentencias());
+            registrar("ventas.peticion.filas", "Filas leídas por petición", uri, request, contadores.getFilas());
+            registrar("ventas.peticion.entidades", "Entidades cargadas por petición", uri, request, contadores.getEntidades());
+        }
+    }
+
+    private void registrar(String nombre, String descripcion, String uri, HttpServletRequest request, int valor) {
+        DistributionSummary.builder(nombre)
+                .description(descripcion)
+                .tag("uri", uri)
+                .tag("method", request.getMethod())
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(valor);
+    }
+}
@@ -0,0 +1,28 @@
+package com.ventas.ms_ventas;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+
+// Filtros opcionales del listado de ventas. El rango de fechas es semiabierto [desde, hasta).
+public record FiltroVentas(String cliente, LocalDate desde, LocalDate hasta) {
+
+    // Condición de la página siguiente a la venta con ID despuesDe (paginación por clave).
+    // Solo se agregan los predicados de los filtros informados, para que cada combinación
+    // genere una consulta simple que pueda usar los índices de CLIENTE, FECHA e ID.
+    public Specification<Venta> especificacion(int despuesDe) {
+        Specification<Venta> especificacion = (venta, query, cb) -> cb.greaterThan(venta.get("id"), despuesDe);
+        if (cliente != null) {
+            especificacion = especificacion.and((venta, query, cb) -> cb.equal(venta.get("cliente"), cliente));
+        }
+        if (desde != null) {
+            especificacion = especificacion.and((venta, query, cb) ->
+                    cb.greaterThanOrEqualTo(venta.get("fecha"), desde.atStartOfDay()));
+        }
+        if (hasta != null) {
+            especificacion = especificacion.and((venta, query, cb) ->
+                    cb.lessThan(venta.get("fecha"), hasta.atStartOfDay()));
+        }
+        return especificacion;
+    }
+}
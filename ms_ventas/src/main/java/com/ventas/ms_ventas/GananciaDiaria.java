@@ -0,0 +1,48 @@
+package com.ventas.ms_ventas;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Acumulado diario de ventas (tabla de resumen). Se mantiene de forma incremental
+// desde VentaService y se puede reconstruir a partir de VENTA/DETALLE_VENTA.
+@Entity
+@Table(name = "GANANCIA_DIARIA")
+public class GananciaDiaria {
+
+    @Id
+    @Column(name = "FECHA")
+    private LocalDate fecha;
+
+    @Column(name = "CANTIDAD_VENTAS", nullable = false)
+    private long cantidadVentas;
+
+    @Column(name = "INGRESOS", nullable = false)
+    private BigDecimal ingresos;
+
+    @Column(name = "COSTOS", nullable = false)
+    private BigDecimal costos;
+
+    @Column(name = "GANANCIA", nullable = false)
+    private BigDecimal ganancia;
+
+    // Constructor sin argumentos, necesario para JPA
+    public GananciaDiaria() {}
+
+    // Constructor con argumentos para crear el acumulado de un día
+    public GananciaDiaria(LocalDate fecha, long cantidadVentas, BigDecimal ingresos, BigDecimal costos) {
+        this.fecha = fecha;
+        this.cantidadVentas = cantidadVentas;
+        this.ingresos = ingresos;
+        this.costos = costos;
+        this.ganancia = ingresos.subtract(costos);
+    }
+
+    // Getters
+    public LocalDate getFecha() { return fecha; }
+    public long getCantidadVentas() { return cantidadVentas; }
+    public BigDecimal getIngresos() { return ingresos; }
+    public BigDecimal getCostos() { return costos; }
+    public BigDecimal getGanancia() { return ganancia; }
+}
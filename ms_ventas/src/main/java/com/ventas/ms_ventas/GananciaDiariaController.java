@@ -0,0 +1,32 @@
+package com.ventas.ms_ventas;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/ventas/ganancias/rollup")
+public class GananciaDiariaController {
+
+    private final GananciaDiariaService gananciaDiariaService;
+
+    public GananciaDiariaController(GananciaDiariaService gananciaDiariaService) {
+        this.gananciaDiariaService = gananciaDiariaService;
+    }
+
+    // Método POST para reconstruir el acumulado diario en [desde, hasta). Retorna los días con ventas.
+    @PostMapping("/reconstruir")
+    public int reconstruir(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+                           @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        return gananciaDiariaService.reconstruir(desde, hasta);
+    }
+
+    // Método GET para comparar el acumulado diario con las ventas en [desde, hasta)
+    @GetMapping("/verificar")
+    public List<DiscrepanciaGanancia> verificar(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+                                                @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        return gananciaDiariaService.verificar(desde, hasta);
+    }
+}
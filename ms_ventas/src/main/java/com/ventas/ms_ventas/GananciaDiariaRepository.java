@@ -0,0 +1,46 @@
+package com.ventas.ms_ventas;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface GananciaDiariaRepository extends JpaRepository<GananciaDiaria, LocalDate> {
+
+    // Suma la ganancia acumulada de los días en el rango semiabierto [desde, hasta)
+    @Query("""
+            SELECT COALESCE(SUM(g.ganancia), 0)
+            FROM GananciaDiaria g
+            WHERE g.fecha >= :desde AND g.fecha < :hasta
+            """)
+    BigDecimal sumarGananciasEntre(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    // Filas de [desde, hasta) como resúmenes (sin entidades administradas)
+    @Query("""
+            SELECT new com.ventas.ms_ventas.ResumenDiario(g.fecha, g.cantidadVentas, g.ingresos, g.costos)
+            FROM GananciaDiaria g
+            WHERE g.fecha >= :desde AND g.fecha < :hasta
+            ORDER BY g.fecha
+            """)
+    List<ResumenDiario> resumirEntre(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    // Inserta la fila de un día (ACTUALIZADA toma su valor por defecto). No deja la entidad en el
+    // contexto de persistencia, así que las lecturas posteriores siempre ven el valor de la base de datos.
+    @Modifying
+    @Query("""
+            INSERT INTO GananciaDiaria (fecha, cantidadVentas, ingresos, costos, ganancia)
+            VALUES (:fecha, :ventas, :ingresos, :costos, :ingresos - :costos)
+            """)
+    int insertar(@Param("fecha") LocalDate fecha, @Param("ventas") long ventas,
+                 @Param("ingresos") BigDecimal ingresos, @Param("costos") BigDecimal costos);
+
+    @Modifying
+    @Query("DELETE FROM GananciaDiaria g WHERE g.fecha >= :desde AND g.fecha < :hasta")
+    int eliminarEntre(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+}
@@ -0,0 +1,223 @@
+package com.ventas.ms_ventas;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// Se crea al arrancar aunque spring.main.lazy-initialization esté activo (perfil produccion), para
+// que la verificación programada quede registrada sin esperar a la primera petición que lo use
+@Service
+@Lazy(false)
+public class GananciaDiariaService {
+
+    private static final Logger log = LoggerFactory.getLogger(GananciaDiariaService.class);
+
+    private final GananciaDiariaRepository gananciaDiariaRepository;
+    private final VentaRepository ventaRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventos;
+    private final int diasVerificados;
+    private final boolean repararDiscrepancias;
+
+    public GananciaDiariaService(GananciaDiariaRepository gananciaDiariaRepository,
+                                 VentaRepository ventaRepository,
+                                 JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 ApplicationEventPublisher eventos,
+                                 @Value("${ventas.rollup.verificacion.dias:7}") int diasVerificados,
+                                 @Value("${ventas.rollup.verificacion.reparar:false}") boolean repararDiscrepancias) {
+        this.gananciaDiariaRepository = gananciaDiariaRepository;
+        this.ventaRepository = ventaRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventos = eventos;
+        this.diasVerificados = diasVerificados;
+        this.repararDiscrepancias = repararDiscrepancias;
+    }
+
+    // --- MANTENIMIENTO INCREMENTAL ---
+
+    // Aplica la diferencia entre la foto anterior y la nueva de una venta. Una venta nueva
+    // no tiene foto anterior y una venta eliminada no tiene foto nueva.
+    @Transactional
+    public void aplicar(ContribucionVenta anterior, ContribucionVenta nueva) {
+        if (anterior != null && nueva != null && anterior.fecha().equals(nueva.fecha())) {
+            // Misma fecha: una sola actualización con la diferencia de importes
+            acumular(nueva.fecha(), 0,
+                    nueva.ingresos().subtract(anterior.ingresos()),
+                    nueva.costos().subtract(anterior.costos()));
+            return;
+        }
+        if (anterior != null) {
+            acumular(anterior.fecha(), -1, anterior.ingresos().negate(), anterior.costos().negate());
+        }
+        if (nueva != null) {
+            acumular(nueva.fecha(), 1, nueva.ingresos(), nueva.costos());
+        }
+    }
+
+    // Suma un conjunto de ventas nuevas (importación por lotes) con una actualización por día
+    @Transactional
+    public void aplicarNuevas(List<ContribucionVenta> nuevas) {
+        Map<LocalDate, ResumenDiario> porDia = new TreeMap<>();
+        for (ContribucionVenta nueva : nuevas) {
+            porDia.merge(nueva.fecha(), new ResumenDiario(nueva.fecha(), 1, nueva.ingresos(), nueva.costos()),
+                    (a, b) -> new ResumenDiario(a.fecha(), a.cantidadVentas() + b.cantidadVentas(),
+                            a.ingresos().add(b.ingresos()), a.costos().add(b.costos())));
+        }
+        for (ResumenDiario resumen : porDia.values()) {
+            acumular(resumen.fecha(), resumen.cantidadVentas(), resumen.ingresos(), resumen.costos());
+        }
+    }
+
+    // Cada día modificado publica GananciasModificadas, que CacheGanancias procesa al confirmar,
+    // y la diferencia aplicada (AcumuladoModificado) para TotalesEnCurso
+    private void acumular(LocalDate fecha, long ventas, BigDecimal ingresos, BigDecimal costos) {
+        eventos.publishEvent(GananciasModificadas.delDia(fecha));
+        eventos.publishEvent(new AcumuladoModificado(fecha, ventas, ingresos, costos));
+        int actualizadas = sumarAlDia(fecha, ventas, ingresos, costos);
+        if (actualizadas == 0 && !crearDia(fecha, ventas, ingresos, costos)) {
+            // Otra transacción creó la fila entre el UPDATE y el INSERT: ahora sí hay fila que sumar
+            actualizadas = sumarAlDia(fecha, ventas, ingresos, costos);
+            if (actualizadas == 0) {
+                throw new IllegalStateException("No se encontró ni se pudo crear GANANCIA_DIARIA del " + fecha);
+            }
+        }
+    }
+
+    // Suma las diferencias directamente en la fila del día, sin leerla antes, para que dos escrituras
+    // concurrentes sobre el mismo día no se pisen. ACTUALIZADA toma la hora de la base de datos, como
+    // su valor por defecto en el INSERT, para que las demás instancias invaliden el día (AvisoGanancias).
+    // Va por JDBC como crearDia porque SYSTIMESTAMP no se puede escribir en JPQL.
+    private int sumarAlDia(LocalDate fecha, long ventas, BigDecimal ingresos, BigDecimal costos) {
+        return jdbcTemplate.update("""
+                UPDATE GANANCIA_DIARIA
+                SET CANTIDAD_VENTAS = CANTIDAD_VENTAS + ?,
+                    INGRESOS = INGRESOS + ?,
+                    COSTOS = COSTOS + ?,
+                    GANANCIA = GANANCIA + ?,
+                    ACTUALIZADA = SYSTIMESTAMP
+                WHERE FECHA = ?
+                """, ventas, ingresos, costos, ingresos.subtract(costos), fecha);
+    }
+
+    // Primera venta del día: crea la fila con la diferencia como valor inicial. Retorna false si la
+    // fila ya existe porque dos primeras ventas del mismo día llegaron a la vez; Oracle deshace solo
+    // la sentencia fallida y la transacción sigue. El INSERT va por JDBC y no por el repositorio
+    // porque una excepción de JPA marcaría la transacción para deshacerse. Un MERGE no alcanza: en
+    // Oracle dos MERGE concurrentes pueden no ver la fila e insertar los dos.
+    private boolean crearDia(LocalDate fecha, long ventas, BigDecimal ingresos, BigDecimal costos) {
+        try {
+            jdbcTemplate.update("INSERT INTO GANANCIA_DIARIA (FECHA, CANTIDAD_VENTAS, INGRESOS, COSTOS, GANANCIA) "
+                    + "VALUES (?, ?, ?, ?, ?)", fecha, ventas, ingresos, costos, ingresos.subtract(costos));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    // --- CONSULTAS ---
+
+    @Transactional(readOnly = true)
+    public BigDecimal sumarGananciasEntre(LocalDate desde, LocalDate hasta) {
+        return gananciaDiariaRepository.sumarGananciasEntre(desde, hasta);
+    }
+
+    // --- RECONSTRUCCIÓN Y VERIFICACIÓN ---
+
+    // Recalcula GANANCIA_DIARIA para [desde, hasta) a partir de VENTA/DETALLE_VENTA.
+    // Se procesa un mes por transacción para no mantener bloqueos largos en rangos grandes.
+    // Retorna la cantidad de días con ventas que quedaron registrados.
+    public int reconstruir(LocalDate desde, LocalDate hasta) {
+        int dias = 0;
+        for (LocalDate inicio = desde; inicio.isBefore(hasta); ) {
+            LocalDate fin = min(inicio.withDayOfMonth(1).plusMonths(1), hasta);
+            LocalDate inicioTramo = inicio;
+            dias += transactionTemplate.execute(status -> reconstruirTramo(inicioTramo, fin));
+            inicio = fin;
+        }
+        log.info("GANANCIA_DIARIA reconstruida entre {} y {}: {} días con ventas", desde, hasta, dias);
+        return dias;
+    }
+
+    private int reconstruirTramo(LocalDate desde, LocalDate hasta) {
+        eventos.publishEvent(new GananciasModificadas(desde, hasta));
+        gananciaDiariaRepository.eliminarEntre(desde, hasta);
+        List<ResumenDiario> resumenes = ventaRepository.resumirPorDia(desde.atStartOfDay(), hasta.atStartOfDay());
+        for (ResumenDiario resumen : resumenes) {
+            gananciaDiariaRepository.insertar(resumen.fecha(), resumen.cantidadVentas(),
+                    resumen.ingresos(), resumen.costos());
+        }
+        return resumenes.size();
+    }
+
+    // Compara GANANCIA_DIARIA con los totales calculados desde VENTA/DETALLE_VENTA en [desde, hasta)
+    @Transactional(readOnly = true)
+    public List<DiscrepanciaGanancia> verificar(LocalDate desde, LocalDate hasta) {
+        Map<LocalDate, ResumenDiario> esperados = new TreeMap<>();
+        for (ResumenDiario resumen : ventaRepository.resumirPorDia(desde.atStartOfDay(), hasta.atStartOfDay())) {
+            esperados.put(resumen.fecha(), resumen);
+        }
+        Map<LocalDate, ResumenDiario> registrados = new TreeMap<>();
+        for (ResumenDiario resumen : gananciaDiariaRepository.resumirEntre(desde, hasta)) {
+            registrados.put(resumen.fecha(), resumen);
+        }
+
+        TreeSet<LocalDate> fechas = new TreeSet<>(esperados.keySet());
+        fechas.addAll(registrados.keySet());
+        List<DiscrepanciaGanancia> discrepancias = new ArrayList<>();
+        for (LocalDate fecha : fechas) {
+            ResumenDiario esperado = esperados.get(fecha);
+            ResumenDiario registrado = registrados.get(fecha);
+            // Un día sin ventas registrado en cero no es una discrepancia
+            boolean vacio = esperado == null && registrado.cantidadVentas() == 0
+                    && registrado.ingresos().signum() == 0 && registrado.costos().signum() == 0;
+            if (!vacio && (esperado == null || !esperado.coincideCon(registrado))) {
+                discrepancias.add(new DiscrepanciaGanancia(fecha, esperado, registrado));
+            }
+        }
+        return discrepancias;
+    }
+
+    // Verificación periódica de los últimos días. Deshabilitada salvo que se configure
+    // ventas.rollup.verificacion.cron; con ventas.rollup.verificacion.reparar=true
+    // reconstruye los días con diferencias.
+    @Scheduled(cron = "${ventas.rollup.verificacion.cron:-}")
+    public void verificarUltimosDias() {
+        LocalDate hasta = LocalDate.now().plusDays(1);
+        LocalDate desde = hasta.minusDays(diasVerificados);
+        List<DiscrepanciaGanancia> discrepancias = verificar(desde, hasta);
+        if (discrepancias.isEmpty()) {
+            return;
+        }
+        log.warn("GANANCIA_DIARIA tiene {} días con diferencias entre {} y {}: {}",
+                discrepancias.size(), desde, hasta, discrepancias);
+        if (repararDiscrepancias) {
+            for (DiscrepanciaGanancia discrepancia : discrepancias) {
+                reconstruir(discrepancia.fecha(), discrepancia.fecha().plusDays(1));
+            }
+        }
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
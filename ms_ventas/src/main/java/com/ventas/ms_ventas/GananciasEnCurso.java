@@ -0,0 +1,112 @@
+package com.ventas.ms_ventas;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Cálculos de ganancias en curso, para que las consultas idénticas simultáneas (por ejemplo las de
+// un tablero que muchos clientes refrescan a la vez) compartan un solo cálculo: la primera lo hace
+// y las que llegan mientras tanto esperan su resultado, o su error, en lugar de repetirlo. Se aplica
+// antes de CacheGanancias, así que también cubre los rangos, que no pasan por la caché, y el
+// recálculo de un período abierto cuando vence. Publica ventas.ganancias.consultas por granularidad
+// (DIARIA, MENSUAL, ANUAL o RANGO) y resultado (calculada o compartida).
+@Component
+public class GananciasEnCurso {
+
+    private static final String RANGO = "RANGO";
+
+    private final Map<Consulta, CompletableFuture<BigDecimal>> enCurso = new ConcurrentHashMap<>();
+    private final DesalojoDiferido desalojoDiferido;
+    private final Map<String, Counter> calculadas = new HashMap<>();
+    private final Map<String, Counter> compartidas = new HashMap<>();
+
+    public GananciasEnCurso(MeterRegistry meterRegistry, DesalojoDiferido desalojoDiferido) {
+        this.desalojoDiferido = desalojoDiferido;
+        for (ClaveGanancia.Granularidad granularidad : ClaveGanancia.Granularidad.values()) {
+            registrar(meterRegistry, granularidad.name());
+        }
+        registrar(meterRegistry, RANGO);
+    }
+
+    private void registrar(MeterRegistry meterRegistry, String granularidad) {
+        calculadas.put(granularidad, meterRegistry.counter("ventas.ganancias.consultas",
+                "granularidad", granularidad, "resultado", "calculada"));
+        compartidas.put(granularidad, meterRegistry.counter("ventas.ganancias.consultas",
+                "granularidad", granularidad, "resultado", "compartida"));
+    }
+
+    // Una consulta: la granularidad y el rango [desde, hasta) que suma
+    private record Consulta(String granularidad, LocalDate desde, LocalDate hasta) {}
+
+    public BigDecimal compartir(ClaveGanancia periodo, Supplier<BigDecimal> calculo) {
+        return compartir(new Consulta(periodo.granularidad().name(), periodo.inicio(), periodo.fin()), calculo);
+    }
+
+    public BigDecimal compartirRango(LocalDate desde, LocalDate hasta, Supplier<BigDecimal> calculo) {
+        return compartir(new Consulta(RANGO, desde, hasta), calculo);
+    }
+
+    // Dentro de una transacción de escritura se calcula aparte, como en CacheGanancias, porque la
+    // transacción puede ver sus propios cambios todavía no confirmados
+    private BigDecimal compartir(Consulta consulta, Supplier<BigDecimal> calculo) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return calculo.get();
+        }
+        CompletableFuture<BigDecimal> propio = new CompletableFuture<>();
+        CompletableFuture<BigDecimal> existente = enCurso.putIfAbsent(consulta, propio);
+        if (existente != null) {
+            compartidas.get(consulta.granularidad()).increment();
+            return esperar(existente);
+        }
+        calculadas.get(consulta.granularidad()).increment();
+        try {
+            BigDecimal resultado = calculo.get();
+            propio.complete(resultado);
+            return resultado;
+        } catch (RuntimeException | Error e) {
+            propio.completeExceptionally(e);
+            throw e;
+        } finally {
+            enCurso.remove(consulta, propio);
+        }
+    }
+
+    // Las que esperan reciben la misma excepción que el cálculo, sin envolver
+    private static BigDecimal esperar(CompletableFuture<BigDecimal> calculo) {
+        try {
+            return calculo.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (e.getCause() instanceof Error causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+
+    // Un cálculo que empezó antes de confirmarse una escritura de sus días puede no verla, así que
+    // deja de compartirse: las consultas que llegan después calculan de nuevo. Las que ya esperaban
+    // reciben ese resultado, igual que si hubieran calculado antes de la escritura. Con réplica de
+    // lectura se repite más tarde (ver DesalojoDiferido).
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarGanancias(GananciasModificadas evento) {
+        Runnable olvidar = () -> enCurso.keySet().removeIf(consulta ->
+                consulta.desde().isBefore(evento.hasta()) && evento.desde().isBefore(consulta.hasta()));
+        olvidar.run();
+        desalojoDiferido.repetir(olvidar);
+    }
+}
@@ -0,0 +1,11 @@
+package com.ventas.ms_ventas;
+
+import java.time.LocalDate;
+
+// Evento publicado por GananciaDiariaService cuando cambian las ventas de los días [desde, hasta)
+public record GananciasModificadas(LocalDate desde, LocalDate hasta) {
+
+    public static GananciasModificadas delDia(LocalDate fecha) {
+        return new GananciasModificadas(fecha, fecha.plusDays(1));
+    }
+}
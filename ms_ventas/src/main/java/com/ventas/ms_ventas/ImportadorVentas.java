@@ -0,0 +1,136 @@
+package com.ventas.ms_ventas;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+// Importación masiva de ventas. El cuerpo (arreglo JSON o NDJSON) se lee venta a venta y se
+// guarda en lotes, cada uno en su propia transacción, con los INSERT agrupados en lotes JDBC
+// (hibernate.jdbc.batch_size) gracias a los IDs de secuencia de Venta y DetalleVenta.
+@Service
+public class ImportadorVentas {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportadorVentas.class);
+
+    private final VentaRepository ventaRepository;
+    private final GananciaDiariaService gananciaDiariaService;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventos;
+    private final int tamanioLote;
+
+    public ImportadorVentas(VentaRepository ventaRepository, GananciaDiariaService gananciaDiariaService,
+                            EntityManager entityManager, ObjectMapper objectMapper,
+                            PlatformTransactionManager transactionManager, ApplicationEventPublisher eventos,
+                            @Value("${ventas.importacion.tamanio-lote:500}") int tamanioLote) {
+        this.ventaRepository = ventaRepository;
+        this.gananciaDiariaService = gananciaDiariaService;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventos = eventos;
+        this.tamanioLote = tamanioLote;
+    }
+
+    // Lee un arreglo JSON de ventas o una venta JSON por línea. Si el cuerpo deja de ser JSON
+    // válido se detiene la lectura: lo ya leído se guarda y el error se informa en esa posición.
+    public ResultadoImportacion importar(InputStream cuerpo) throws IOException {
+        List<ErrorImportacion> errores = new ArrayList<>();
+        List<Venta> lote = new ArrayList<>(tamanioLote);
+        List<Integer> indices = new ArrayList<>(tamanioLote);
+        int recibidas = 0;
+        int guardadas = 0;
+
+        try (MappingIterator<Venta> ventas = objectMapper.readerFor(Venta.class).readValues(cuerpo)) {
+            while (true) {
+                Venta venta;
+                try {
+                    if (!ventas.hasNextValue()) {
+                        break;
+                    }
+                    venta = ventas.nextValue();
+                } catch (JsonProcessingException e) {
+                    errores.add(new ErrorImportacion(recibidas, "JSON inválido: " + e.getOriginalMessage()));
+                    break;
+                }
+                int indice = recibidas++;
+                String error = ValidacionVenta.validar(venta);
+                if (error != null) {
+                    errores.add(new ErrorImportacion(indice, error));
+                    continue;
+                }
+                lote.add(venta);
+                indices.add(indice);
+                if (lote.size() == tamanioLote) {
+                    guardadas += guardarLote(lote, indices, errores);
+                    lote.clear();
+                    indices.clear();
+                }
+            }
+        }
+        if (!lote.isEmpty()) {
+            guardadas += guardarLote(lote, indices, errores);
+        }
+        errores.sort((a, b) -> Integer.compare(a.indice(), b.indice()));
+        log.info("Importación de ventas: {} recibidas, {} guardadas, {} rechazadas", recibidas, guardadas, errores.size());
+        return new ResultadoImportacion(recibidas, guardadas, errores);
+    }
+
+    // Guarda el lote completo en una transacción. Si falla (por ejemplo una restricción de la
+    // base de datos), se reintenta venta por venta para aislar las que fallan y guardar el resto.
+    private int guardarLote(List<Venta> lote, List<Integer> indices, List<ErrorImportacion> errores) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> persistir(lote));
+            return lote.size();
+        } catch (RuntimeException e) {
+            log.warn("Falló el lote de {} ventas desde la posición {}, se guardan una por una: {}",
+                    lote.size(), indices.get(0), e.getMessage());
+        }
+        int guardadas = 0;
+        for (int i = 0; i < lote.size(); i++) {
+            Venta venta = lote.get(i);
+            // La venta pudo quedar con un ID asignado en el intento anterior
+            venta.setId(0);
+            venta.getDetalles().forEach(detalle -> detalle.setId(0));
+            try {
+                transactionTemplate.executeWithoutResult(status -> persistir(List.of(venta)));
+                guardadas++;
+            } catch (RuntimeException e) {
+                errores.add(new ErrorImportacion(indices.get(i), e.getMessage()));
+            }
+        }
+        return guardadas;
+    }
+
+    private void persistir(List<Venta> ventas) {
+        List<ContribucionVenta> contribuciones = new ArrayList<>(ventas.size());
+        List<MovimientoDetalle> lineas = new ArrayList<>();
+        for (Venta venta : ventas) {
+            // Toda venta importada es nueva, aunque traiga una versión o haya quedado con una asignada
+            // en un intento anterior: con versión Spring Data la trataría como existente
+            venta.setVersion(null);
+            ventaRepository.save(venta);
+            contribuciones.add(ContribucionVenta.de(venta));
+            lineas.addAll(MovimientoDetalle.de(venta));
+        }
+        gananciaDiariaService.aplicarNuevas(contribuciones);
+        eventos.publishEvent(new DetallesModificados(lineas));
+        // Se escriben los INSERT pendientes y se liberan las entidades del lote
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
@@ -0,0 +1,75 @@
+package com.ventas.ms_ventas;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+
+// Mide el retraso de la réplica de lectura con un latido: cada ventas.replica.latido escribe la hora
+// en LATIDO_REPLICA del primario y lee la que ya llegó a la réplica. El retraso medido incluye hasta
+// un intervalo de latido. Mientras supere ventas.replica.retraso-maximo, o la réplica no responda, las
+// lecturas van al primario (ver EnrutadorLecturas). Publica ventas.replica.retraso en segundos.
+public class LatidoReplica {
+
+    private static final Logger log = LoggerFactory.getLogger(LatidoReplica.class);
+
+    private final JdbcTemplate primario;
+    private final JdbcTemplate replica;
+    private final Duration retrasoMaximo;
+    // Hasta la primera medición la réplica no se usa
+    private volatile Duration retraso;
+    private volatile boolean alDia;
+
+    public LatidoReplica(DataSource primario, DataSource replica, Duration retrasoMaximo, MeterRegistry meterRegistry) {
+        this.primario = new JdbcTemplate(primario);
+        this.replica = new JdbcTemplate(replica);
+        this.retrasoMaximo = retrasoMaximo;
+        Gauge.builder("ventas.replica.retraso", this, latido -> latido.retraso == null ? Double.NaN : latido.retraso.toMillis() / 1000.0)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${ventas.replica.latido:1s}")
+    public void medir() {
+        Instant ahora = Instant.now();
+        try {
+            Timestamp instante = Timestamp.from(ahora);
+            if (primario.update("UPDATE LATIDO_REPLICA SET INSTANTE = ? WHERE ID = 1", instante) == 0) {
+                primario.update("INSERT INTO LATIDO_REPLICA (ID, INSTANTE) VALUES (1, ?)", instante);
+            }
+        } catch (DataAccessException e) {
+            // Otra instancia insertó la fila a la vez o el primario no responde; se mide igual
+            log.warn("No se pudo escribir el latido en el primario: {}", e.getMessage());
+        }
+        try {
+            Timestamp recibido = replica.query("SELECT INSTANTE FROM LATIDO_REPLICA WHERE ID = 1",
+                    filas -> filas.next() ? filas.getTimestamp(1) : null);
+            retraso = recibido == null ? null : Duration.between(recibido.toInstant(), ahora);
+        } catch (DataAccessException e) {
+            log.warn("No se pudo leer el latido de la réplica: {}", e.getMessage());
+            retraso = null;
+        }
+        boolean anterior = alDia;
+        alDia = retraso != null && retraso.compareTo(retrasoMaximo) <= 0;
+        if (anterior != alDia) {
+            log.info(alDia ? "Las lecturas vuelven a la réplica (retraso {})"
+                    : "Las lecturas pasan al primario (retraso {})", retraso);
+        }
+    }
+
+    public boolean alDia() {
+        return alDia;
+    }
+
+    public Duration retraso() {
+        return retraso;
+    }
+}
@@ -0,0 +1,47 @@
+package com.ventas.ms_ventas;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+// Lecturas de ventas como VentaVista. Primero se buscan los IDs (la consulta del filtro solo lee
+// VENTA y puede resolverse con los índices de CLIENTE o FECHA con ID) y después las ventas con sus
+// detalles en una consulta de proyección (LEFT JOIN). No se cargan entidades en el contexto de
+// persistencia, así que tampoco hay proxies ni copias para comparar al hacer flush.
+@Repository
+public class LecturaVentas {
+
+    private final EntityManager entityManager;
+    private final VentaRepository ventaRepository;
+
+    public LecturaVentas(EntityManager entityManager, VentaRepository ventaRepository) {
+        this.entityManager = entityManager;
+        this.ventaRepository = ventaRepository;
+    }
+
+    // IDs de las ventas del filtro posteriores a despuesDe, en orden, como máximo limite
+    public List<Integer> buscarIds(FiltroVentas filtro, int despuesDe, int limite) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Integer> consulta = cb.createQuery(Integer.class);
+        Root<Venta> venta = consulta.from(Venta.class);
+        consulta.select(venta.get("id"))
+                .where(filtro.especificacion(despuesDe).toPredicate(venta, consulta, cb))
+                .orderBy(cb.asc(venta.get("id")));
+        return entityManager.createQuery(consulta).setMaxResults(limite).getResultList();
+    }
+
+    // Las ventas con esos IDs ordenadas por ID. Los IDs inexistentes se omiten.
+    public List<VentaVista> leer(Collection<Integer> ids) {
+        return ids.isEmpty() ? List.of() : VentaVista.agrupar(ventaRepository.leerFilas(ids));
+    }
+
+    public Optional<VentaVista> leer(int id) {
+        return leer(List.of(id)).stream().findFirst();
+    }
+}
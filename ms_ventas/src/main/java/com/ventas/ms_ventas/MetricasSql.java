@@ -0,0 +1,95 @@
+package com.ventas.ms_ventas;
+
+import org.hibernate.Interceptor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.internal.StatisticsImpl;
+import org.hibernate.stat.spi.StatisticsFactory;
+import org.hibernate.stat.spi.StatisticsImplementor;
+import org.hibernate.type.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cuenta las sentencias SQL, las filas leídas y las entidades que carga Hibernate en la petición en
+// curso (ver FiltroMetricasSql) y registra en el log una de cada ventas.sql.muestreo sentencias. Las
+// consultas lentas las registra Hibernate (hibernate.log_slow_query, logger org.hibernate.SQL_SLOW).
+// Las filas son las que devuelve cada consulta de Hibernate, proyecciones incluidas, y se toman de
+// sus estadísticas (hibernate.stats.factory), así que requieren hibernate.generate_statistics=true.
+// Las consultas con JdbcTemplate (importación, exportación, AvisoGanancias) no pasan por Hibernate.
+// Solo cuenta lo que se ejecuta en el hilo de la petición: la exportación, que escribe en un hilo
+// asíncrono, no se incluye.
+@Component
+public class MetricasSql implements StatementInspector, Interceptor, StatisticsFactory {
+
+    private static final Logger log = LoggerFactory.getLogger(MetricasSql.class);
+
+    private final ThreadLocal<Contadores> peticionActual = new ThreadLocal<>();
+    private final AtomicLong sentencias = new AtomicLong();
+    private final int muestreo;
+
+    public MetricasSql(@Value("${ventas.sql.muestreo:0}") int muestreo) {
+        this.muestreo = muestreo;
+    }
+
+    // Contadores de una petición, usados desde un solo hilo
+    public static final class Contadores {
+        private int sentencias;
+        private int filas;
+        private int entidades;
+
+        public int getSentencias() { return sentencias; }
+        public int getFilas() { return filas; }
+        public int getEntidades() { return entidades; }
+    }
+
+    public Contadores iniciarPeticion() {
+        Contadores contadores = new Contadores();
+        peticionActual.set(contadores);
+        return contadores;
+    }
+
+    public void terminarPeticion() {
+        peticionActual.remove();
+    }
+
+    @Override
+    public String inspect(String sql) {
+        Contadores contadores = peticionActual.get();
+        if (contadores != null) {
+            contadores.sentencias++;
+        }
+        if (muestreo > 0 && sentencias.incrementAndGet() % muestreo == 0) {
+            log.info("SQL (1 de cada {}): {}", muestreo, sql);
+        }
+        return sql;
+    }
+
+    @Override
+    public boolean onLoad(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+        Contadores contadores = peticionActual.get();
+        if (contadores != null) {
+            contadores.entidades++;
+        }
+        return false;
+    }
+
+    // Estadísticas de Hibernate que además suman a la petición las filas de cada consulta ejecutada
+    // (-1 cuando el resultado no es una lista, como en scroll o stream)
+    @Override
+    public StatisticsImplementor buildStatistics(SessionFactoryImplementor sessionFactory) {
+        return new StatisticsImpl(sessionFactory) {
+            @Override
+            public void queryExecuted(String hql, int rows, long time) {
+                super.queryExecuted(hql, rows, time);
+                Contadores contadores = peticionActual.get();
+                if (contadores != null && rows > 0) {
+                    contadores.filas += rows;
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package com.ventas.ms_ventas;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Línea de venta tal como la guarda AlmacenColumnar: día, producto, cantidad e importes unitarios
+// en centavos. La versión anterior de una línea modificada o eliminada se registra con la cantidad
+// negada, así que la suma de todos los movimientos da el estado vigente.
+public record MovimientoDetalle(LocalDate fecha, String producto, int cantidad, long precioCentavos, long costoCentavos) {
+
+    public static MovimientoDetalle de(LocalDate fecha, DetalleVenta detalle) {
+        return new MovimientoDetalle(fecha, detalle.getProducto(), detalle.getCantidad(),
+                Dinero.aCentavos(detalle.getPrecio()), Dinero.aCentavos(detalle.getCosto()));
+    }
+
+    public static List<MovimientoDetalle> de(Venta venta) {
+        if (venta.getDetalles() == null || venta.getDetalles().isEmpty()) {
+            return List.of();
+        }
+        LocalDate fecha = venta.getFecha().toLocalDate();
+        List<MovimientoDetalle> movimientos = new ArrayList<>(venta.getDetalles().size());
+        for (DetalleVenta detalle : venta.getDetalles()) {
+            movimientos.add(de(fecha, detalle));
+        }
+        return movimientos;
+    }
+
+    public MovimientoDetalle negado() {
+        return new MovimientoDetalle(fecha, producto, -cantidad, precioCentavos, costoCentavos);
+    }
+}
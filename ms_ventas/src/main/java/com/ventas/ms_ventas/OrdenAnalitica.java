@@ -0,0 +1,27 @@
+package com.ventas.ms_ventas;
+
+import java.util.Comparator;
+
+// Criterio con el que se eligen los primeros N productos o clientes de cada período
+public enum OrdenAnalitica {
+
+    INGRESOS(Comparator.comparing(FilaAnalitica::ingresos), "SUM(d.precio * d.cantidad)"),
+    GANANCIA(Comparator.comparing(FilaAnalitica::ganancia), "SUM(d.precio * d.cantidad) - SUM(d.costo * d.cantidad)"),
+    CANTIDAD(Comparator.comparingLong(FilaAnalitica::cantidad), "SUM(d.cantidad)");
+
+    private final Comparator<FilaAnalitica> comparador;
+    // El mismo criterio en JPQL sobre DetalleVenta d, para ordenar en la base de datos
+    private final String expresion;
+
+    OrdenAnalitica(Comparator<FilaAnalitica> comparador, String expresion) {
+        this.comparador = comparador;
+        this.expresion = expresion;
+    }
+
+    public String getExpresion() { return expresion; }
+
+    // De mayor a menor; los empates se ordenan por clave para que el resultado sea estable
+    public Comparator<FilaAnalitica> descendente() {
+        return comparador.reversed().thenComparing(FilaAnalitica::clave, Comparator.nullsFirst(Comparator.naturalOrder()));
+    }
+}
@@ -0,0 +1,8 @@
+package com.ventas.ms_ventas;
+
+import java.util.List;
+
+// Una página del listado de ventas. siguienteCursor es el ID de la última venta de la
+// página, o null si no hay más resultados.
+public record PaginaVentas(List<VentaVista> ventas, Integer siguienteCursor) {
+}
@@ -0,0 +1,9 @@
+package com.ventas.ms_ventas;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Un período del resultado de GET /ventas/analitica: el total de todas las ventas del período,
+// cuántos productos o clientes distintos tuvo y los primeros N según el orden pedido
+public record PeriodoAnalitica(LocalDate inicio, FilaAnalitica total, int distintos, List<FilaAnalitica> primeros) {
+}
@@ -0,0 +1,21 @@
+package com.ventas.ms_ventas;
+
+// Estado de una venta registrada con escritura diferida (GET /ventas/diario/{id}). error solo se
+// informa en las rechazadas.
+public record PersistenciaVenta(int id, Estado estado, String error) {
+
+    public PersistenciaVenta(int id, Estado estado) {
+        this(id, estado, null);
+    }
+
+    public enum Estado {
+        // En el diario local, todavía no en la base de datos
+        PENDIENTE,
+        // En la base de datos
+        PERSISTIDA,
+        // Rechazada por la base de datos; no se reintenta (ver rechazadas.log en el directorio del diario)
+        RECHAZADA,
+        // Ni pendiente ni en la base de datos
+        DESCONOCIDA
+    }
+}
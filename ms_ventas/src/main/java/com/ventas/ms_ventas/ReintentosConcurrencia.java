@@ -0,0 +1,81 @@
+package com.ventas.ms_ventas;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Ejecuta una escritura en su propia transacción y la repite cuando choca con otra escritura
+// concurrente (ConcurrencyFailureException: la versión de la venta cambió, no se obtuvo un bloqueo
+// o hubo un interbloqueo). Cada intento vuelve a leer los datos, así que se aplica sobre lo que
+// confirmó la otra escritura en lugar de sobrescribirlo. Entre intentos se espera espera-inicial,
+// el doble, el cuádruple, etc., la mitad de cada espera al azar para que las escrituras que
+// chocaron no vuelvan a coincidir. Publica ventas.concurrencia.conflictos por resultado.
+@Component
+public class ReintentosConcurrencia {
+
+    private static final Logger log = LoggerFactory.getLogger(ReintentosConcurrencia.class);
+
+    private final TransactionTemplate transactionTemplate;
+    private final int intentos;
+    private final long esperaInicialNanos;
+    private final Counter reintentados;
+    private final Counter rechazados;
+
+    public ReintentosConcurrencia(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                                  @Value("${ventas.concurrencia.intentos:4}") int intentos,
+                                  @Value("${ventas.concurrencia.espera-inicial:20ms}") Duration esperaInicial) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.intentos = Math.max(1, intentos);
+        this.esperaInicialNanos = esperaInicial.toNanos();
+        this.reintentados = meterRegistry.counter("ventas.concurrencia.conflictos", "resultado", "reintentado");
+        this.rechazados = meterRegistry.counter("ventas.concurrencia.conflictos", "resultado", "rechazado");
+    }
+
+    // Dentro de una transacción ya abierta la operación se une a ella y no se reintenta: después
+    // del fallo esa transacción solo puede revertirse. VersionObsoletaException tampoco se
+    // reintenta porque la versión la envió el cliente. Agotados los intentos se lanza el último error.
+    public <T> T enTransaccion(Supplier<T> operacion) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return operacion.get();
+        }
+        for (int intento = 1; ; intento++) {
+            try {
+                return transactionTemplate.execute(estado -> operacion.get());
+            } catch (VersionObsoletaException e) {
+                rechazados.increment();
+                throw e;
+            } catch (ConcurrencyFailureException e) {
+                if (intento >= intentos) {
+                    rechazados.increment();
+                    log.warn("Escritura rechazada después de {} intentos por escrituras concurrentes: {}",
+                            intento, e.getMessage());
+                    throw e;
+                }
+                reintentados.increment();
+                esperar(intento, e);
+            }
+        }
+    }
+
+    private void esperar(int intento, ConcurrencyFailureException causa) {
+        long espera = esperaInicialNanos << Math.min(intento - 1, 20);
+        try {
+            TimeUnit.NANOSECONDS.sleep(espera / 2 + ThreadLocalRandom.current().nextLong(espera / 2 + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw causa;
+        }
+    }
+}
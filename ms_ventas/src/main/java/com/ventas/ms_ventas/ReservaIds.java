@@ -0,0 +1,31 @@
+package com.ventas.ms_ventas;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// IDs tomados de una secuencia de Oracle en bloques, igual que el optimizador pooled de Hibernate:
+// cada NEXTVAL es el último ID de un bloque de INCREMENTO IDs (INCREMENT BY 50 en la migración V2
+// y allocationSize = 50 en Venta y DetalleVenta), así que los bloques de Hibernate y los de aquí
+// nunca se superponen.
+final class ReservaIds {
+
+    static final int INCREMENTO = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String consulta;
+    private long siguiente;
+    private long ultimo = -1;
+
+    ReservaIds(JdbcTemplate jdbcTemplate, String secuencia) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.consulta = "SELECT " + secuencia + ".NEXTVAL FROM DUAL";
+    }
+
+    synchronized int siguiente() {
+        if (siguiente > ultimo) {
+            ultimo = jdbcTemplate.queryForObject(consulta, Long.class);
+            // El primer valor de la secuencia (1) deja un bloque de un solo ID
+            siguiente = Math.max(1, ultimo - INCREMENTO + 1);
+        }
+        return Math.toIntExact(siguiente++);
+    }
+}
@@ -0,0 +1,7 @@
+package com.ventas.ms_ventas;
+
+import java.util.List;
+
+// Resumen de una importación por lotes: ventas leídas, ventas guardadas y rechazos por venta
+public record ResultadoImportacion(int recibidas, int guardadas, List<ErrorImportacion> errores) {
+}
@@ -0,0 +1,25 @@
+package com.ventas.ms_ventas;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Totales de un día: cantidad de ventas, ingresos (PRECIO * CANTIDAD) y costos (COSTO * CANTIDAD).
+public record ResumenDiario(LocalDate fecha, long cantidadVentas, BigDecimal ingresos, BigDecimal costos) {
+
+    // Constructor usado por la consulta agrupada por año, mes y día de VentaRepository
+    public ResumenDiario(int anio, int mes, int dia, long cantidadVentas, BigDecimal ingresos, BigDecimal costos) {
+        this(LocalDate.of(anio, mes, dia), cantidadVentas, ingresos, costos);
+    }
+
+    public BigDecimal ganancia() {
+        return ingresos.subtract(costos);
+    }
+
+    // Dos resúmenes coinciden si tienen las mismas cantidades, sin importar la escala de los importes
+    public boolean coincideCon(ResumenDiario otro) {
+        return otro != null
+                && cantidadVentas == otro.cantidadVentas
+                && ingresos.compareTo(otro.ingresos) == 0
+                && costos.compareTo(otro.costos) == 0;
+    }
+}
@@ -0,0 +1,73 @@
+package com.ventas.ms_ventas;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Totales por día de las escrituras que confirmó esta instancia desde que arrancó: cantidad de
+// ventas, ingresos y costos en centavos. Se suman al confirmarse cada transacción
+// (AcumuladoModificado), así que una escritura revertida o reintentada no cuenta. Cada total es un
+// LongAdder: las escrituras concurrentes suman en celdas distintas en lugar de competir por un
+// mismo valor, y la lectura suma las celdas. Como AlmacenColumnar, solo ve las escrituras de esta
+// instancia; el acumulado completo está en GANANCIA_DIARIA. Se conservan los últimos
+// ventas.totales.dias días y los de hoy se publican como ventas.hoy.cantidad y ventas.hoy.ganancia.
+@Component
+public class TotalesEnCurso {
+
+    private final ConcurrentMap<LocalDate, Totales> porDia = new ConcurrentHashMap<>();
+    private final int dias;
+
+    public TotalesEnCurso(MeterRegistry meterRegistry, @Value("${ventas.totales.dias:7}") int dias) {
+        this.dias = dias;
+        Gauge.builder("ventas.hoy.cantidad", this, totales -> totales.del(LocalDate.now()).cantidadVentas())
+                .register(meterRegistry);
+        Gauge.builder("ventas.hoy.ganancia", this, totales -> totales.del(LocalDate.now()).ganancia().doubleValue())
+                .register(meterRegistry);
+    }
+
+    // Sin transacción activa (importación fuera de una transacción) se suma de inmediato
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alModificarAcumulado(AcumuladoModificado evento) {
+        sumar(evento.fecha(), evento.ventas(), Dinero.aCentavos(evento.ingresos()), Dinero.aCentavos(evento.costos()));
+    }
+
+    void sumar(LocalDate fecha, long ventas, long ingresosCentavos, long costosCentavos) {
+        Totales totales = porDia.get(fecha);
+        if (totales == null) {
+            // Primer movimiento del día: los días fuera del período conservado no se registran y al
+            // crear uno nuevo se descartan los que ya salieron del período
+            LocalDate primerDia = LocalDate.now().minusDays(dias - 1L);
+            if (fecha.isBefore(primerDia)) {
+                return;
+            }
+            totales = porDia.computeIfAbsent(fecha, dia -> new Totales());
+            porDia.keySet().removeIf(dia -> dia.isBefore(primerDia));
+        }
+        totales.ventas.add(ventas);
+        totales.ingresos.add(ingresosCentavos);
+        totales.costos.add(costosCentavos);
+    }
+
+    // Totales del día; en cero si no hubo escrituras o el día ya no se conserva
+    public ResumenDiario del(LocalDate fecha) {
+        Totales totales = porDia.get(fecha);
+        if (totales == null) {
+            return new ResumenDiario(fecha, 0, Dinero.deCentavos(0), Dinero.deCentavos(0));
+        }
+        return new ResumenDiario(fecha, totales.ventas.sum(),
+                Dinero.deCentavos(totales.ingresos.sum()), Dinero.deCentavos(totales.costos.sum()));
+    }
+
+    private static final class Totales {
+        private final LongAdder ventas = new LongAdder();
+        private final LongAdder ingresos = new LongAdder();
+        private final LongAdder costos = new LongAdder();
+    }
+}
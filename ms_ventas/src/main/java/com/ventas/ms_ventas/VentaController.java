@@ -1,17 +1,29 @@
 package com.ventas.ms_ventas;
 
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.LinkRelation;
+import org.springframework.hateoas.server.core.EmbeddedWrapper;
+import org.springframework.hateoas.server.core.EmbeddedWrappers;
 import jakarta.persistence.EntityNotFoundException;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
@@ -20,66 +32,175 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 @RequestMapping("/ventas")
 public class VentaController {
 
+    // Relación HAL del listado; conserva el nombre que tenía con las entidades (_embedded.ventaList)
+    private static final EmbeddedWrappers EMBEBIDAS = new EmbeddedWrappers(false);
+    private static final LinkRelation RELACION_VENTAS = LinkRelation.of("ventaList");
+
     // Inyectamos el VentaService que ahora gestiona la lógica con el repositorio
     private final VentaService ventaService;
+    private final ExportadorVentas exportadorVentas;
+    private final ImportadorVentas importadorVentas;
+    private final AnaliticaVentas analiticaVentas;
+    private final EscrituraDiferida escrituraDiferida;
 
     // Usamos inyección de dependencias para obtener el VentaService
-    public VentaController(VentaService ventaService) {
+    public VentaController(VentaService ventaService, ExportadorVentas exportadorVentas,
+                           ImportadorVentas importadorVentas, AnaliticaVentas analiticaVentas,
+                           EscrituraDiferida escrituraDiferida) {
         this.ventaService = ventaService;
+        this.exportadorVentas = exportadorVentas;
+        this.importadorVentas = importadorVentas;
+        this.analiticaVentas = analiticaVentas;
+        this.escrituraDiferida = escrituraDiferida;
     }
 
-    // Método GET para listar todas las ventas (CON HATEOAS)
+    // Método GET para listar las ventas por páginas (CON HATEOAS)
+    // La paginación es por clave: el parámetro despuesDe es el ID de la última venta de la página
+    // anterior y el enlace 'next' ya lo incluye. Filtros opcionales por cliente y fechas [desde, hasta).
     @GetMapping
-    public ResponseEntity<CollectionModel<EntityModel<Venta>>> listarTodasLasVentas() {
-        List<Venta> ventas = ventaService.listarTodas();
-
-        // 1. Convertir cada Venta a EntityModel. Solo incluimos el enlace 'self' para
-        // que el cliente sepa cómo consultar la venta individual.
-        List<EntityModel<Venta>> ventaModels = ventas.stream()
-                .map(venta -> EntityModel.of(venta,
-                        // Enlace 'self' del recurso individual para navegar a /ventas/{id}
-                        // NOTA: Para evitar el error de CGLIB/Optional en los tests,
-                        // llamamos al método buscarVentaPorId que ahora retorna ResponseEntity.
-                        linkTo(methodOn(VentaController.class).buscarVentaPorId(venta.getId())).withSelfRel()
-                ))
-                .collect(Collectors.toList());
-
-        // 2. Envolver la lista en CollectionModel y añadir enlaces a la colección
-        CollectionModel<EntityModel<Venta>> collectionModel = CollectionModel.of(ventaModels,
-                // Enlace 'self' a esta lista
-                linkTo(methodOn(VentaController.class).listarTodasLasVentas()).withSelfRel(),
+    public ResponseEntity<CollectionModel<EmbeddedWrapper>> listarTodasLasVentas(
+            @RequestParam(required = false) String cliente,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) Integer despuesDe,
+            @RequestParam(defaultValue = "50") int tamanio) {
+        PaginaVentas pagina = ventaService.listarPagina(new FiltroVentas(cliente, desde, hasta), despuesDe, tamanio);
+
+        // 1. Convertir cada venta a EntityModel. Solo incluimos el enlace 'self' para
+        // que el cliente sepa cómo consultar la venta individual (/ventas/{id}).
+        // La URI base se resuelve una vez por petición y a cada fila solo se le agrega su ID;
+        // linkTo(methodOn(...)) crearía un proxy y analizaría las anotaciones en cada fila.
+        String baseVentas = linkTo(VentaController.class).toUri() + "/";
+        List<EntityModel<VentaVista>> ventaModels = new ArrayList<>(pagina.ventas().size());
+        for (VentaVista venta : pagina.ventas()) {
+            ventaModels.add(EntityModel.of(venta, Link.of(baseVentas + venta.id())));
+        }
+
+        // 2. Envolver la lista en CollectionModel y añadir enlaces a la colección. La lista va ya
+        // envuelta con su relación (_embedded.ventaList): sin eso el serializador HAL resuelve el
+        // tipo y la relación de cada elemento por separado. El JSON resultante es el mismo.
+        List<EmbeddedWrapper> embebidas = ventaModels.isEmpty() ? List.of()
+                : List.of(EMBEBIDAS.wrap(ventaModels, RELACION_VENTAS));
+        CollectionModel<EmbeddedWrapper> collectionModel = CollectionModel.of(embebidas,
+                // Enlace 'self' a esta página
+                linkTo(methodOn(VentaController.class)
+                        .listarTodasLasVentas(cliente, desde, hasta, despuesDe, tamanio)).withSelfRel(),
                 // Enlace para crear una nueva venta
                 linkTo(methodOn(VentaController.class).guardarVenta(null)).withRel("crear-venta")
         );
+        // 3. Enlace 'next' a la página siguiente, solo si existe
+        if (pagina.siguienteCursor() != null) {
+            collectionModel.add(linkTo(methodOn(VentaController.class)
+                    .listarTodasLasVentas(cliente, desde, hasta, pagina.siguienteCursor(), tamanio))
+                    .withRel(IanaLinkRelations.NEXT));
+        }
 
         return ResponseEntity.ok(collectionModel);
     }
 
+    // Método GET para exportar las ventas de un rango de fechas [desde, hasta) como NDJSON o CSV.
+    // La respuesta se escribe a medida que se leen las filas, sin cargar el resultado en memoria.
+    @GetMapping("/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarVentas(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(defaultValue = "NDJSON") FormatoExportacion formato) {
+        String archivo = "ventas_" + desde + "_" + hasta + "." + formato.name().toLowerCase();
+        return ResponseEntity.ok()
+                .contentType(formato.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + archivo + "\"")
+                .body(salida -> exportadorVentas.exportar(desde, hasta, formato, salida));
+    }
+
+    // Método GET de analítica: ventas de [desde, hasta) agrupadas por período (DIA, SEMANA, MES o TOTAL)
+    // y por PRODUCTO o CLIENTE. Cada período trae su total y los primeros N según el orden pedido.
+    @GetMapping("/analitica")
+    public List<PeriodoAnalitica> analizarVentas(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(defaultValue = "PRODUCTO") DimensionAnalitica dimension,
+            @RequestParam(defaultValue = "TOTAL") AgrupacionTiempo agrupacion,
+            @RequestParam(defaultValue = "GANANCIA") OrdenAnalitica orden,
+            @RequestParam(defaultValue = "10") int primeros) {
+        return analiticaVentas.agrupar(desde, hasta, dimension, agrupacion, orden, primeros);
+    }
+
     // Método GET para buscar una venta por su ID (REFRACTORIZADO para evitar problemas de CGLIB/Optional con HATEOAS)
     @GetMapping("/{id}")
-    public ResponseEntity<Venta> buscarVentaPorId(@PathVariable int id) {
-        Optional<Venta> venta = ventaService.buscarPorId(id);
+    public ResponseEntity<VentaVista> buscarVentaPorId(@PathVariable int id) {
+        Optional<VentaVista> venta = ventaService.buscarPorId(id);
         // Si existe, devuelve 200 OK con el cuerpo, si no, devuelve 404 Not Found.
         return venta.map(ResponseEntity::ok)
                     .orElse(ResponseEntity.notFound().build());
     }
 
-    // Método POST para guardar una nueva venta (SIMPLE, SIN HATEOAS)
+    // Método POST para guardar una nueva venta (SIMPLE, SIN HATEOAS); 400 si no pasa la validación
+    // Con escritura diferida (ventas.diario.habilitado) responde 202 con la venta y sus IDs en cuanto
+    // queda en el diario local; GET /ventas/diario/{id} indica cuándo llegó a la base de datos.
     @PostMapping
-    public Venta guardarVenta(@RequestBody Venta venta) {
-        return ventaService.guardarVenta(venta);
+    public ResponseEntity<Venta> guardarVenta(@RequestBody Venta venta) {
+        try {
+            if (!escrituraDiferida.isHabilitada()) {
+                return ResponseEntity.ok(ventaService.guardarVenta(venta));
+            }
+            return ResponseEntity.accepted().body(escrituraDiferida.registrar(venta));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Método POST para importar muchas ventas de una vez (arreglo JSON o una venta JSON por línea).
+    // El cuerpo se lee a medida que se guarda; el resultado informa las ventas rechazadas por posición.
+    @PostMapping(value = "/lote", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson"})
+    public ResultadoImportacion importarVentas(InputStream cuerpo) throws IOException {
+        return importadorVentas.importar(cuerpo);
     }
 
     // Método PUT para actualizar una venta existente (SIMPLE, SIN HATEOAS)
+    // Con la versión de la venta leída en el cuerpo, responde 409 si otra escritura la modificó
+    // desde entonces. También responde 409 si no se pudo aplicar por escrituras concurrentes
+    // después de los reintentos (ventas.concurrencia.intentos); en ambos casos no se modifica nada.
+    // Responde 400 si algún importe tiene más de 2 decimales y 404 si la venta no existe.
     @PutMapping("/{id}")
-    public Venta actualizarVenta(@PathVariable int id, @RequestBody Venta venta) {
-        return ventaService.actualizarVenta(id, venta);
+    public ResponseEntity<Venta> actualizarVenta(@PathVariable int id, @RequestBody Venta venta) {
+        try {
+            return ResponseEntity.ok(ventaService.actualizarVenta(id, venta));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (ConcurrencyFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    // Método PATCH para modificar una sola línea de una venta. Solo se cambian los campos enviados;
+    // devuelve el detalle actualizado, 400 si la línea queda inválida, 404 si el detalle no pertenece
+    // a la venta o 409 si no se pudo aplicar por escrituras concurrentes.
+    @PatchMapping("/{id}/detalles/{idDetalle}")
+    public ResponseEntity<DetalleVenta> actualizarDetalle(@PathVariable int id, @PathVariable int idDetalle,
+                                                          @RequestBody CambioDetalle cambio) {
+        try {
+            return ResponseEntity.ok(ventaService.actualizarDetalle(id, idDetalle, cambio));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (ConcurrencyFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
     }
 
-    // Método DELETE para eliminar una venta por su ID (SIMPLE, SIN HATEOAS)
+    // Método DELETE para eliminar una venta por su ID (SIMPLE, SIN HATEOAS); 409 si no se pudo
+    // aplicar por escrituras concurrentes
     @DeleteMapping("/{id}")
-    public void eliminarVenta(@PathVariable int id) {
-        ventaService.eliminarVenta(id);
+    public ResponseEntity<Void> eliminarVenta(@PathVariable int id) {
+        try {
+            ventaService.eliminarVenta(id);
+            return ResponseEntity.ok().build();
+        } catch (ConcurrencyFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
     }
 
     // --- MÉTODOS DE CÁLCULO ---
@@ -91,15 +212,28 @@ public class VentaController {
         return ventaService.getGananciasDiarias(fecha);
     }
 
-    // Método GET para obtener las ganancias mensuales
+    // Método GET para obtener las ganancias mensuales; 400 si el mes o el año están fuera de rango
     @GetMapping("/ganancias/mensuales")
-    public BigDecimal getGananciasMensuales(@RequestParam int mes, @RequestParam int anio) {
-        return ventaService.getGananciasMensuales(mes, anio);
+    public ResponseEntity<BigDecimal> getGananciasMensuales(@RequestParam int mes, @RequestParam int anio) {
+        if (!ClaveGanancia.mesValido(mes, anio)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(ventaService.getGananciasMensuales(mes, anio));
     }
 
-    // Método GET para obtener las ganancias anuales
+    // Método GET para obtener las ganancias anuales; 400 si el año está fuera de rango
     @GetMapping("/ganancias/anuales")
-    public BigDecimal getGananciasAnuales(@RequestParam int anio) {
-        return ventaService.getGananciasAnuales(anio);
+    public ResponseEntity<BigDecimal> getGananciasAnuales(@RequestParam int anio) {
+        if (!ClaveGanancia.anioValido(anio)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(ventaService.getGananciasAnuales(anio));
+    }
+
+    // Método GET para obtener las ganancias de un rango de fechas [desde, hasta)
+    @GetMapping("/ganancias/rango")
+    public BigDecimal getGananciasEntre(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+                                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        return ventaService.getGananciasEntre(desde, hasta);
     }
 }
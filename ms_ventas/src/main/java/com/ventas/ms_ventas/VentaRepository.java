@@ -1,9 +1,68 @@
 package com.ventas.ms_ventas;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
-public interface VentaRepository extends JpaRepository<Venta, Integer> {
+public interface VentaRepository extends JpaRepository<Venta, Integer>, JpaSpecificationExecutor<Venta> {
+
+    // La venta y sus detalles en una sola consulta (LEFT JOIN)
+    @Override
+    @EntityGraph(attributePaths = "detalles")
+    Optional<Venta> findById(Integer id);
+
+    // Las ventas con esos IDs y sus detalles como filas planas, para armar VentaVista (LecturaVentas)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("""
+            SELECT new com.ventas.ms_ventas.FilaExportacion(
+                v.id, v.cliente, v.fecha, v.total, v.version, d.id, d.producto, d.cantidad, d.precio, d.costo)
+            FROM Venta v LEFT JOIN v.detalles d
+            WHERE v.id IN :ids
+            ORDER BY v.id, d.id
+            """)
+    List<FilaExportacion> leerFilas(@Param("ids") Collection<Integer> ids);
+
+    // Totales por día calculados en la base de datos para las ventas con FECHA en [desde, hasta).
+    // Se agrupa por año, mes y día para no depender de cómo cada motor convierte FECHA a fecha sin hora.
+    @Query("""
+            SELECT new com.ventas.ms_ventas.ResumenDiario(
+                YEAR(v.fecha), MONTH(v.fecha), DAY(v.fecha),
+                COUNT(DISTINCT v.id),
+                COALESCE(SUM(d.precio * d.cantidad), 0),
+                COALESCE(SUM(d.costo * d.cantidad), 0))
+            FROM Venta v LEFT JOIN v.detalles d
+            WHERE v.fecha >= :desde AND v.fecha < :hasta
+            GROUP BY YEAR(v.fecha), MONTH(v.fecha), DAY(v.fecha)
+            ORDER BY YEAR(v.fecha), MONTH(v.fecha), DAY(v.fecha)
+            """)
+    List<ResumenDiario> resumirPorDia(@Param("desde") LocalDateTime desde, @Param("hasta") LocalDateTime hasta);
 
+    // Ventas con sus detalles en [desde, hasta) como filas planas, leídas con un cursor JDBC.
+    // Al ser proyecciones no quedan entidades en el contexto de persistencia, así que la memoria
+    // no crece con el tamaño del resultado. Debe consumirse dentro de una transacción y cerrarse.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            SELECT new com.ventas.ms_ventas.FilaExportacion(
+                v.id, v.cliente, v.fecha, v.total, v.version, d.id, d.producto, d.cantidad, d.precio, d.costo)
+            FROM Venta v LEFT JOIN v.detalles d
+            WHERE v.fecha >= :desde AND v.fecha < :hasta
+            ORDER BY v.id, d.id
+            """)
+    Stream<FilaExportacion> exportarEntre(@Param("desde") LocalDateTime desde, @Param("hasta") LocalDateTime hasta);
 }
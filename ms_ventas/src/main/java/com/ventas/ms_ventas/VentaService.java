@@ -1,84 +1,285 @@
 package com.ventas.ms_ventas;
 
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.LockModeType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.Optional;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+// Cada método público publica el timer ventas.servicio (etiquetas class y method) con histograma
 @Service
+@Timed(value = "ventas.servicio", histogram = true)
 public class VentaService {
 
+    // Caché de ventas leídas por ID (Caffeine, configurada en spring.cache.caffeine.spec)
+    public static final String CACHE_VENTAS = "ventas";
+
     private final VentaRepository ventaRepository;
+    private final LecturaVentas lecturaVentas;
+    private final DetalleVentaRepository detalleVentaRepository;
+    private final GananciaDiariaService gananciaDiariaService;
+    private final CacheGanancias cacheGanancias;
+    private final GananciasEnCurso gananciasEnCurso;
+    private final AlmacenColumnar almacenColumnar;
+    private final ApplicationEventPublisher eventos;
+    private final ReintentosConcurrencia reintentos;
+    private final EntityManager entityManager;
+    private final int tamanioMaximoPagina;
 
-    public VentaService(VentaRepository ventaRepository) {
+    public VentaService(VentaRepository ventaRepository, LecturaVentas lecturaVentas,
+                        DetalleVentaRepository detalleVentaRepository,
+                        GananciaDiariaService gananciaDiariaService, CacheGanancias cacheGanancias,
+                        GananciasEnCurso gananciasEnCurso,
+                        AlmacenColumnar almacenColumnar, ApplicationEventPublisher eventos,
+                        ReintentosConcurrencia reintentos, EntityManager entityManager,
+                        @Value("${ventas.paginacion.tamanio-maximo:500}") int tamanioMaximoPagina) {
         this.ventaRepository = ventaRepository;
+        this.lecturaVentas = lecturaVentas;
+        this.detalleVentaRepository = detalleVentaRepository;
+        this.gananciaDiariaService = gananciaDiariaService;
+        this.cacheGanancias = cacheGanancias;
+        this.gananciasEnCurso = gananciasEnCurso;
+        this.almacenColumnar = almacenColumnar;
+        this.eventos = eventos;
+        this.reintentos = reintentos;
+        this.entityManager = entityManager;
+        this.tamanioMaximoPagina = tamanioMaximoPagina;
     }
 
-    public List<Venta> listarTodas() {
-        return ventaRepository.findAll();
+    // Lista las ventas por páginas ordenadas por ID, a partir de la venta con ID despuesDe
+    // (exclusivo, null para la primera página). El tamaño se acota a ventas.paginacion.tamanio-maximo.
+    // Se pide un ID de más para saber si existe una página siguiente sin hacer un COUNT.
+    // Las ventas se leen como VentaVista con dos consultas: los IDs de la página y después las
+    // ventas con sus detalles (ver LecturaVentas). No se usa JOIN FETCH en la consulta paginada
+    // porque Hibernate no puede aplicar el límite junto con una colección.
+    @Transactional(readOnly = true)
+    public PaginaVentas listarPagina(FiltroVentas filtro, Integer despuesDe, int tamanio) {
+        int tamanioPagina = Math.max(1, Math.min(tamanio, tamanioMaximoPagina));
+        List<Integer> ids = lecturaVentas.buscarIds(filtro, despuesDe == null ? 0 : despuesDe, tamanioPagina + 1);
+        List<Integer> pagina = ids.size() <= tamanioPagina ? ids : ids.subList(0, tamanioPagina);
+        Integer siguienteCursor = ids.size() > tamanioPagina ? pagina.get(tamanioPagina - 1) : null;
+        return new PaginaVentas(lecturaVentas.leer(pagina), siguienteCursor);
     }
 
-    public Optional<Venta> buscarPorId(int id) {
-        return ventaRepository.findById(id);
+    // Trae la venta con sus detalles en una sola consulta, como VentaVista.
+    // Las ventas encontradas quedan en caché hasta que se actualizan o eliminan; los IDs
+    // inexistentes no se guardan para que una venta creada después se encuentre enseguida.
+    // sync: la consulta corre dentro de la carga atómica de la caché, así que una escritura que
+    // confirma mientras tanto descarta su resultado (ver ConfiguracionCache).
+    @Cacheable(cacheNames = CACHE_VENTAS, sync = true)
+    @Transactional(readOnly = true)
+    public Optional<VentaVista> buscarPorId(int id) {
+        return lecturaVentas.leer(id);
     }
     
+    // Cada escritura actualiza GANANCIA_DIARIA en la misma transacción con la diferencia
+    // entre la foto anterior y la nueva de la venta, y publica las líneas que cambian para
+    // AlmacenColumnar (DetallesModificados).
+    // Los importes con más de 2 decimales se rechazan con IllegalArgumentException (ValidacionVenta).
+    @Transactional
     public Venta guardarVenta(Venta venta) {
-        return ventaRepository.save(venta);
+        validarImportes(venta);
+        // Una venta nueva empieza en la versión 0 aunque el cuerpo traiga otra (ver Venta.version)
+        venta.setVersion(null);
+        Venta ventaGuardada = ventaRepository.save(venta);
+        gananciaDiariaService.aplicar(null, ContribucionVenta.de(ventaGuardada));
+        eventos.publishEvent(DetallesModificados.altas(ventaGuardada));
+        return ventaGuardada;
     }
     
     // --- MÉTODOS DE ACTUALIZACIÓN Y ELIMINACIÓN ---
-    
+    // Concurrencia optimista: cada modificación incrementa la versión de la venta al confirmar,
+    // aunque solo cambie una línea, y la escritura falla si otra confirmó antes una versión nueva.
+    // Así dos escrituras de la misma venta (por ejemplo desde la caja y desde la oficina) no se
+    // pisan, y la diferencia que se aplica a GANANCIA_DIARIA siempre parte del estado vigente.
+    // Cada método corre en su propia transacción con ReintentosConcurrencia, que repite la
+    // lectura y la modificación si chocan; la caché se desaloja después de confirmar.
+
+    // Si la venta recibida trae versión y no es la guardada se rechaza con VersionObsoletaException
+    // sin reintentar: el cliente modificó una copia que ya no está vigente. Sin versión se aplica
+    // sobre la venta vigente.
+    @CacheEvict(cacheNames = CACHE_VENTAS, key = "#id")
     public Venta actualizarVenta(int id, Venta ventaActualizada) {
+        validarImportes(ventaActualizada);
+        return reintentos.enTransaccion(() -> aplicarActualizacion(id, ventaActualizada));
+    }
+
+    private Venta aplicarActualizacion(int id, Venta ventaActualizada) {
         // Busca la venta existente por su ID
         Venta ventaExistente = ventaRepository.findById(id)
             .orElseThrow(() -> new EntityNotFoundException("Venta no encontrada con ID: " + id));
+        if (ventaActualizada.getVersion() != null && !ventaActualizada.getVersion().equals(ventaExistente.getVersion())) {
+            throw new VersionObsoletaException(id, ventaActualizada.getVersion(), ventaExistente.getVersion());
+        }
+        incrementarVersion(ventaExistente);
+        ContribucionVenta anterior = ContribucionVenta.de(ventaExistente);
+        List<MovimientoDetalle> lineasAnteriores = MovimientoDetalle.de(ventaExistente);
 
         // Actualiza los campos de la venta principal
         ventaExistente.setCliente(ventaActualizada.getCliente());
         ventaExistente.setFecha(ventaActualizada.getFecha());
-        // El total se recalculará automáticamente con el setter de detalles.
 
-        // Maneja la actualización de la lista de detalles de manera segura
-        ventaExistente.getDetalles().clear(); // Elimina todos los detalles existentes
-        
-        // Agrega los nuevos detalles a la lista de la venta existente
+        // Actualiza los detalles por ID en lugar de reemplazarlos todos: los que llegan con el ID de un
+        // detalle de esta venta se modifican en su lugar (UPDATE solo si algún valor cambió), los que
+        // llegan sin ID o con uno ajeno se insertan, y los que no llegan se eliminan (orphanRemoval).
+        Map<Integer, DetalleVenta> existentes = new HashMap<>();
+        for (DetalleVenta detalle : ventaExistente.getDetalles()) {
+            existentes.put(detalle.getId(), detalle);
+        }
         if (ventaActualizada.getDetalles() != null) {
-            for (DetalleVenta nuevoDetalle : ventaActualizada.getDetalles()) {
-                nuevoDetalle.setVenta(ventaExistente); // Establece la relación bidireccional
-                ventaExistente.getDetalles().add(nuevoDetalle);
+            for (DetalleVenta entrante : ventaActualizada.getDetalles()) {
+                DetalleVenta existente = existentes.remove(entrante.getId());
+                if (existente != null) {
+                    existente.actualizarDesde(entrante);
+                } else {
+                    entrante.setId(0);
+                    entrante.setVenta(ventaExistente);
+                    ventaExistente.getDetalles().add(entrante);
+                }
             }
         }
+        if (!existentes.isEmpty()) {
+            Set<DetalleVenta> eliminados = new HashSet<>(existentes.values());
+            ventaExistente.getDetalles().removeIf(eliminados::contains);
+        }
+        // Se modificó la lista existente sin pasar por setDetalles, así que el total se recalcula aquí
+        ventaExistente.setTotal(ventaExistente.calcularTotal());
 
         // Guarda la venta actualizada. JPA se encargará de los detalles
-        return ventaRepository.save(ventaExistente);
+        Venta ventaGuardada = ventaRepository.save(ventaExistente);
+        gananciaDiariaService.aplicar(anterior, ContribucionVenta.de(ventaGuardada));
+        eventos.publishEvent(DetallesModificados.entre(lineasAnteriores, MovimientoDetalle.de(ventaGuardada)));
+        return ventaGuardada;
     }
     
+    private static void validarImportes(Venta venta) {
+        String error = ValidacionVenta.validarImportes(venta);
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+    }
+
+    // Modifica una sola línea de una venta. Solo se lee ese detalle (con su venta) y el total y el
+    // acumulado diario se ajustan con la diferencia de la línea, sin cargar los demás detalles.
+    // Un cambio que deja la línea inválida se rechaza con IllegalArgumentException (ValidacionVenta).
+    // Retorna el detalle modificado.
+    @CacheEvict(cacheNames = CACHE_VENTAS, key = "#idVenta")
+    public DetalleVenta actualizarDetalle(int idVenta, int idDetalle, CambioDetalle cambio) {
+        return reintentos.enTransaccion(() -> aplicarCambioDetalle(idVenta, idDetalle, cambio));
+    }
+
+    private DetalleVenta aplicarCambioDetalle(int idVenta, int idDetalle, CambioDetalle cambio) {
+        DetalleVenta detalle = detalleVentaRepository.findById(idDetalle)
+                .filter(d -> d.getVenta().getId() == idVenta)
+                .orElseThrow(() -> new EntityNotFoundException(
+                        "Detalle " + idDetalle + " no encontrado en la venta con ID: " + idVenta));
+        String error = cambio.validarSobre(detalle);
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+        Venta venta = detalle.getVenta();
+        incrementarVersion(venta);
+        LocalDate dia = venta.getFecha().toLocalDate();
+        ContribucionVenta anterior = ContribucionVenta.de(dia, detalle);
+        MovimientoDetalle lineaAnterior = MovimientoDetalle.de(dia, detalle);
+        long subtotalAnterior = detalle.getSubtotalCentavos();
+
+        cambio.aplicarA(detalle);
+
+        long totalCentavos = Math.addExact(Dinero.aCentavos(venta.getTotal()),
+                detalle.getSubtotalCentavos() - subtotalAnterior);
+        venta.setTotal(Dinero.deCentavos(totalCentavos));
+        gananciaDiariaService.aplicar(anterior, ContribucionVenta.de(dia, detalle));
+        eventos.publishEvent(DetallesModificados.entre(List.of(lineaAnterior), List.of(MovimientoDetalle.de(dia, detalle))));
+        return detalle;
+    }
+
+    // El DELETE de la venta incluye la versión leída, así que también choca con una modificación
+    // concurrente. Si otra escritura ya la eliminó, el reintento no la encuentra y no hace nada.
+    @CacheEvict(cacheNames = CACHE_VENTAS, key = "#id")
     public void eliminarVenta(int id) {
-        ventaRepository.deleteById(id);
+        reintentos.enTransaccion(() -> {
+            ventaRepository.findById(id).ifPresent(venta -> {
+                gananciaDiariaService.aplicar(ContribucionVenta.de(venta), null);
+                eventos.publishEvent(DetallesModificados.bajas(venta));
+                ventaRepository.delete(venta);
+            });
+            return null;
+        });
+    }
+
+    // Hibernate solo incrementa la versión cuando cambia un campo de la venta; al cambiar solo un
+    // detalle, o ninguno, no lo haría y dos escrituras concurrentes de la venta no chocarían. Con
+    // OPTIMISTIC_FORCE_INCREMENT se incrementa siempre al confirmar, sin bloquear la fila al leerla.
+    private void incrementarVersion(Venta venta) {
+        entityManager.lock(venta, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
     }
     
     // --- MÉTODOS DE CÁLCULO ---
+    // La ganancia diaria se suma en la base de datos sobre los detalles del día, en el rango
+    // semiabierto [desde, hasta) de FECHA. Las mensuales y anuales suman como máximo 366 filas
+    // de GANANCIA_DIARIA en lugar de recorrer todos los detalles del período.
+    // Los resultados quedan en CacheGanancias hasta que cambia una venta del período.
+    // Con el almacén columnar cargado (ventas.columnar.habilitado) se suma en memoria y no se usa
+    // la base de datos ni la caché. Las consultas iguales simultáneas comparten un solo cálculo
+    // (GananciasEnCurso).
 
     public BigDecimal getGananciasDiarias(LocalDate fecha) {
-        return ventaRepository.findAll().stream()
-                .filter(venta -> venta.getFecha().toLocalDate().isEqual(fecha))
-                .map(Venta::getGananciaTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return obtenerGanancias(ClaveGanancia.diaria(fecha));
     }
 
     public BigDecimal getGananciasMensuales(int mes, int anio) {
-        return ventaRepository.findAll().stream()
-                .filter(venta -> venta.getFecha().getMonthValue() == mes && venta.getFecha().getYear() == anio)
-                .map(Venta::getGananciaTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return obtenerGanancias(ClaveGanancia.mensual(mes, anio));
     }
 
     public BigDecimal getGananciasAnuales(int anio) {
-        return ventaRepository.findAll().stream()
-                .filter(venta -> venta.getFecha().getYear() == anio)
-                .map(Venta::getGananciaTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return obtenerGanancias(ClaveGanancia.anual(anio));
+    }
+
+    // Ganancia de un rango cualquiera [desde, hasta). Sin almacén columnar se suma GANANCIA_DIARIA
+    // sin pasar por la caché, porque los rangos arbitrarios casi no se repiten.
+    public BigDecimal getGananciasEntre(LocalDate desde, LocalDate hasta) {
+        return gananciasEnCurso.compartirRango(desde, hasta, () -> {
+            if (almacenColumnar.disponible()) {
+                return almacenColumnar.ganancia(desde, hasta);
+            }
+            return gananciaDiariaService.sumarGananciasEntre(desde, hasta);
+        });
+    }
+
+    private BigDecimal obtenerGanancias(ClaveGanancia periodo) {
+        return gananciasEnCurso.compartir(periodo, () -> {
+            if (almacenColumnar.disponible()) {
+                return almacenColumnar.ganancia(periodo.inicio(), periodo.fin());
+            }
+            return cacheGanancias.obtener(periodo, this::calcularGanancias);
+        });
+    }
+
+    private BigDecimal calcularGanancias(ClaveGanancia periodo) {
+        return switch (periodo.granularidad()) {
+            case DIARIA -> sumarGananciasEntre(periodo.inicio(), periodo.fin());
+            case MENSUAL, ANUAL -> gananciaDiariaService.sumarGananciasEntre(periodo.inicio(), periodo.fin());
+        };
+    }
+
+    private BigDecimal sumarGananciasEntre(LocalDate desde, LocalDate hasta) {
+        LocalDateTime inicio = desde.atStartOfDay();
+        LocalDateTime fin = hasta.atStartOfDay();
+        return detalleVentaRepository.sumarGananciasEntre(inicio, fin);
     }
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.ventas.ms_ventas;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+// La venta recibida en PUT trae una versión distinta de la guardada: otra escritura la modificó
+// después de que el cliente la leyó. No se reintenta (ver ReintentosConcurrencia); el controlador
+// responde 409 y el cliente debe volver a leerla.
+public class VersionObsoletaException extends OptimisticLockingFailureException {
+
+    public VersionObsoletaException(int id, long recibida, long actual) {
+        super("La venta con ID " + id + " está en la versión " + actual + " y se recibió la versión " + recibida);
+    }
+}
@@ -0,0 +1,13 @@
+-- Opcional, solo Oracle 12.2 o superior: particiona VENTA por mes de FECHA. Se habilita agregando
+-- esta ubicación (spring.flyway.locations=classpath:db/migration,classpath:db/particionado).
+-- Si se habilita después de aplicar migraciones posteriores a la 3, requiere spring.flyway.out-of-order=true.
+--
+-- Cada mes nuevo crea su partición automáticamente (INTERVAL). IX_VENTA_FECHA pasa a ser local,
+-- así que un rango de fechas solo recorre las particiones de esos meses. PK_VENTA e
+-- IX_VENTA_CLIENTE quedan globales porque no incluyen FECHA. DETALLE_VENTA no se particiona:
+-- se accede por ID_VENTA con IX_DETALLE_VENTA_GANANCIA.
+ALTER TABLE VENTA MODIFY
+    PARTITION BY RANGE (FECHA) INTERVAL (NUMTOYMINTERVAL(1, 'MONTH'))
+    (PARTITION P_VENTA_INICIAL VALUES LESS THAN (TIMESTAMP '2020-01-01 00:00:00'))
+    ONLINE
+    UPDATE INDEXES (IX_VENTA_FECHA LOCAL);
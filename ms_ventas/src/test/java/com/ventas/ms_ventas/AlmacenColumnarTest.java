@@ -0,0 +1,205 @@
+package com.ventas.ms_ventas;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * Pruebas del almacén columnar habilitado. No es @Transactional: el almacén solo recibe las
+ * escrituras confirmadas.
+ */
+@SpringBootTest(properties = "ventas.columnar.habilitado=true")
+public class AlmacenColumnarTest {
+
+    private static final LocalDate OCTUBRE = LocalDate.of(2025, 10, 1);
+    private static final LocalDate NOVIEMBRE = LocalDate.of(2025, 11, 1);
+
+    @Autowired
+    private VentaService ventaService;
+
+    @Autowired
+    private GananciaDiariaService gananciaDiariaService;
+
+    @Autowired
+    private AnaliticaVentas analiticaVentas;
+
+    @Autowired
+    private AlmacenColumnar almacenColumnar;
+
+    @Autowired
+    private VentaRepository ventaRepository;
+
+    @Autowired
+    private GananciaDiariaRepository gananciaDiariaRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void limpiar() {
+        ventaRepository.deleteAll();
+        gananciaDiariaRepository.deleteAll();
+        almacenColumnar.recargar();
+    }
+
+    @AfterEach
+    void limpiarAlTerminar() {
+        ventaRepository.deleteAll();
+        gananciaDiariaRepository.deleteAll();
+    }
+
+    private Venta venta(String cliente, LocalDateTime fecha, DetalleVenta... detalles) {
+        Venta venta = new Venta();
+        venta.setCliente(cliente);
+        venta.setFecha(fecha);
+        venta.setDetalles(new ArrayList<>(List.of(detalles)));
+        return venta;
+    }
+
+    private DetalleVenta detalle(String producto, int cantidad, String precio, String costo) {
+        return new DetalleVenta(producto, cantidad, new BigDecimal(precio), new BigDecimal(costo));
+    }
+
+    // El almacén y GANANCIA_DIARIA deben coincidir después de cada escritura
+    private void verificarGanancia(String esperada) {
+        assertThat(ventaService.getGananciasEntre(OCTUBRE, NOVIEMBRE)).isEqualByComparingTo(esperada);
+        assertThat(gananciaDiariaService.sumarGananciasEntre(OCTUBRE, NOVIEMBRE)).isEqualByComparingTo(esperada);
+    }
+
+    /** Prueba 1: altas, modificaciones y bajas del servicio se reflejan al confirmarse. */
+    @Test
+    void testEscriturasDelServicio() {
+        Venta v1 = ventaService.guardarVenta(venta("Cliente A", LocalDateTime.of(2025, 10, 5, 10, 0),
+                detalle("Prod A", 2, "10.00", "6.00"), detalle("Prod B", 1, "50.00", "45.00")));
+        Venta v2 = ventaService.guardarVenta(venta("Cliente B", LocalDateTime.of(2025, 10, 20, 10, 0),
+                detalle("Prod A", 1, "10.00", "6.00"), detalle("Prod C", 4, "3.00", "1.00")));
+        assertThat(almacenColumnar.disponible()).isTrue();
+        verificarGanancia("25.00");
+        assertThat(ventaService.getGananciasDiarias(LocalDate.of(2025, 10, 5))).isEqualByComparingTo("13.00");
+
+        // Cambia la fecha, se modifica Prod A, se elimina Prod B y se agrega Prod D
+        DetalleVenta prodA = detalle("Prod A", 3, "10.00", "6.00");
+        prodA.setId(v1.getDetalles().get(0).getId());
+        ventaService.actualizarVenta(v1.getId(), venta("Cliente A", LocalDateTime.of(2025, 10, 6, 10, 0),
+                prodA, detalle("Prod D", 1, "20.00", "10.00")));
+        verificarGanancia("34.00");
+        assertThat(ventaService.getGananciasDiarias(LocalDate.of(2025, 10, 5))).isEqualByComparingTo("0.00");
+        assertThat(ventaService.getGananciasDiarias(LocalDate.of(2025, 10, 6))).isEqualByComparingTo("22.00");
+
+        int idProdC = v2.getDetalles().get(1).getId();
+        ventaService.actualizarDetalle(v2.getId(), idProdC, new CambioDetalle(null, 1, null, null));
+        verificarGanancia("28.00");
+
+        ventaService.eliminarVenta(v1.getId());
+        verificarGanancia("6.00");
+        assertThat(ventaService.getGananciasMensuales(10, 2025)).isEqualByComparingTo("6.00");
+        assertThat(ventaService.getGananciasAnuales(2025)).isEqualByComparingTo("6.00");
+
+        // Dentro de una transacción de escritura se consulta la base de datos
+        Boolean disponible = new TransactionTemplate(transactionManager).execute(status -> almacenColumnar.disponible());
+        assertThat(disponible).isFalse();
+    }
+
+    /** Prueba 2: recargar desde la base de datos da lo mismo que las escrituras incrementales. */
+    @Test
+    void testRecargaCoincideConEscrituras() {
+        Venta v1 = ventaService.guardarVenta(venta("Cliente A", LocalDateTime.of(2025, 10, 5, 10, 0),
+                detalle("Prod A", 2, "10.00", "6.00"), detalle("Prod B", 1, "50.00", "45.00")));
+        ventaService.guardarVenta(venta("Cliente B", LocalDateTime.of(2025, 10, 20, 10, 0),
+                detalle("Prod A", 1, "10.00", "6.00"), detalle("Prod C", 4, "3.00", "1.00")));
+        ventaService.actualizarDetalle(v1.getId(), v1.getDetalles().get(1).getId(), new CambioDetalle(null, 3, null, null));
+
+        Map<String, FilaAnalitica> incremental = almacenColumnar.porProducto(OCTUBRE, NOVIEMBRE);
+        // El total por producto sale del almacén y el mensual de la consulta a la base de datos
+        List<PeriodoAnalitica> total = analiticaVentas.agrupar(OCTUBRE, NOVIEMBRE,
+                DimensionAnalitica.PRODUCTO, AgrupacionTiempo.TOTAL, OrdenAnalitica.GANANCIA, 10);
+        List<PeriodoAnalitica> mensual = analiticaVentas.agrupar(OCTUBRE, NOVIEMBRE,
+                DimensionAnalitica.PRODUCTO, AgrupacionTiempo.MES, OrdenAnalitica.GANANCIA, 10);
+        assertThat(total).isEqualTo(mensual);
+
+        almacenColumnar.recargar();
+        assertThat(almacenColumnar.porProducto(OCTUBRE, NOVIEMBRE)).isEqualTo(incremental);
+        assertThat(incremental.get("Prod B").ganancia()).isEqualByComparingTo("15.00");
+        verificarGanancia("35.00");
+    }
+
+    /** Prueba 3: la compactación cancela las filas negativas sin cambiar las sumas. */
+    @Test
+    void testCompactacion() {
+        AlmacenColumnar almacen = new AlmacenColumnar(true, null, null, new SimpleMeterRegistry());
+        almacen.cargar(List.<MovimientoDetalle>of().iterator());
+        Random aleatorio = new Random(7);
+        List<MovimientoDetalle> vigentes = new ArrayList<>();
+        int agregadas = 0;
+        for (int i = 0; i < 20_000; i++) {
+            if (!vigentes.isEmpty() && aleatorio.nextInt(3) == 0) {
+                // Baja de una línea vigente cualquiera: fila negativa, normalmente fuera de orden
+                almacen.agregar(List.of(vigentes.remove(aleatorio.nextInt(vigentes.size())).negado()));
+            } else {
+                MovimientoDetalle linea = new MovimientoDetalle(OCTUBRE.plusDays(aleatorio.nextInt(31)),
+                        "Prod " + aleatorio.nextInt(20), 1 + aleatorio.nextInt(5),
+                        1000 + aleatorio.nextInt(100), 600 + aleatorio.nextInt(100));
+                vigentes.add(linea);
+                almacen.agregar(List.of(linea));
+            }
+            agregadas++;
+        }
+
+        long ganancia = 0;
+        Map<String, Long> gananciaPorProducto = new HashMap<>();
+        for (MovimientoDetalle linea : vigentes) {
+            long gananciaLinea = linea.cantidad() * (linea.precioCentavos() - linea.costoCentavos());
+            ganancia += gananciaLinea;
+            gananciaPorProducto.merge(linea.producto(), gananciaLinea, Long::sum);
+        }
+        assertThat(almacen.filas()).isLessThan(agregadas);
+        assertThat(almacen.ganancia(OCTUBRE, NOVIEMBRE)).isEqualByComparingTo(Dinero.deCentavos(ganancia));
+        Map<String, FilaAnalitica> porProducto = almacen.porProducto(OCTUBRE, NOVIEMBRE);
+        gananciaPorProducto.forEach((producto, esperada) ->
+                assertThat(porProducto.get(producto).ganancia()).isEqualByComparingTo(Dinero.deCentavos(esperada)));
+    }
+
+    /** Prueba 4: un día con muchas filas y muchas negativas se compacta en tiempo lineal. */
+    @Test
+    void testCompactacionDeUnDiaConMuchasNegativas() {
+        AlmacenColumnar almacen = new AlmacenColumnar(true, null, null, new SimpleMeterRegistry());
+        LocalDate dia = LocalDate.of(2025, 10, 15);
+        List<MovimientoDetalle> movimientos = new ArrayList<>();
+        long ganancia = 0;
+        // 200.000 líneas distintas del mismo día y la baja de la mitad, al final y en orden inverso
+        int lineas = 200_000;
+        for (int i = 0; i < lineas; i++) {
+            MovimientoDetalle linea = new MovimientoDetalle(dia, "Prod " + (i % 500), 1 + i % 3, 1000 + i, 600);
+            movimientos.add(linea);
+            ganancia += linea.cantidad() * (linea.precioCentavos() - linea.costoCentavos());
+        }
+        for (int i = lineas - 1; i >= 0; i -= 2) {
+            MovimientoDetalle baja = movimientos.get(i);
+            movimientos.add(baja.negado());
+            ganancia -= baja.cantidad() * (baja.precioCentavos() - baja.costoCentavos());
+        }
+        long totalGanancia = ganancia;
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> almacen.cargar(movimientos.iterator()));
+        assertThat(almacen.filas()).isEqualTo(lineas / 2);
+        assertThat(almacen.ganancia(dia, dia.plusDays(1))).isEqualByComparingTo(Dinero.deCentavos(totalGanancia));
+    }
+}
@@ -0,0 +1,129 @@
+package com.ventas.ms_ventas;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pruebas de la analítica agrupada sobre H2. Cada prueba se revierte al terminar.
+ */
+@SpringBootTest
+@Transactional
+public class AnaliticaVentasTest {
+
+    private static final LocalDate DESDE = LocalDate.of(2025, 9, 1);
+    private static final LocalDate HASTA = LocalDate.of(2025, 11, 1);
+
+    @Autowired
+    private VentaRepository ventaRepository;
+
+    @Autowired
+    private AnaliticaVentas analiticaVentas;
+
+    @Autowired
+    private MetricasSql metricasSql;
+
+    private void guardarVenta(String cliente, LocalDateTime fecha, DetalleVenta... detalles) {
+        Venta venta = new Venta();
+        venta.setCliente(cliente);
+        venta.setFecha(fecha);
+        venta.setDetalles(new ArrayList<>(List.of(detalles)));
+        ventaRepository.save(venta);
+    }
+
+    private DetalleVenta detalle(String producto, int cantidad, String precio, String costo) {
+        return new DetalleVenta(producto, cantidad, new BigDecimal(precio), new BigDecimal(costo));
+    }
+
+    @BeforeEach
+    void cargarVentas() {
+        // Lunes 29 de septiembre y domingo 5 de octubre: misma semana, distinto mes
+        guardarVenta("Cliente A", LocalDateTime.of(2025, 9, 29, 10, 0),
+                detalle("Prod A", 2, "10.00", "6.00"), detalle("Prod B", 1, "50.00", "45.00"));
+        guardarVenta("Cliente B", LocalDateTime.of(2025, 10, 5, 23, 0),
+                detalle("Prod A", 1, "10.00", "6.00"), detalle("Prod C", 4, "3.00", "1.00"));
+        // Lunes 6 de octubre: semana siguiente
+        guardarVenta("Cliente A", LocalDateTime.of(2025, 10, 6, 9, 0), detalle("Prod C", 1, "3.00", "1.00"));
+        // Fuera del rango
+        guardarVenta("Cliente C", LocalDateTime.of(2025, 11, 1, 0, 0), detalle("Prod A", 100, "10.00", "6.00"));
+    }
+
+    /** Prueba 1: el total del rango ordena los productos por ganancia y limita a los primeros N. */
+    @Test
+    void testTotalPorProductoOrdenadoPorGanancia() {
+        List<PeriodoAnalitica> periodos = analiticaVentas.agrupar(DESDE, HASTA,
+                DimensionAnalitica.PRODUCTO, AgrupacionTiempo.TOTAL, OrdenAnalitica.GANANCIA, 2);
+
+        assertThat(periodos).hasSize(1);
+        PeriodoAnalitica total = periodos.get(0);
+        assertThat(total.inicio()).isEqualTo(DESDE);
+        assertThat(total.distintos()).isEqualTo(3);
+        assertThat(total.total().ingresos()).isEqualByComparingTo("95.00");
+        assertThat(total.total().ganancia()).isEqualByComparingTo("27.00");
+        // Prod A gana 12, Prod C 10 y Prod B 5
+        assertThat(total.primeros()).extracting(FilaAnalitica::clave).containsExactly("Prod A", "Prod C");
+        assertThat(total.primeros().get(0).cantidad()).isEqualTo(3);
+    }
+
+    /** Prueba 2: las semanas empiezan el lunes y juntan días de meses distintos. */
+    @Test
+    void testSemanasPorClienteOrdenadasPorIngresos() {
+        List<PeriodoAnalitica> periodos = analiticaVentas.agrupar(DESDE, HASTA,
+                DimensionAnalitica.CLIENTE, AgrupacionTiempo.SEMANA, OrdenAnalitica.INGRESOS, 10);
+
+        assertThat(periodos).extracting(PeriodoAnalitica::inicio)
+                .containsExactly(LocalDate.of(2025, 9, 29), LocalDate.of(2025, 10, 6));
+        assertThat(periodos.get(0).primeros()).extracting(FilaAnalitica::clave).containsExactly("Cliente A", "Cliente B");
+        assertThat(periodos.get(0).primeros().get(0).ingresos()).isEqualByComparingTo("70.00");
+        assertThat(periodos.get(1).total().ingresos()).isEqualByComparingTo("3.00");
+    }
+
+    /** Prueba 3: la agrupación mensual separa septiembre y octubre. */
+    @Test
+    void testMesesPorProducto() {
+        List<PeriodoAnalitica> periodos = analiticaVentas.agrupar(DESDE, HASTA,
+                DimensionAnalitica.PRODUCTO, AgrupacionTiempo.MES, OrdenAnalitica.CANTIDAD, 10);
+
+        assertThat(periodos).extracting(PeriodoAnalitica::inicio)
+                .containsExactly(LocalDate.of(2025, 9, 1), LocalDate.of(2025, 10, 1));
+        assertThat(periodos.get(1).primeros()).extracting(FilaAnalitica::clave).containsExactly("Prod C", "Prod A");
+        assertThat(periodos.get(1).primeros().get(0).cantidad()).isEqualTo(5);
+    }
+
+    /** Prueba 4: el total por cliente lee de la base de datos solo los primeros N y una fila de totales. */
+    @Test
+    void testTotalPorClienteLimitadoEnLaBaseDeDatos() {
+        for (int i = 0; i < 30; i++) {
+            guardarVenta("Cliente X" + i, LocalDateTime.of(2025, 10, 10, 12, 0), detalle("Prod D", 1, "1.00", "0.50"));
+        }
+
+        MetricasSql.Contadores contadores = metricasSql.iniciarPeticion();
+        List<PeriodoAnalitica> periodos;
+        try {
+            periodos = analiticaVentas.agrupar(DESDE, HASTA,
+                    DimensionAnalitica.CLIENTE, AgrupacionTiempo.TOTAL, OrdenAnalitica.INGRESOS, 2);
+        } finally {
+            metricasSql.terminarPeticion();
+        }
+
+        assertThat(periodos).hasSize(1);
+        PeriodoAnalitica total = periodos.get(0);
+        assertThat(total.distintos()).isEqualTo(32);
+        assertThat(total.total().ingresos()).isEqualByComparingTo("125.00");
+        assertThat(total.total().cantidad()).isEqualTo(39);
+        // Cliente A compra 73 y Cliente B 22
+        assertThat(total.primeros()).extracting(FilaAnalitica::clave).containsExactly("Cliente A", "Cliente B");
+        assertThat(total.primeros().get(0).ingresos()).isEqualByComparingTo("73.00");
+        assertThat(contadores.getFilas()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,59 @@
+package com.ventas.ms_ventas;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pruebas de AvisoGanancias: las escrituras de otra instancia se simulan con SQL directo sobre
+ * GANANCIA_DIARIA y la revisión se llama desde la prueba en lugar de esperar a la programada.
+ */
+@SpringBootTest(properties = {"ventas.ganancias.aviso.habilitado=true", "ventas.ganancias.aviso.intervalo=1h"})
+public class AvisoGananciasTest {
+
+    // Día de un mes cerrado que no usan las demás pruebas
+    private static final LocalDate DIA = LocalDate.of(2001, 3, 15);
+
+    @Autowired
+    private AvisoGanancias avisoGanancias;
+
+    @Autowired
+    private VentaService ventaService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void limpiar() {
+        jdbcTemplate.update("DELETE FROM GANANCIA_DIARIA WHERE FECHA = ?", DIA);
+    }
+
+    /** Prueba 1: las escrituras de otra instancia en un período cerrado se ven después de la revisión. */
+    @Test
+    void testEscriturasDeOtraInstancia() throws Exception {
+        avisoGanancias.revisar();
+        assertThat(ventaService.getGananciasMensuales(3, 2001)).isEqualByComparingTo("0");
+
+        jdbcTemplate.update("INSERT INTO GANANCIA_DIARIA (FECHA, CANTIDAD_VENTAS, INGRESOS, COSTOS, GANANCIA) "
+                + "VALUES (?, 1, 10, 4, 6)", DIA);
+        // Hasta la revisión queda el resultado guardado en la caché
+        assertThat(ventaService.getGananciasMensuales(3, 2001)).isEqualByComparingTo("0");
+        assertThat(avisoGanancias.revisar()).isEqualTo(1);
+        assertThat(ventaService.getGananciasMensuales(3, 2001)).isEqualByComparingTo("6");
+
+        Thread.sleep(5);
+        jdbcTemplate.update("UPDATE GANANCIA_DIARIA SET GANANCIA = GANANCIA + 3, ACTUALIZADA = SYSTIMESTAMP "
+                + "WHERE FECHA = ?", DIA);
+        assertThat(avisoGanancias.revisar()).isEqualTo(1);
+        assertThat(ventaService.getGananciasMensuales(3, 2001)).isEqualByComparingTo("9");
+
+        // El día sigue dentro del margen pero no volvió a cambiar
+        assertThat(avisoGanancias.revisar()).isZero();
+    }
+}
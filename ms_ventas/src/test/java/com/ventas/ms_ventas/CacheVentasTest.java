@@ -0,0 +1,113 @@
+package com.ventas.ms_ventas;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Pruebas de la caché de ventas por ID con lecturas que se cruzan con escrituras. La lectura se
+ * detiene después de consultar la base de datos y antes de guardar en caché. No es @Transactional:
+ * la escritura debe confirmarse para que se desaloje la caché.
+ */
+@SpringBootTest
+public class CacheVentasTest {
+
+    @Autowired
+    private VentaService ventaService;
+
+    @MockitoSpyBean
+    private LecturaVentas lecturaVentas;
+
+    @Autowired
+    private VentaRepository ventaRepository;
+
+    @Autowired
+    private GananciaDiariaRepository gananciaDiariaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @AfterEach
+    void limpiar() {
+        ventaRepository.deleteAll();
+        gananciaDiariaRepository.deleteAll();
+    }
+
+    private static Venta venta(String cliente) {
+        Venta venta = new Venta();
+        venta.setCliente(cliente);
+        venta.setFecha(LocalDateTime.of(2025, 10, 12, 10, 0));
+        venta.setDetalles(new ArrayList<>(List.of(
+                new DetalleVenta("Prod A", 1, new BigDecimal("10.00"), new BigDecimal("6.00")))));
+        return venta;
+    }
+
+    /** Prueba 1: una lectura que leyó la venta antes de que se actualizara no la deja en caché. */
+    @Test
+    void testLecturaCruzadaConActualizacionNoQuedaEnCache() throws Exception {
+        int id = ventaService.guardarVenta(venta("Cliente A")).getId();
+        CountDownLatch leida = new CountDownLatch(1);
+        CountDownLatch continuar = new CountDownLatch(1);
+        AtomicBoolean primera = new AtomicBoolean(true);
+        doAnswer(invocacion -> {
+            Object resultado = invocacion.callRealMethod();
+            if (primera.getAndSet(false)) {
+                leida.countDown();
+                continuar.await(10, TimeUnit.SECONDS);
+            }
+            return resultado;
+        }).when(lecturaVentas).leer(anyInt());
+
+        CompletableFuture<Optional<VentaVista>> lectura = CompletableFuture.supplyAsync(() -> ventaService.buscarPorId(id));
+        assertThat(leida.await(10, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Venta> actualizacion = CompletableFuture.supplyAsync(
+                () -> ventaService.actualizarVenta(id, venta("Cliente B")));
+        // Espera a que la actualización confirme y le da tiempo a desalojar antes de soltar la lectura
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!"Cliente B".equals(jdbcTemplate.queryForObject("SELECT CLIENTE FROM VENTA WHERE ID = ?", String.class, id))) {
+            assertThat(System.nanoTime()).as("tiempo de espera agotado").isLessThan(limite);
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        continuar.countDown();
+
+        // La lectura cruzada devuelve lo que leyó, pero la siguiente ve la actualización
+        assertThat(lectura.get(10, TimeUnit.SECONDS).orElseThrow().cliente()).isEqualTo("Cliente A");
+        actualizacion.get(10, TimeUnit.SECONDS);
+        assertThat(ventaService.buscarPorId(id).orElseThrow().cliente()).isEqualTo("Cliente B");
+    }
+
+    /** Prueba 2: un ID inexistente no queda en caché; una venta encontrada sí. */
+    @Test
+    void testIdInexistenteNoQuedaEnCache() {
+        Cache cache = cacheManager.getCache(VentaService.CACHE_VENTAS);
+        int id = ventaService.guardarVenta(venta("Cliente A")).getId();
+
+        assertThat(ventaService.buscarPorId(-5)).isEmpty();
+        assertThat(cache.get(-5)).isNull();
+        assertThat(ventaService.buscarPorId(id)).isPresent();
+        assertThat(cache.get(id)).isNotNull();
+    }
+}
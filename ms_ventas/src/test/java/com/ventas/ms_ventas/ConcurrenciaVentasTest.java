@@ -0,0 +1,237 @@
+package com.ventas.ms_ventas;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.ConcurrencyFailureException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Pruebas de estrés de las escrituras concurrentes sobre una misma venta: varios hilos la modifican a
+ * la vez y al final no debe perderse ninguna modificación ni desviarse GANANCIA_DIARIA. No es
+ * @Transactional porque cada escritura debe confirmarse en su propia transacción, como en producción;
+ * los datos se borran al terminar cada prueba. Las ventas son de hoy para que TotalesEnCurso las registre.
+ */
+@SpringBootTest
+public class ConcurrenciaVentasTest {
+
+    private static final LocalDate DIA = LocalDate.now();
+    private static final int HILOS = 4;
+
+    @Autowired
+    private VentaService ventaService;
+
+    @Autowired
+    private LecturaVentas lecturaVentas;
+
+    @Autowired
+    private GananciaDiariaService gananciaDiariaService;
+
+    @Autowired
+    private TotalesEnCurso totalesEnCurso;
+
+    @Autowired
+    private VentaRepository ventaRepository;
+
+    @Autowired
+    private GananciaDiariaRepository gananciaDiariaRepository;
+
+    @AfterEach
+    void limpiar() {
+        ventaRepository.deleteAll();
+        gananciaDiariaRepository.deleteAll();
+    }
+
+    private Venta guardarVenta(DetalleVenta... detalles) {
+        Venta venta = new Venta();
+        venta.setCliente("Cliente A");
+        venta.setFecha(DIA.atTime(10, 0));
+        venta.setDetalles(new ArrayList<>(List.of(detalles)));
+        return ventaService.guardarVenta(venta);
+    }
+
+    // Copia de la venta vigente como la enviaría un cliente por PUT, con la versión leída
+    private static Venta copiaParaPut(VentaVista vista) {
+        Venta copia = new Venta();
+        copia.setCliente(vista.cliente());
+        copia.setFecha(vista.fecha());
+        List<DetalleVenta> detalles = new ArrayList<>();
+        for (DetalleVista linea : vista.detalles()) {
+            DetalleVenta detalle = new DetalleVenta(linea.producto(), linea.cantidad(), linea.precio(), linea.costo());
+            detalle.setId(linea.id());
+            detalles.add(detalle);
+        }
+        copia.setDetalles(detalles);
+        copia.setVersion(vista.version());
+        return copia;
+    }
+
+    // Ejecuta la tarea en HILOS hilos que arrancan a la vez y espera a que terminen todos; un error
+    // inesperado en cualquiera de ellos hace fallar la prueba
+    private static void enParalelo(Runnable tarea) throws Exception {
+        CountDownLatch largada = new CountDownLatch(1);
+        try (ExecutorService hilos = Executors.newFixedThreadPool(HILOS)) {
+            List<Future<?>> resultados = new ArrayList<>();
+            for (int i = 0; i < HILOS; i++) {
+                resultados.add(hilos.submit(() -> {
+                    largada.await();
+                    tarea.run();
+                    return null;
+                }));
+            }
+            largada.countDown();
+            for (Future<?> resultado : resultados) {
+                resultado.get();
+            }
+        }
+    }
+
+    /** Prueba 1: incrementos concurrentes por PUT con la versión leída no se pierden; los que chocan se repiten. */
+    @Test
+    void testPutConVersionNoPierdeModificaciones() throws Exception {
+        int incrementos = 5;
+        Venta venta = guardarVenta(new DetalleVenta("Prod A", 1, new BigDecimal("10.00"), new BigDecimal("6.00")));
+        AtomicInteger conflictos = new AtomicInteger();
+
+        enParalelo(() -> {
+            for (int i = 0; i < incrementos; i++) {
+                // Cliente que lee, suma una unidad y envía; si la venta cambió entretanto recibe 409 y repite
+                while (true) {
+                    Venta copia = copiaParaPut(lecturaVentas.leer(venta.getId()).orElseThrow());
+                    DetalleVenta linea = copia.getDetalles().get(0);
+                    linea.setCantidad(linea.getCantidad() + 1);
+                    try {
+                        ventaService.actualizarVenta(venta.getId(), copia);
+                        break;
+                    } catch (ConcurrencyFailureException e) {
+                        conflictos.incrementAndGet();
+                    }
+                }
+            }
+        });
+
+        VentaVista resultado = lecturaVentas.leer(venta.getId()).orElseThrow();
+        assertThat(resultado.detalles().get(0).cantidad()).isEqualTo(1 + HILOS * incrementos);
+        assertThat(resultado.total()).isEqualByComparingTo(new BigDecimal("10.00").multiply(BigDecimal.valueOf(1 + HILOS * incrementos)));
+        assertThat(resultado.version()).isGreaterThanOrEqualTo(HILOS * incrementos);
+        // Ganancia (10 - 6) por unidad, con el acumulado igual al recalculado desde las ventas
+        assertThat(gananciaDiariaRepository.findById(DIA).orElseThrow().getGanancia())
+                .isEqualByComparingTo(new BigDecimal("4.00").multiply(BigDecimal.valueOf(1 + HILOS * incrementos)));
+        assertThat(gananciaDiariaService.verificar(DIA, DIA.plusDays(1))).isEmpty();
+    }
+
+    /** Prueba 2: PATCH concurrentes sin versión se reintentan en el servidor y el acumulado no se desvía. */
+    @Test
+    void testPatchConcurrenteMantieneAcumulado() throws Exception {
+        ResumenDiario totalesAntes = totalesEnCurso.del(DIA);
+        Venta venta = guardarVenta(
+                new DetalleVenta("Prod A", 1, new BigDecimal("10.00"), new BigDecimal("6.00")),
+                new DetalleVenta("Prod B", 1, new BigDecimal("5.00"), new BigDecimal("2.00")));
+        List<Integer> idsDetalle = venta.getDetalles().stream().map(DetalleVenta::getId).toList();
+        AtomicInteger rechazadas = new AtomicInteger();
+
+        enParalelo(() -> {
+            ThreadLocalRandom azar = ThreadLocalRandom.current();
+            for (int i = 0; i < 10; i++) {
+                int idDetalle = idsDetalle.get(azar.nextInt(idsDetalle.size()));
+                CambioDetalle cambio = new CambioDetalle(null, azar.nextInt(1, 10), null,
+                        BigDecimal.valueOf(azar.nextInt(1, 5)));
+                try {
+                    ventaService.actualizarDetalle(venta.getId(), idDetalle, cambio);
+                } catch (ConcurrencyFailureException e) {
+                    // Agotó los reintentos: se responde 409 sin modificar nada
+                    rechazadas.incrementAndGet();
+                }
+            }
+        });
+
+        // El total de la venta es la suma de sus líneas y el acumulado coincide con las ventas
+        VentaVista resultado = lecturaVentas.leer(venta.getId()).orElseThrow();
+        BigDecimal sumaLineas = resultado.detalles().stream().map(DetalleVista::subtotal).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertThat(resultado.total()).isEqualByComparingTo(sumaLineas);
+        assertThat(gananciaDiariaService.verificar(DIA, DIA.plusDays(1))).isEmpty();
+        assertThat(resultado.version()).isGreaterThanOrEqualTo(HILOS * 10L - rechazadas.get());
+        // Los totales en memoria suman solo lo confirmado, igual que GANANCIA_DIARIA
+        ResumenDiario totales = totalesEnCurso.del(DIA);
+        GananciaDiaria acumulado = gananciaDiariaRepository.findById(DIA).orElseThrow();
+        assertThat(totales.cantidadVentas() - totalesAntes.cantidadVentas()).isEqualTo(acumulado.getCantidadVentas());
+        assertThat(totales.ganancia().subtract(totalesAntes.ganancia())).isEqualByComparingTo(acumulado.getGanancia());
+    }
+
+    /** Prueba 3: un PUT con una versión que ya no es la vigente se rechaza sin modificar la venta. */
+    @Test
+    void testPutConVersionObsoletaSeRechaza() {
+        Venta venta = guardarVenta(new DetalleVenta("Prod A", 1, new BigDecimal("10.00"), new BigDecimal("6.00")));
+        Venta primera = copiaParaPut(lecturaVentas.leer(venta.getId()).orElseThrow());
+        Venta segunda = copiaParaPut(lecturaVentas.leer(venta.getId()).orElseThrow());
+        primera.getDetalles().get(0).setCantidad(2);
+        segunda.getDetalles().get(0).setCantidad(3);
+
+        ventaService.actualizarVenta(venta.getId(), primera);
+
+        assertThatThrownBy(() -> ventaService.actualizarVenta(venta.getId(), segunda))
+                .isInstanceOf(VersionObsoletaException.class);
+        assertThat(lecturaVentas.leer(venta.getId()).orElseThrow().detalles().get(0).cantidad()).isEqualTo(2);
+        assertThat(gananciaDiariaService.verificar(DIA, DIA.plusDays(1))).isEmpty();
+    }
+
+    /** Prueba 4: los totales en memoria suman sin perder actualizaciones concurrentes y no registran días viejos. */
+    @Test
+    void testTotalesEnCursoConcurrentes() throws Exception {
+        TotalesEnCurso totales = new TotalesEnCurso(new SimpleMeterRegistry(), 7);
+        int sumas = 10_000;
+
+        enParalelo(() -> {
+            for (int i = 0; i < sumas; i++) {
+                totales.sumar(DIA, 1, 250, 100);
+            }
+        });
+        totales.sumar(DIA.minusDays(7), 1, 250, 100);
+
+        ResumenDiario hoy = totales.del(DIA);
+        assertThat(hoy.cantidadVentas()).isEqualTo((long) HILOS * sumas);
+        assertThat(hoy.ingresos()).isEqualByComparingTo(new BigDecimal("2.50").multiply(BigDecimal.valueOf((long) HILOS * sumas)));
+        assertThat(hoy.ganancia()).isEqualByComparingTo(new BigDecimal("1.50").multiply(BigDecimal.valueOf((long) HILOS * sumas)));
+        assertThat(totales.del(DIA.minusDays(7)).cantidadVentas()).isZero();
+    }
+
+    /** Prueba 5: las primeras ventas concurrentes de un día crean una sola fila de GANANCIA_DIARIA sin fallar. */
+    @Test
+    void testPrimerasVentasConcurrentesDelDia() throws Exception {
+        LocalDate primerDia = DIA.minusDays(30);
+        int dias = 10;
+        for (int i = 0; i < dias; i++) {
+            LocalDate dia = primerDia.plusDays(i);
+            // Cada hilo guarda la primera venta de un día que todavía no tiene fila
+            enParalelo(() -> {
+                Venta venta = new Venta();
+                venta.setCliente("Cliente A");
+                venta.setFecha(dia.atTime(10, 0));
+                venta.setDetalles(new ArrayList<>(List.of(new DetalleVenta("Prod A", 1, new BigDecimal("10.00"), new BigDecimal("6.00")))));
+                ventaService.guardarVenta(venta);
+            });
+        }
+
+        List<GananciaDiaria> filas = gananciaDiariaRepository.findAll();
+        assertThat(filas).hasSize(dias).allSatisfy(fila -> {
+            assertThat(fila.getCantidadVentas()).isEqualTo(HILOS);
+            assertThat(fila.getGanancia()).isEqualByComparingTo(new BigDecimal("4.00").multiply(BigDecimal.valueOf(HILOS)));
+        });
+        assertThat(gananciaDiariaService.verificar(primerDia, primerDia.plusDays(dias))).isEmpty();
+    }
+}
@@ -0,0 +1,209 @@
+package com.ventas.ms_ventas;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Cuenta las sentencias SQL que ejecuta cada petición de lectura para detectar regresiones N+1.
+ * No es @Transactional: cada petición debe abrir su propia sesión, como en producción.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ConsultasSqlTest {
+
+    private static final int VENTAS = 20;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private VentaRepository ventaRepository;
+
+    @Autowired
+    private GananciaDiariaRepository gananciaDiariaRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheGanancias cacheGanancias;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Statistics estadisticas;
+    private int primerId;
+
+    @BeforeEach
+    void cargarVentas() {
+        List<Venta> ventas = new ArrayList<>();
+        for (int i = 0; i < VENTAS; i++) {
+            Venta venta = new Venta();
+            venta.setCliente("Cliente " + i);
+            venta.setFecha(LocalDateTime.of(2025, 10, 5, 10, i));
+            List<DetalleVenta> detalles = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                detalles.add(new DetalleVenta("Prod " + j, j + 1, new BigDecimal("10.00"), new BigDecimal("6.00")));
+            }
+            venta.setDetalles(detalles);
+            ventas.add(venta);
+        }
+        primerId = ventaRepository.saveAll(ventas).get(0).getId();
+
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+    }
+
+    @AfterEach
+    void limpiar() {
+        ventaRepository.deleteAll();
+        gananciaDiariaRepository.deleteAll();
+        cacheGanancias.invalidarTodo();
+    }
+
+    /** Prueba 1: una página de ventas con sus detalles se lee con dos consultas, sin importar su tamaño. */
+    @Test
+    void testListarVentasEjecutaDosConsultas() throws Exception {
+        mockMvc.perform(get("/ventas").param("tamanio", "15"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.ventaList.length()").value(15))
+                .andExpect(jsonPath("$._embedded.ventaList[14].detalles.length()").value(3))
+                .andExpect(jsonPath("$._embedded.ventaList[14].gananciaTotal").value(24.0));
+
+        assertThat(estadisticas.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    /** Prueba 2: una venta con sus detalles se lee con una sola consulta. */
+    @Test
+    void testBuscarVentaPorIdEjecutaUnaConsulta() throws Exception {
+        mockMvc.perform(get("/ventas/{id}", primerId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.detalles.length()").value(3));
+
+        assertThat(estadisticas.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    /** Prueba 3: cada cálculo de ganancias es una sola consulta agregada. */
+    @Test
+    void testGananciasEjecutanUnaConsulta() throws Exception {
+        mockMvc.perform(get("/ventas/ganancias/diarias").param("fecha", "2025-10-05"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/ventas/ganancias/mensuales").param("mes", "10").param("anio", "2025"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/ventas/ganancias/anuales").param("anio", "2025"))
+                .andExpect(status().isOk());
+
+        assertThat(estadisticas.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    /** Prueba 4: la segunda lectura de una venta sale de la caché; actualizarla o eliminarla la desaloja. */
+    @Test
+    void testBuscarVentaPorIdUsaCacheHastaQueSeModifica() throws Exception {
+        mockMvc.perform(get("/ventas/{id}", primerId)).andExpect(status().isOk());
+        mockMvc.perform(get("/ventas/{id}", primerId)).andExpect(status().isOk());
+        assertThat(estadisticas.getPrepareStatementCount()).isEqualTo(1);
+
+        mockMvc.perform(put("/ventas/{id}", primerId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"cliente": "Cliente actualizado", "fecha": "2025-10-05T10:00:00",
+                                 "detalles": [{"producto": "Prod 9", "cantidad": 1, "precio": 40.00, "costo": 25.00}]}
+                                """))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/ventas/{id}", primerId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cliente").value("Cliente actualizado"))
+                .andExpect(jsonPath("$.detalles.length()").value(1));
+
+        mockMvc.perform(delete("/ventas/{id}", primerId)).andExpect(status().isOk());
+        mockMvc.perform(get("/ventas/{id}", primerId)).andExpect(status().isNotFound());
+    }
+
+    /** Prueba 5: las ganancias repetidas salen de la caché; una venta nueva invalida solo sus períodos. */
+    @Test
+    void testGananciasUsanCacheHastaQueCambiaUnaVentaDelPeriodo() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/ventas/ganancias/diarias").param("fecha", "2025-10-05")).andExpect(status().isOk());
+            mockMvc.perform(get("/ventas/ganancias/diarias").param("fecha", "2025-10-06")).andExpect(status().isOk());
+            mockMvc.perform(get("/ventas/ganancias/mensuales").param("mes", "10").param("anio", "2025"))
+                    .andExpect(status().isOk());
+        }
+        assertThat(estadisticas.getPrepareStatementCount()).isEqualTo(3);
+
+        mockMvc.perform(post("/ventas")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"cliente": "Cliente nuevo", "fecha": "2025-10-06T09:00:00",
+                                 "detalles": [{"producto": "Prod 9", "cantidad": 2, "precio": 40.00, "costo": 25.00}]}
+                                """))
+                .andExpect(status().isOk());
+        estadisticas.clear();
+
+        // El 5 de octubre sigue en caché; el 6 y el mes se recalculan con la venta nueva
+        mockMvc.perform(get("/ventas/ganancias/diarias").param("fecha", "2025-10-05")).andExpect(status().isOk());
+        mockMvc.perform(get("/ventas/ganancias/diarias").param("fecha", "2025-10-06"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").value(30.0));
+        mockMvc.perform(get("/ventas/ganancias/mensuales").param("mes", "10").param("anio", "2025"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").value(30.0));
+        assertThat(estadisticas.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    /** Prueba 6: cada petición publica sus sentencias SQL, filas y entidades cargadas, y VentaService su timer. */
+    @Test
+    void testPeticionPublicaMetricasDeSqlYTimerDeServicio() throws Exception {
+        DistributionSummary sentencias = meterRegistry.summary("ventas.peticion.sentencias", "uri", "/ventas", "method", "GET");
+        DistributionSummary filas = meterRegistry.summary("ventas.peticion.filas", "uri", "/ventas", "method", "GET");
+        DistributionSummary entidades = meterRegistry.summary("ventas.peticion.entidades", "uri", "/ventas", "method", "GET");
+        long peticionesAntes = sentencias.count();
+        double sentenciasAntes = sentencias.totalAmount();
+        double filasAntes = filas.totalAmount();
+        double entidadesAntes = entidades.totalAmount();
+
+        mockMvc.perform(get("/ventas").param("tamanio", "5")).andExpect(status().isOk());
+
+        assertThat(sentencias.count()).isEqualTo(peticionesAntes + 1);
+        assertThat(sentencias.totalAmount() - sentenciasAntes).isEqualTo(2);
+        // El listado se lee con proyecciones (VentaVista), sin cargar entidades: 6 IDs (uno de más para
+        // saber si hay otra página) y los 15 detalles de las 5 ventas
+        assertThat(filas.totalAmount() - filasAntes).isEqualTo(21);
+        assertThat(entidades.totalAmount() - entidadesAntes).isZero();
+        // Las escrituras sí cargan entidades: PATCH de una línea lee ese detalle y su venta
+        DistributionSummary entidadesPatch = meterRegistry.summary("ventas.peticion.entidades",
+                "uri", "/ventas/{id}/detalles/{idDetalle}", "method", "PATCH");
+        double entidadesPatchAntes = entidadesPatch.totalAmount();
+        int idDetalle = ventaRepository.findById(primerId).orElseThrow().getDetalles().get(0).getId();
+        mockMvc.perform(patch("/ventas/{id}/detalles/{idDetalle}", primerId, idDetalle)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"cantidad\": 2}"))
+                .andExpect(status().isOk());
+        assertThat(entidadesPatch.totalAmount() - entidadesPatchAntes).isEqualTo(2);
+        assertThat(meterRegistry.get("ventas.servicio").tag("method", "listarPagina").timer().count()).isPositive();
+    }
+}
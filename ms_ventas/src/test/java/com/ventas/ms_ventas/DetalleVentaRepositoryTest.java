@@ -0,0 +1,83 @@
+package com.ventas.ms_ventas;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pruebas de las consultas de agregación de DetalleVentaRepository sobre H2. Usa una base propia en
+ * modo Oracle, como las demás pruebas, porque las migraciones usan funciones de Oracle (SYSTIMESTAMP).
+ */
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:repositorio;MODE=Oracle;DB_CLOSE_DELAY=-1")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class DetalleVentaRepositoryTest {
+
+    @Autowired
+    private VentaRepository ventaRepository;
+
+    @Autowired
+    private DetalleVentaRepository detalleVentaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private void guardarVenta(String cliente, LocalDateTime fecha, DetalleVenta... detalles) {
+        Venta venta = new Venta();
+        venta.setCliente(cliente);
+        venta.setFecha(fecha);
+        venta.setDetalles(new ArrayList<>(List.of(detalles)));
+        ventaRepository.save(venta);
+    }
+
+    @BeforeEach
+    void cargarVentas() {
+        // Ganancia (10 - 6) * 3 = 12 el día 5 a medianoche
+        guardarVenta("Cliente A", LocalDateTime.of(2025, 10, 5, 0, 0),
+                new DetalleVenta("Prod A", 3, new BigDecimal("10.00"), new BigDecimal("6.00")));
+        // Ganancia (5 - 2) * 2 + (8 - 7.50) * 1 = 6.50 el día 5 al final del día
+        guardarVenta("Cliente B", LocalDateTime.of(2025, 10, 5, 23, 59, 59),
+                new DetalleVenta("Prod B", 2, new BigDecimal("5.00"), new BigDecimal("2.00")),
+                new DetalleVenta("Prod C", 1, new BigDecimal("8.00"), new BigDecimal("7.50")));
+        // Ganancia (20 - 15) * 1 = 5 el día 6, fuera del rango diario
+        guardarVenta("Cliente C", LocalDateTime.of(2025, 10, 6, 0, 0),
+                new DetalleVenta("Prod A", 1, new BigDecimal("20.00"), new BigDecimal("15.00")));
+    }
+
+    @Test
+    void testSumarGananciasEntreRangoSemiabierto() {
+        BigDecimal ganancia = detalleVentaRepository.sumarGananciasEntre(
+                LocalDateTime.of(2025, 10, 5, 0, 0), LocalDateTime.of(2025, 10, 6, 0, 0));
+
+        assertThat(ganancia).isEqualByComparingTo("18.50");
+    }
+
+    @Test
+    void testSumarGananciasEntreSinVentasDevuelveCero() {
+        BigDecimal ganancia = detalleVentaRepository.sumarGananciasEntre(
+                LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2025, 1, 1, 0, 0));
+
+        assertThat(ganancia).isEqualByComparingTo(BigDecimal.ZERO);
+    }
+
+    /** El rango de fechas de las ganancias usa los índices creados por las migraciones. */
+    @Test
+    void testSumarGananciasEntreUsaIndicesDeFechaYDetalle() {
+        String plan = jdbcTemplate.queryForObject("""
+                EXPLAIN SELECT COALESCE(SUM((d.PRECIO - d.COSTO) * d.CANTIDAD), 0)
+                FROM DETALLE_VENTA d JOIN VENTA v ON v.ID = d.ID_VENTA
+                WHERE v.FECHA >= TIMESTAMP '2025-10-05 00:00:00' AND v.FECHA < TIMESTAMP '2025-10-06 00:00:00'
+                """, String.class);
+
+        assertThat(plan).contains("IX_VENTA_FECHA", "IX_DETALLE_VENTA_GANANCIA");
+    }
+}
@@ -0,0 +1,312 @@
+package com.ventas.ms_ventas;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Pruebas de la escritura diferida con el diario en un directorio temporal. No es @Transactional:
+ * las ventas se guardan desde el hilo del diario.
+ */
+@SpringBootTest(properties = {
+        "ventas.diario.habilitado=true",
+        "ventas.diario.espera-grupo=0ms",
+        "ventas.diario.reintento=100ms"
+})
+public class EscrituraDiferidaTest {
+
+    @TempDir
+    static Path directorio;
+
+    @DynamicPropertySource
+    static void propiedades(DynamicPropertyRegistry registro) {
+        registro.add("ventas.diario.directorio", () -> directorio.resolve("diario").toString());
+    }
+
+    @Autowired
+    private EscrituraDiferida escrituraDiferida;
+
+    @Autowired
+    private VentaRepository ventaRepository;
+
+    @Autowired
+    private GananciaDiariaRepository gananciaDiariaRepository;
+
+    @Autowired
+    private GananciaDiariaService gananciaDiariaService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventos;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void limpiar() {
+        ventaRepository.deleteAll();
+        gananciaDiariaRepository.deleteAll();
+    }
+
+    private Venta venta(String cliente, LocalDateTime fecha, DetalleVenta... detalles) {
+        Venta venta = new Venta();
+        venta.setCliente(cliente);
+        venta.setFecha(fecha);
+        venta.setDetalles(new ArrayList<>(List.of(detalles)));
+        return venta;
+    }
+
+    private DetalleVenta detalle(String producto, int cantidad, String precio, String costo) {
+        return new DetalleVenta(producto, cantidad, new BigDecimal(precio), new BigDecimal(costo));
+    }
+
+    private static void esperarHasta(BooleanSupplier condicion) throws InterruptedException {
+        long limite = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condicion.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("tiempo de espera agotado").isLessThan(limite);
+            Thread.sleep(20);
+        }
+    }
+
+    /** Prueba 1: ventas registradas en paralelo reciben IDs distintos y llegan a la base de datos. */
+    @Test
+    void testRegistrarYGuardar() throws Exception {
+        List<Venta> registradas = new ArrayList<>();
+        ExecutorService hilos = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Venta>> futuros = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                Venta venta = venta("Cliente " + i, LocalDateTime.of(2025, 10, 5, 10, 0),
+                        detalle("Prod A", 2, "10.00", "6.00"), detalle("Prod B", 1, "5.00", "4.00"));
+                futuros.add(hilos.submit(() -> escrituraDiferida.registrar(venta)));
+            }
+            for (Future<Venta> futuro : futuros) {
+                registradas.add(futuro.get());
+            }
+        } finally {
+            hilos.shutdown();
+        }
+        assertThat(registradas).extracting(Venta::getId).doesNotHaveDuplicates().doesNotContain(0);
+        assertThat(registradas.get(0).getTotal()).isEqualByComparingTo("25.00");
+
+        esperarHasta(() -> escrituraDiferida.estado().pendientes() == 0);
+        EstadoEscrituraDiferida estado = escrituraDiferida.estado();
+        assertThat(estado.secuenciaConfirmada()).isEqualTo(estado.secuenciaEscrita());
+        assertThat(estado.ultimoError()).isNull();
+        assertThat(ventaRepository.count()).isEqualTo(40);
+        Venta guardada = ventaRepository.findById(registradas.get(7).getId()).orElseThrow();
+        assertThat(guardada.getDetalles()).hasSize(2);
+        assertThat(escrituraDiferida.estado(guardada.getId()).estado()).isEqualTo(PersistenciaVenta.Estado.PERSISTIDA);
+        assertThat(escrituraDiferida.estado(-1).estado()).isEqualTo(PersistenciaVenta.Estado.DESCONOCIDA);
+        // 40 ventas con 9.00 de ganancia cada una
+        assertThat(gananciaDiariaService.sumarGananciasEntre(LocalDate.of(2025, 10, 5), LocalDate.of(2025, 10, 6)))
+                .isEqualByComparingTo("360.00");
+    }
+
+    /** Prueba 2: al arrancar se guardan los registros sin confirmar y se omiten los que ya estaban guardados. */
+    @Test
+    void testRecuperacionAlArrancar() throws Exception {
+        Path otroDirectorio = directorio.resolve("recuperacion");
+        Venta guardadaAntes = venta("Cliente A", LocalDateTime.of(2025, 10, 7, 10, 0), detalle("Prod A", 1, "10.00", "6.00"));
+        guardadaAntes.setId(900_001);
+        guardadaAntes.getDetalles().get(0).setId(900_001);
+        Venta sinGuardar = venta("Cliente B", LocalDateTime.of(2025, 10, 7, 11, 0), detalle("Prod B", 2, "10.00", "6.00"));
+        sinGuardar.setId(900_002);
+        sinGuardar.getDetalles().get(0).setId(900_002);
+        try (DiarioVentas diario = new DiarioVentas(otroDirectorio, 1 << 20, Duration.ZERO)) {
+            diario.abrir();
+            diario.agregar(objectMapper.writeValueAsBytes(guardadaAntes), secuencia -> {});
+            diario.agregar(objectMapper.writeValueAsBytes(sinGuardar), secuencia -> {});
+        }
+        // Caída después del COMMIT de la primera venta y antes de confirmarla en el diario
+        jdbcTemplate.update("INSERT INTO VENTA (ID, CLIENTE, TOTAL, FECHA) VALUES (900001, 'Cliente A', 10.00, ?)",
+                guardadaAntes.getFecha());
+        jdbcTemplate.update("INSERT INTO DETALLE_VENTA (ID, ID_VENTA, PRODUCTO, CANTIDAD, PRECIO, COSTO) "
+                + "VALUES (900001, 900001, 'Prod A', 1, 10.00, 6.00)");
+
+        EscrituraDiferida recuperada = new EscrituraDiferida(true, otroDirectorio, DataSize.ofMegabytes(1),
+                Duration.ZERO, 500, Duration.ofMillis(100), jdbcTemplate, transactionManager,
+                gananciaDiariaService, eventos, objectMapper, new SimpleMeterRegistry());
+        recuperada.start();
+        try {
+            assertThat(recuperada.estado(900_002).estado()).isIn(PersistenciaVenta.Estado.PENDIENTE,
+                    PersistenciaVenta.Estado.PERSISTIDA);
+            esperarHasta(() -> recuperada.estado().pendientes() == 0);
+            assertThat(recuperada.estado().secuenciaConfirmada()).isEqualTo(2);
+        } finally {
+            recuperada.stop();
+        }
+        assertThat(ventaRepository.count()).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM DETALLE_VENTA", Integer.class)).isEqualTo(2);
+        // Solo se acumuló la venta que faltaba
+        assertThat(gananciaDiariaService.sumarGananciasEntre(LocalDate.of(2025, 10, 7), LocalDate.of(2025, 10, 8)))
+                .isEqualByComparingTo("8.00");
+        try (DiarioVentas diario = new DiarioVentas(otroDirectorio, 1 << 20, Duration.ZERO)) {
+            assertThat(diario.abrir()).isEmpty();
+        }
+    }
+
+    /** Prueba 3: el diario rota segmentos, borra los confirmados y descarta un registro cortado. */
+    @Test
+    void testSegmentosYRegistroCortado() throws Exception {
+        Path otroDirectorio = directorio.resolve("segmentos");
+        byte[] datos = "x".repeat(44).getBytes(StandardCharsets.UTF_8);
+        // Segmentos de 256 bytes: cuatro registros de 60 bytes por segmento
+        try (DiarioVentas diario = new DiarioVentas(otroDirectorio, 256, Duration.ZERO)) {
+            diario.abrir();
+            for (int i = 0; i < 10; i++) {
+                diario.agregar(datos, secuencia -> {});
+            }
+            diario.confirmar(4);
+        }
+        assertThat(segmentos(otroDirectorio)).hasSize(2);
+
+        // El último registro (secuencia 10) queda cortado: un byte de sus datos cambia
+        Path ultimo = segmentos(otroDirectorio).get(1);
+        try (RandomAccessFile archivo = new RandomAccessFile(ultimo.toFile(), "rw")) {
+            archivo.seek(60 + DiarioVentas.CABECERA);
+            archivo.write('y');
+        }
+        try (DiarioVentas diario = new DiarioVentas(otroDirectorio, 256, Duration.ZERO)) {
+            assertThat(diario.abrir()).extracting(DiarioVentas.Registro::secuencia).containsExactly(5L, 6L, 7L, 8L, 9L);
+            assertThat(diario.agregar(datos, secuencia -> {})).isEqualTo(10);
+        }
+        try (DiarioVentas diario = new DiarioVentas(otroDirectorio, 256, Duration.ZERO)) {
+            assertThat(diario.abrir()).extracting(DiarioVentas.Registro::secuencia).containsExactly(5L, 6L, 7L, 8L, 9L, 10L);
+        }
+    }
+
+    /** Prueba 4: si el lote se guardó pero falló la confirmación en el diario, el reintento no lo vuelve a insertar. */
+    @Test
+    void testReintentoDespuesDeGuardarOmiteLasExistentes() throws Exception {
+        // Un directorio en lugar del archivo temporal hace fallar la confirmación después del COMMIT
+        Path bloqueo = Files.createDirectory(directorio.resolve("diario").resolve("confirmado.tmp"));
+        Venta venta;
+        try {
+            venta = escrituraDiferida.registrar(venta("Cliente A", LocalDateTime.of(2025, 10, 9, 10, 0),
+                    detalle("Prod A", 1, "10.00", "6.00")));
+            esperarHasta(() -> ventaRepository.existsById(venta.getId()) && escrituraDiferida.estado().ultimoError() != null);
+            assertThat(escrituraDiferida.estado(venta.getId()).estado()).isEqualTo(PersistenciaVenta.Estado.PENDIENTE);
+        } finally {
+            Files.delete(bloqueo);
+        }
+
+        esperarHasta(() -> escrituraDiferida.estado().pendientes() == 0);
+        EstadoEscrituraDiferida estado = escrituraDiferida.estado();
+        assertThat(estado.secuenciaConfirmada()).isEqualTo(estado.secuenciaEscrita());
+        assertThat(estado.rechazadas()).isZero();
+        assertThat(estado.ultimoError()).isNull();
+        assertThat(escrituraDiferida.estado(venta.getId()).estado()).isEqualTo(PersistenciaVenta.Estado.PERSISTIDA);
+        // La ganancia se acumuló una sola vez
+        assertThat(gananciaDiariaService.sumarGananciasEntre(LocalDate.of(2025, 10, 9), LocalDate.of(2025, 10, 10)))
+                .isEqualByComparingTo("4.00");
+    }
+
+    /** Prueba 5: una venta que la base de datos rechaza se aparta sin frenar a las siguientes y sigue rechazada al rearrancar. */
+    @Test
+    void testVentaRechazadaNoFrenaElDiario() throws Exception {
+        Path otroDirectorio = directorio.resolve("rechazo");
+        // El diario no revalida al recuperar, así que el cliente demasiado largo llega a la base de datos
+        Venta rechazada = venta("x".repeat(300), LocalDateTime.of(2025, 10, 11, 10, 0), detalle("Prod A", 1, "10.00", "6.00"));
+        rechazada.setId(900_011);
+        rechazada.getDetalles().get(0).setId(900_011);
+        Venta valida = venta("Cliente B", LocalDateTime.of(2025, 10, 11, 11, 0), detalle("Prod B", 2, "10.00", "6.00"));
+        valida.setId(900_012);
+        valida.getDetalles().get(0).setId(900_012);
+        try (DiarioVentas diario = new DiarioVentas(otroDirectorio, 1 << 20, Duration.ZERO)) {
+            diario.abrir();
+            diario.agregar(objectMapper.writeValueAsBytes(rechazada), secuencia -> {});
+            diario.agregar(objectMapper.writeValueAsBytes(valida), secuencia -> {});
+        }
+
+        EscrituraDiferida recuperada = nuevaEscritura(otroDirectorio);
+        recuperada.start();
+        try {
+            esperarHasta(() -> recuperada.estado().pendientes() == 0);
+            EstadoEscrituraDiferida estado = recuperada.estado();
+            assertThat(estado.secuenciaConfirmada()).isEqualTo(2);
+            assertThat(estado.rechazadas()).isEqualTo(1);
+            PersistenciaVenta persistencia = recuperada.estado(900_011);
+            assertThat(persistencia.estado()).isEqualTo(PersistenciaVenta.Estado.RECHAZADA);
+            assertThat(persistencia.error()).isNotBlank();
+            assertThat(recuperada.estado(900_012).estado()).isEqualTo(PersistenciaVenta.Estado.PERSISTIDA);
+        } finally {
+            recuperada.stop();
+        }
+        assertThat(ventaRepository.count()).isEqualTo(1);
+        assertThat(gananciaDiariaService.sumarGananciasEntre(LocalDate.of(2025, 10, 11), LocalDate.of(2025, 10, 12)))
+                .isEqualByComparingTo("8.00");
+        // La venta rechazada queda en rechazadas.log para revisarla, y su estado se conserva al rearrancar
+        List<String> lineas = Files.readAllLines(otroDirectorio.resolve("rechazadas.log"));
+        assertThat(lineas).hasSize(1);
+        assertThat(objectMapper.readValue(lineas.get(0), EscrituraDiferida.Rechazada.class).venta().getId()).isEqualTo(900_011);
+        EscrituraDiferida rearrancada = nuevaEscritura(otroDirectorio);
+        rearrancada.start();
+        try {
+            assertThat(rearrancada.estado().pendientes()).isZero();
+            assertThat(rearrancada.estado(900_011).estado()).isEqualTo(PersistenciaVenta.Estado.RECHAZADA);
+        } finally {
+            rearrancada.stop();
+        }
+    }
+
+    /** Prueba 6: una venta que no entra en las columnas se rechaza al registrarla, antes de escribir el diario. */
+    @Test
+    void testRegistrarRechazaValoresQueNoEntranEnLasColumnas() {
+        long escritaAntes = escrituraDiferida.estado().secuenciaEscrita();
+
+        assertThatThrownBy(() -> escrituraDiferida.registrar(venta("x".repeat(300), LocalDateTime.of(2025, 10, 11, 12, 0),
+                detalle("Prod A", 1, "10.00", "6.00"))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> escrituraDiferida.registrar(venta("Cliente A", LocalDateTime.of(2025, 10, 11, 12, 0),
+                detalle("Prod A", 1, "100000000000000000.00", "6.00"))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(escrituraDiferida.estado().secuenciaEscrita()).isEqualTo(escritaAntes);
+    }
+
+    private EscrituraDiferida nuevaEscritura(Path directorioDiario) {
+        return new EscrituraDiferida(true, directorioDiario, DataSize.ofMegabytes(1),
+                Duration.ZERO, 500, Duration.ofMillis(100), jdbcTemplate, transactionManager,
+                gananciaDiariaService, eventos, objectMapper, new SimpleMeterRegistry());
+    }
+
+    private static List<Path> segmentos(Path directorio) throws Exception {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos.filter(archivo -> archivo.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+}
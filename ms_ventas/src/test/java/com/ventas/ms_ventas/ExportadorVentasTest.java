@@ -0,0 +1,86 @@
+package com.ventas.ms_ventas;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pruebas de la exportación de ventas en NDJSON y CSV sobre H2.
+ */
+@SpringBootTest
+@Transactional
+public class ExportadorVentasTest {
+
+    private static final LocalDate DESDE = LocalDate.of(2025, 10, 1);
+    private static final LocalDate HASTA = LocalDate.of(2025, 11, 1);
+
+    @Autowired
+    private ExportadorVentas exportadorVentas;
+
+    @Autowired
+    private VentaRepository ventaRepository;
+
+    private int idConDetalles;
+    private int idSinDetalles;
+
+    private Venta guardarVenta(String cliente, LocalDateTime fecha, DetalleVenta... detalles) {
+        Venta venta = new Venta();
+        venta.setCliente(cliente);
+        venta.setFecha(fecha);
+        venta.setDetalles(new ArrayList<>(List.of(detalles)));
+        return ventaRepository.save(venta);
+    }
+
+    @BeforeEach
+    void cargarVentas() {
+        idConDetalles = guardarVenta("Pérez, Juan", LocalDateTime.of(2025, 10, 5, 10, 0),
+                new DetalleVenta("Prod \"A\"", 2, new BigDecimal("10.00"), new BigDecimal("6.00")),
+                new DetalleVenta("Prod B", 1, new BigDecimal("5.00"), new BigDecimal("2.00"))).getId();
+        idSinDetalles = guardarVenta("Cliente B", LocalDateTime.of(2025, 10, 31, 23, 0)).getId();
+        // Fuera del rango: no debe exportarse
+        guardarVenta("Cliente C", LocalDateTime.of(2025, 11, 1, 0, 0),
+                new DetalleVenta("Prod A", 1, new BigDecimal("10.00"), new BigDecimal("6.00")));
+    }
+
+    private String exportar(FormatoExportacion formato) throws Exception {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        exportadorVentas.exportar(DESDE, HASTA, formato, salida);
+        return salida.toString(StandardCharsets.UTF_8);
+    }
+
+    /** Prueba 1: NDJSON escribe una venta por línea con sus detalles anidados. */
+    @Test
+    void testExportarNdjson() throws Exception {
+        String[] lineas = exportar(FormatoExportacion.NDJSON).split("\n");
+
+        assertThat(lineas).hasSize(2);
+        assertThat(lineas[0]).startsWith("{\"id\":" + idConDetalles + ",\"cliente\":\"Pérez, Juan\"")
+                .contains("\"fecha\":\"2025-10-05T10:00\"", "\"producto\":\"Prod \\\"A\\\"\"", "\"producto\":\"Prod B\"");
+        assertThat(lineas[1]).isEqualTo("{\"id\":" + idSinDetalles
+                + ",\"cliente\":\"Cliente B\",\"fecha\":\"2025-10-31T23:00\",\"total\":0.00,\"detalles\":[]}");
+    }
+
+    /** Prueba 2: CSV escribe un detalle por línea y escapa los textos con separadores o comillas. */
+    @Test
+    void testExportarCsv() throws Exception {
+        String[] lineas = exportar(FormatoExportacion.CSV).split("\n");
+
+        assertThat(lineas).hasSize(4);
+        assertThat(lineas[0]).isEqualTo("id_venta,cliente,fecha,total,id_detalle,producto,cantidad,precio,costo");
+        assertThat(lineas[1]).startsWith(idConDetalles + ",\"Pérez, Juan\",2025-10-05T10:00,25.00,")
+                .endsWith(",\"Prod \"\"A\"\"\",2,10.00,6.00");
+        assertThat(lineas[3]).isEqualTo(idSinDetalles + ",Cliente B,2025-10-31T23:00,0.00,,,,,");
+    }
+}
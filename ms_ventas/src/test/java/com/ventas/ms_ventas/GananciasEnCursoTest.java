@@ -0,0 +1,139 @@
+package com.ventas.ms_ventas;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Pruebas de GananciasEnCurso sin Spring: el cálculo queda detenido en un cerrojo hasta que todas
+ * las consultas simultáneas llegaron, así se sabe cuáles lo comparten.
+ */
+public class GananciasEnCursoTest {
+
+    private static final ClaveGanancia OCTUBRE = ClaveGanancia.mensual(10, 2025);
+    private static final int CONSULTAS = 8;
+
+    private MeterRegistry meterRegistry;
+    private GananciasEnCurso gananciasEnCurso;
+
+    @BeforeEach
+    void crear() {
+        meterRegistry = new SimpleMeterRegistry();
+        gananciasEnCurso = new GananciasEnCurso(meterRegistry, new DesalojoDiferido(false, Duration.ZERO, Duration.ZERO));
+    }
+
+    private double consultas(String granularidad, String resultado) {
+        return meterRegistry.get("ventas.ganancias.consultas")
+                .tag("granularidad", granularidad).tag("resultado", resultado).counter().count();
+    }
+
+    // Lanza CONSULTAS consultas del mismo período y espera a que la primera esté calculando y las
+    // demás esperándola antes de soltar el cálculo
+    private List<Future<BigDecimal>> consultarAlMismoTiempo(ExecutorService hilos, AtomicInteger calculos,
+                                                            CountDownLatch soltar, RuntimeException error) throws Exception {
+        CountDownLatch calculando = new CountDownLatch(1);
+        List<Future<BigDecimal>> resultados = new ArrayList<>();
+        for (int i = 0; i < CONSULTAS; i++) {
+            resultados.add(hilos.submit(() -> gananciasEnCurso.compartir(OCTUBRE, () -> {
+                calculos.incrementAndGet();
+                calculando.countDown();
+                try {
+                    soltar.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                if (error != null) {
+                    throw error;
+                }
+                return new BigDecimal("12.00");
+            })));
+        }
+        assertThat(calculando.await(5, TimeUnit.SECONDS)).isTrue();
+        while (consultas("MENSUAL", "compartida") < CONSULTAS - 1) {
+            Thread.sleep(1);
+        }
+        soltar.countDown();
+        return resultados;
+    }
+
+    /** Prueba 1: las consultas iguales simultáneas comparten un cálculo y todas reciben su resultado. */
+    @Test
+    void testConsultasSimultaneasCompartenCalculo() throws Exception {
+        AtomicInteger calculos = new AtomicInteger();
+        try (ExecutorService hilos = Executors.newFixedThreadPool(CONSULTAS)) {
+            for (Future<BigDecimal> resultado : consultarAlMismoTiempo(hilos, calculos, new CountDownLatch(1), null)) {
+                assertThat(resultado.get()).isEqualByComparingTo("12.00");
+            }
+        }
+        assertThat(calculos.get()).isEqualTo(1);
+        assertThat(consultas("MENSUAL", "calculada")).isEqualTo(1);
+        assertThat(consultas("MENSUAL", "compartida")).isEqualTo(CONSULTAS - 1);
+
+        // Terminado el cálculo, la consulta siguiente calcula de nuevo (el resultado lo guarda CacheGanancias)
+        assertThat(gananciasEnCurso.compartir(OCTUBRE, () -> BigDecimal.ONE)).isEqualByComparingTo("1");
+        assertThat(consultas("MENSUAL", "calculada")).isEqualTo(2);
+    }
+
+    /** Prueba 2: el error del cálculo compartido llega sin envolver a todas las consultas que lo esperaban. */
+    @Test
+    void testErrorSeEntregaATodas() throws Exception {
+        AtomicInteger calculos = new AtomicInteger();
+        IllegalStateException error = new IllegalStateException("Base de datos no disponible");
+        try (ExecutorService hilos = Executors.newFixedThreadPool(CONSULTAS)) {
+            for (Future<BigDecimal> resultado : consultarAlMismoTiempo(hilos, calculos, new CountDownLatch(1), error)) {
+                assertThatThrownBy(resultado::get).hasCause(error);
+            }
+        }
+        assertThat(calculos.get()).isEqualTo(1);
+    }
+
+    /** Prueba 3: distinto período o granularidad no se comparten, y una escritura del período deja de compartir el cálculo en curso. */
+    @Test
+    void testEscrituraDejaDeCompartirCalculo() throws Exception {
+        CountDownLatch soltar = new CountDownLatch(1);
+        CountDownLatch calculando = new CountDownLatch(1);
+        try (ExecutorService hilos = Executors.newFixedThreadPool(2)) {
+            Future<BigDecimal> anterior = hilos.submit(() -> gananciasEnCurso.compartir(OCTUBRE, () -> {
+                calculando.countDown();
+                try {
+                    soltar.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return new BigDecimal("12.00");
+            }));
+            assertThat(calculando.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // Otro período y un rango con los mismos días no esperan el cálculo en curso
+            assertThat(gananciasEnCurso.compartir(ClaveGanancia.mensual(11, 2025), () -> BigDecimal.ONE)).isEqualByComparingTo("1");
+            assertThat(gananciasEnCurso.compartirRango(OCTUBRE.inicio(), OCTUBRE.fin(), () -> BigDecimal.TWO)).isEqualByComparingTo("2");
+            // Una escritura de noviembre no afecta al cálculo de octubre en curso
+            gananciasEnCurso.alModificarGanancias(GananciasModificadas.delDia(LocalDate.of(2025, 11, 1)));
+            // Una escritura del 31 de octubre sí: la consulta siguiente calcula con lo confirmado
+            gananciasEnCurso.alModificarGanancias(GananciasModificadas.delDia(LocalDate.of(2025, 10, 31)));
+            assertThat(gananciasEnCurso.compartir(OCTUBRE, () -> new BigDecimal("15.00"))).isEqualByComparingTo("15.00");
+
+            soltar.countDown();
+            assertThat(anterior.get()).isEqualByComparingTo("12.00");
+        }
+        assertThat(consultas("MENSUAL", "compartida")).isZero();
+        assertThat(consultas("MENSUAL", "calculada")).isEqualTo(3);
+        assertThat(consultas("RANGO", "calculada")).isEqualTo(1);
+    }
+}
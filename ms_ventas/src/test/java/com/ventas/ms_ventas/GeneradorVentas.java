@@ -0,0 +1,190 @@
+package com.ventas.ms_ventas;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Genera ventas sintéticas reproducibles (misma semilla, mismos datos) para benchmarks y pruebas de carga.
+ * Las ventas se reparten entre [desde, hasta). Sin sesgo (el constructor de un argumento) clientes,
+ * productos, fechas e importes son uniformes y cada venta tiene entre 1 y 5 detalles.
+ * <p>
+ * Con sesgo se parecen más a las de producción: clientes y productos siguen una distribución de Zipf
+ * con ese exponente (con 1.0 el 1 % de los productos más vendidos reúne cerca del 45 % de las
+ * líneas), cada producto tiene costo y margen propios con variaciones de precio de hasta ±5 %, las
+ * ventas caen sobre todo entre las 9 y las 21 h y más los fines de semana, y la mayoría tiene pocas
+ * líneas de pocas unidades.
+ */
+public class GeneradorVentas {
+
+    public static final int CLIENTES = 5_000;
+    public static final int PRODUCTOS = 2_000;
+    private static final int FILAS_POR_LOTE = 10_000;
+
+    private final SplittableRandom aleatorio;
+    private final Zipf clientes;
+    private final Zipf productos;
+    private final long[] costosCentavos;
+    private final int[] margenes;
+
+    public GeneradorVentas(long semilla) {
+        this(semilla, 0);
+    }
+
+    public GeneradorVentas(long semilla, double sesgo) {
+        this.aleatorio = new SplittableRandom(semilla);
+        if (sesgo > 0) {
+            this.clientes = new Zipf(CLIENTES, sesgo);
+            this.productos = new Zipf(PRODUCTOS, sesgo);
+            // Catálogo fijo: costo y margen (entre -5 % y +60 %) de cada producto
+            SplittableRandom catalogo = new SplittableRandom(semilla ^ 0x5DEECE66DL);
+            this.costosCentavos = new long[PRODUCTOS];
+            this.margenes = new int[PRODUCTOS];
+            for (int i = 0; i < PRODUCTOS; i++) {
+                costosCentavos[i] = 100 + catalogo.nextInt(50_000);
+                margenes[i] = catalogo.nextInt(66) - 5;
+            }
+        } else {
+            this.clientes = null;
+            this.productos = null;
+            this.costosCentavos = null;
+            this.margenes = null;
+        }
+    }
+
+    // Ventas en memoria (sin ID), para benchmarks que no usan base de datos
+    public List<Venta> generar(int cantidad, LocalDate desde, LocalDate hasta) {
+        List<Venta> ventas = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            ventas.add(siguienteVenta(desde, hasta));
+        }
+        return ventas;
+    }
+
+    public Venta siguienteVenta(LocalDate desde, LocalDate hasta) {
+        if (productos != null) {
+            return siguienteVentaSesgada(desde, hasta);
+        }
+        Venta venta = new Venta();
+        venta.setCliente("Cliente-" + aleatorio.nextInt(CLIENTES));
+        venta.setFecha(fechaAleatoria(desde, hasta));
+        int lineas = 1 + aleatorio.nextInt(5);
+        List<DetalleVenta> detalles = new ArrayList<>(lineas);
+        for (int j = 0; j < lineas; j++) {
+            long costoCentavos = 100 + aleatorio.nextInt(50_000);
+            // Margen entre -10 % y +60 % sobre el costo
+            long precioCentavos = costoCentavos + costoCentavos * (aleatorio.nextInt(71) - 10) / 100;
+            detalles.add(new DetalleVenta("Producto-" + aleatorio.nextInt(PRODUCTOS), 1 + aleatorio.nextInt(10),
+                    Dinero.deCentavos(precioCentavos), Dinero.deCentavos(costoCentavos)));
+        }
+        venta.setDetalles(detalles);
+        return venta;
+    }
+
+    private Venta siguienteVentaSesgada(LocalDate desde, LocalDate hasta) {
+        Venta venta = new Venta();
+        venta.setCliente("Cliente-" + clientes.siguiente(aleatorio));
+        venta.setFecha(fechaComercial(desde, hasta));
+        int lineas = Math.min(8, 1 + geometrica(0.45));
+        List<DetalleVenta> detalles = new ArrayList<>(lineas);
+        for (int j = 0; j < lineas; j++) {
+            int producto = productos.siguiente(aleatorio);
+            long costoCentavos = costosCentavos[producto];
+            long listaCentavos = costoCentavos + costoCentavos * margenes[producto] / 100;
+            long precioCentavos = listaCentavos + listaCentavos * (aleatorio.nextInt(11) - 5) / 100;
+            detalles.add(new DetalleVenta("Producto-" + producto, Math.min(10, 1 + geometrica(0.6)),
+                    Dinero.deCentavos(precioCentavos), Dinero.deCentavos(costoCentavos)));
+        }
+        venta.setDetalles(detalles);
+        return venta;
+    }
+
+    // Cantidad de fracasos antes del primer éxito con probabilidad p: 0 es lo más frecuente
+    private int geometrica(double p) {
+        return (int) (Math.log(1 - aleatorio.nextDouble()) / Math.log(1 - p));
+    }
+
+    // Fecha en [desde, hasta): los sábados y domingos reciben el doble de ventas que los demás días y
+    // nueve de cada diez ventas caen entre las 9 y las 21 h
+    private LocalDateTime fechaComercial(LocalDate desde, LocalDate hasta) {
+        long dias = ChronoUnit.DAYS.between(desde, hasta);
+        LocalDate dia;
+        do {
+            dia = desde.plusDays(aleatorio.nextLong(dias));
+        } while (dia.getDayOfWeek().getValue() < 6 && aleatorio.nextBoolean());
+        long segundos = aleatorio.nextInt(10) < 9
+                ? 9 * 3600 + aleatorio.nextLong(12 * 3600)
+                : aleatorio.nextLong(24 * 3600);
+        return dia.atStartOfDay().plusSeconds(segundos);
+    }
+
+    /**
+     * Distribución de Zipf sobre [0, n): el elemento k sale con probabilidad proporcional a 1 / (k + 1)^s.
+     * Se muestrea con una búsqueda binaria sobre la distribución acumulada.
+     */
+    public static final class Zipf {
+
+        private final double[] acumulada;
+
+        public Zipf(int n, double s) {
+            acumulada = new double[n];
+            double total = 0;
+            for (int k = 0; k < n; k++) {
+                total += 1 / Math.pow(k + 1, s);
+                acumulada[k] = total;
+            }
+            for (int k = 0; k < n; k++) {
+                acumulada[k] /= total;
+            }
+        }
+
+        public int siguiente(SplittableRandom aleatorio) {
+            int indice = Arrays.binarySearch(acumulada, aleatorio.nextDouble());
+            return Math.min(acumulada.length - 1, indice >= 0 ? indice : -indice - 1);
+        }
+    }
+
+    // Inserta las ventas directamente con lotes JDBC (mucho más rápido que JPA para millones de filas)
+    // y reinicia las secuencias por encima de los IDs usados. Cada NEXTVAL es el último ID de un bloque
+    // (ver ReservaIds), así que el primero debe superar el máximo en un bloque entero. GANANCIA_DIARIA
+    // no se actualiza: hay que reconstruirla después con GananciaDiariaService.reconstruir.
+    public void cargar(JdbcTemplate jdbc, int cantidad, LocalDate desde, LocalDate hasta) {
+        List<Object[]> filasVenta = new ArrayList<>(FILAS_POR_LOTE);
+        List<Object[]> filasDetalle = new ArrayList<>(FILAS_POR_LOTE * 5);
+        int idDetalle = 0;
+        for (int idVenta = 1; idVenta <= cantidad; idVenta++) {
+            Venta venta = siguienteVenta(desde, hasta);
+            filasVenta.add(new Object[]{idVenta, venta.getCliente(), venta.getTotal(), Timestamp.valueOf(venta.getFecha())});
+            for (DetalleVenta detalle : venta.getDetalles()) {
+                filasDetalle.add(new Object[]{++idDetalle, idVenta, detalle.getProducto(), detalle.getCantidad(),
+                        detalle.getPrecio(), detalle.getCosto()});
+            }
+            if (filasVenta.size() == FILAS_POR_LOTE || idVenta == cantidad) {
+                jdbc.batchUpdate("INSERT INTO VENTA (ID, CLIENTE, TOTAL, FECHA) VALUES (?, ?, ?, ?)", filasVenta);
+                jdbc.batchUpdate("INSERT INTO DETALLE_VENTA (ID, ID_VENTA, PRODUCTO, CANTIDAD, PRECIO, COSTO) "
+                        + "VALUES (?, ?, ?, ?, ?, ?)", filasDetalle);
+                filasVenta.clear();
+                filasDetalle.clear();
+            }
+        }
+        reiniciarSecuencias(jdbc, cantidad, idDetalle);
+    }
+
+    static void reiniciarSecuencias(JdbcTemplate jdbc, int ultimaVenta, int ultimoDetalle) {
+        jdbc.execute("ALTER SEQUENCE VENTA_SEQ RESTART WITH " + (ultimaVenta + ReservaIds.INCREMENTO));
+        jdbc.execute("ALTER SEQUENCE DETALLE_VENTA_SEQ RESTART WITH " + (ultimoDetalle + ReservaIds.INCREMENTO));
+    }
+
+    // Fecha y hora aleatoria en [desde, hasta)
+    public LocalDateTime fechaAleatoria(LocalDate desde, LocalDate hasta) {
+        long segundos = ChronoUnit.SECONDS.between(desde.atStartOfDay(), hasta.atStartOfDay());
+        return desde.atStartOfDay().plusSeconds(aleatorio.nextLong(segundos));
+    }
+}
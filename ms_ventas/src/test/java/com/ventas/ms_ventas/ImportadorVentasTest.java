@@ -0,0 +1,103 @@
+package com.ventas.ms_ventas;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pruebas de la importación por lotes sobre H2. No es @Transactional porque el importador
+ * abre una transacción por lote; los datos se borran al terminar cada prueba.
+ */
+@SpringBootTest
+public class ImportadorVentasTest {
+
+    private static final LocalDate DIA = LocalDate.of(2025, 10, 5);
+
+    @Autowired
+    private ImportadorVentas importadorVentas;
+
+    @Autowired
+    private VentaRepository ventaRepository;
+
+    @Autowired
+    private GananciaDiariaRepository gananciaDiariaRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void limpiar() {
+        ventaRepository.deleteAll();
+        gananciaDiariaRepository.deleteAll();
+    }
+
+    private static String ventaJson(String cliente, int minuto) {
+        return "{\"cliente\":\"" + cliente + "\",\"fecha\":\"" + DIA.atTime(10, minuto % 60) + "\",\"detalles\":["
+                + "{\"producto\":\"Prod A\",\"cantidad\":2,\"precio\":10.00,\"costo\":6.00},"
+                + "{\"producto\":\"Prod B\",\"cantidad\":1,\"precio\":5.00,\"costo\":2.00}]}";
+    }
+
+    private ResultadoImportacion importar(String cuerpo) throws Exception {
+        return importadorVentas.importar(new ByteArrayInputStream(cuerpo.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /** Prueba 1: un arreglo JSON se guarda completo salvo las ventas inválidas, que se informan por posición. */
+    @Test
+    void testImportarArregloInformaRechazos() throws Exception {
+        String cuerpo = "[" + ventaJson("Cliente A", 0) + ",{\"cliente\":\"\",\"fecha\":\"" + DIA.atTime(9, 0) + "\"},"
+                + ventaJson("Cliente B", 1) + "]";
+
+        ResultadoImportacion resultado = importar(cuerpo);
+
+        assertThat(resultado.recibidas()).isEqualTo(3);
+        assertThat(resultado.guardadas()).isEqualTo(2);
+        assertThat(resultado.errores()).extracting(ErrorImportacion::indice).containsExactly(1);
+        assertThat(ventaRepository.count()).isEqualTo(2);
+        GananciaDiaria acumulado = gananciaDiariaRepository.findById(DIA).orElseThrow();
+        assertThat(acumulado.getCantidadVentas()).isEqualTo(2);
+        assertThat(acumulado.getGanancia()).isEqualByComparingTo("22.00");
+    }
+
+    /** Prueba 2: NDJSON se guarda con INSERT en lotes JDBC, con muchas menos sentencias que ventas. */
+    @Test
+    void testImportarNdjsonUsaLotesJdbc() throws Exception {
+        StringBuilder cuerpo = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            cuerpo.append(ventaJson("Cliente " + i, i)).append('\n');
+        }
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+
+        ResultadoImportacion resultado = importar(cuerpo.toString());
+
+        assertThat(resultado.guardadas()).isEqualTo(1000);
+        assertThat(resultado.errores()).isEmpty();
+        assertThat(ventaRepository.count()).isEqualTo(1000);
+        // 3000 filas: sin lotes serían al menos 3000 sentencias (más las de secuencia)
+        assertThat(estadisticas.getPrepareStatementCount()).isLessThan(200);
+        assertThat(gananciaDiariaRepository.findById(DIA).orElseThrow().getCantidadVentas()).isEqualTo(1000);
+    }
+
+    /** Prueba 3: si el cuerpo deja de ser JSON válido se guarda lo leído y se informa la posición. */
+    @Test
+    void testImportarJsonInvalidoDetieneLectura() throws Exception {
+        String cuerpo = ventaJson("Cliente A", 0) + "\n{\"cliente\": \n";
+
+        ResultadoImportacion resultado = importar(cuerpo);
+
+        assertThat(resultado.guardadas()).isEqualTo(1);
+        assertThat(resultado.errores()).singleElement()
+                .satisfies(error -> assertThat(error.indice()).isEqualTo(1));
+        assertThat(ventaRepository.count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,59 @@
+package com.ventas.ms_ventas;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pruebas de las migraciones de Flyway sin Spring, cada una sobre una base H2 propia.
+ */
+public class MigracionesTest {
+
+    private static DataSource base(String nombre) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + nombre + ";MODE=Oracle;DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    private static void migrar(DataSource base) {
+        Flyway.configure().dataSource(base).locations("classpath:db/migration")
+                .baselineOnMigrate(true).baselineVersion("1").load().migrate();
+    }
+
+    /** Prueba 1: en una base de antes de Flyway se crean GANANCIA_DIARIA y las secuencias por encima del MAX(ID). */
+    @Test
+    void testBaseExistenteArrancaSecuenciasSobreElMaximo() {
+        DataSource base = base("existente");
+        JdbcTemplate jdbc = new JdbcTemplate(base);
+        jdbc.execute("CREATE TABLE VENTA (ID NUMBER(10) NOT NULL PRIMARY KEY, CLIENTE VARCHAR2(255) NOT NULL, "
+                + "TOTAL NUMBER(19, 2) NOT NULL, FECHA TIMESTAMP NOT NULL)");
+        jdbc.execute("CREATE TABLE DETALLE_VENTA (ID NUMBER(10) NOT NULL PRIMARY KEY, ID_VENTA NUMBER(10) NOT NULL "
+                + "REFERENCES VENTA (ID), PRODUCTO VARCHAR2(255) NOT NULL, CANTIDAD NUMBER(10) NOT NULL, "
+                + "PRECIO NUMBER(19, 2) NOT NULL, COSTO NUMBER(19, 2) NOT NULL)");
+        jdbc.update("INSERT INTO VENTA VALUES (1234, 'Cliente', 10, CURRENT_TIMESTAMP)");
+        jdbc.update("INSERT INTO DETALLE_VENTA VALUES (5678, 1234, 'Producto', 1, 10, 4)");
+
+        migrar(base);
+
+        // El primer bloque del optimizador pooled empieza justo después del último ID existente
+        assertThat(jdbc.queryForObject("SELECT VENTA_SEQ.NEXTVAL FROM DUAL", Long.class))
+                .isEqualTo(1234 + ReservaIds.INCREMENTO);
+        assertThat(jdbc.queryForObject("SELECT DETALLE_VENTA_SEQ.NEXTVAL FROM DUAL", Long.class))
+                .isEqualTo(5678 + ReservaIds.INCREMENTO);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM GANANCIA_DIARIA", Integer.class)).isZero();
+    }
+
+    /** Prueba 2: en una base vacía las secuencias empiezan en 1. */
+    @Test
+    void testBaseNuevaArrancaSecuenciasEnUno() {
+        DataSource base = base("nueva");
+        migrar(base);
+
+        JdbcTemplate jdbc = new JdbcTemplate(base);
+        assertThat(jdbc.queryForObject("SELECT VENTA_SEQ.NEXTVAL FROM DUAL", Long.class)).isEqualTo(1);
+        assertThat(jdbc.queryForObject("SELECT DETALLE_VENTA_SEQ.NEXTVAL FROM DUAL", Long.class)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,154 @@
+package com.ventas.ms_ventas;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pruebas del enrutamiento a la réplica de lectura con dos bases H2 independientes: una hace de
+ * primario y la otra de réplica, sin replicación entre ellas. Así se ve a qué base fue cada
+ * operación; la replicación se simula escribiendo en la réplica con JDBC. Los latidos automáticos
+ * se espacian para que cada prueba mida el retraso cuando lo necesita.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primario;MODE=Oracle;DB_CLOSE_DELAY=-1",
+        "ventas.replica.habilitado=true",
+        "ventas.replica.datasource.jdbc-url=jdbc:h2:mem:replica;MODE=Oracle;DB_CLOSE_DELAY=-1",
+        "ventas.replica.datasource.username=sa",
+        "ventas.replica.datasource.driver-class-name=org.h2.Driver",
+        "ventas.replica.retraso-maximo=5s",
+        "ventas.replica.latido=1h"
+})
+public class ReplicaLecturaTest {
+
+    private static final LocalDate DIA = LocalDate.of(2025, 10, 5);
+
+    @Autowired
+    private VentaService ventaService;
+
+    @Autowired
+    private LatidoReplica latidoReplica;
+
+    @Autowired
+    private VentaRepository ventaRepository;
+
+    @Autowired
+    private GananciaDiariaRepository gananciaDiariaRepository;
+
+    @Autowired
+    private CacheGanancias cacheGanancias;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("dataSourcePrimario")
+    private DataSource dataSourcePrimario;
+
+    @Autowired
+    @Qualifier("dataSourceReplica")
+    private DataSource dataSourceReplica;
+
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void prepararReplica() {
+        // El esquema de la réplica llega por replicación; aquí se crea con las mismas migraciones
+        Flyway.configure().dataSource(dataSourceReplica).locations("classpath:db/migration").load().migrate();
+        replica = new JdbcTemplate(dataSourceReplica);
+        latirEnReplica(Instant.now());
+        latidoReplica.medir();
+    }
+
+    @AfterEach
+    void limpiar() {
+        ventaRepository.deleteAll();
+        gananciaDiariaRepository.deleteAll();
+        replica.update("DELETE FROM DETALLE_VENTA");
+        replica.update("DELETE FROM VENTA");
+        replica.update("DELETE FROM GANANCIA_DIARIA");
+        cacheGanancias.invalidarTodo();
+    }
+
+    private void latirEnReplica(Instant instante) {
+        replica.update("DELETE FROM LATIDO_REPLICA");
+        replica.update("INSERT INTO LATIDO_REPLICA (ID, INSTANTE) VALUES (1, ?)", Timestamp.from(instante));
+    }
+
+    private Venta guardarVenta() {
+        Venta venta = new Venta();
+        venta.setCliente("Cliente A");
+        venta.setFecha(DIA.atTime(10, 0));
+        venta.setDetalles(new ArrayList<>(List.of(new DetalleVenta("Prod A", 3, new BigDecimal("10.00"), new BigDecimal("6.00")))));
+        return ventaService.guardarVenta(venta);
+    }
+
+    // Lo que la replicación llevaría a la réplica para la venta guardada
+    private void replicar(Venta venta) {
+        replica.update("INSERT INTO VENTA (ID, CLIENTE, TOTAL, FECHA) VALUES (?, ?, ?, ?)",
+                venta.getId(), venta.getCliente(), venta.getTotal(), venta.getFecha());
+        DetalleVenta detalle = venta.getDetalles().get(0);
+        replica.update("INSERT INTO DETALLE_VENTA (ID, ID_VENTA, PRODUCTO, CANTIDAD, PRECIO, COSTO) VALUES (?, ?, ?, ?, ?, ?)",
+                detalle.getId(), venta.getId(), detalle.getProducto(), detalle.getCantidad(), detalle.getPrecio(), detalle.getCosto());
+    }
+
+    /** Prueba 1: las escrituras van al primario y las lecturas de solo lectura a la réplica. */
+    @Test
+    void testLecturasVanALaReplica() {
+        Venta venta = guardarVenta();
+
+        // La venta está solo en el primario. Hasta los métodos de solo lectura de los repositorios
+        // (count, findAll) van a la réplica, así que se consulta con JDBC
+        assertThat(new JdbcTemplate(dataSourcePrimario).queryForObject("SELECT COUNT(*) FROM VENTA", Long.class)).isEqualTo(1);
+        assertThat(replica.queryForObject("SELECT COUNT(*) FROM VENTA", Long.class)).isZero();
+        assertThat(ventaService.buscarPorId(venta.getId())).isEmpty();
+        assertThat(ventaService.listarPagina(new FiltroVentas(null, null, null), null, 10).ventas()).isEmpty();
+        assertThat(ventaService.getGananciasEntre(DIA, DIA.plusDays(1))).isEqualByComparingTo("0");
+
+        replicar(venta);
+
+        assertThat(ventaService.buscarPorId(venta.getId())).hasValueSatisfying(vista ->
+                assertThat(vista.total()).isEqualByComparingTo("30.00"));
+        assertThat(ventaService.listarPagina(new FiltroVentas(null, null, null), null, 10).ventas()).hasSize(1);
+        // GANANCIA_DIARIA no se replicó, así que la ganancia diaria (suma de detalles) sí la ve y el rango no
+        assertThat(ventaService.getGananciasDiarias(DIA)).isEqualByComparingTo("12.00");
+        assertThat(ventaService.getGananciasEntre(DIA, DIA.plusDays(1))).isEqualByComparingTo("0");
+    }
+
+    /** Prueba 2: con la réplica atrasada más que el retraso tolerado las lecturas vuelven al primario. */
+    @Test
+    void testReplicaAtrasadaUsaElPrimario() {
+        Venta venta = guardarVenta();
+        assertThat(latidoReplica.alDia()).isTrue();
+
+        latirEnReplica(Instant.now().minusSeconds(60));
+        latidoReplica.medir();
+
+        assertThat(latidoReplica.alDia()).isFalse();
+        assertThat(meterRegistry.get("ventas.replica.retraso").gauge().value()).isGreaterThanOrEqualTo(60);
+        assertThat(ventaService.buscarPorId(venta.getId())).isPresent();
+        assertThat(ventaService.getGananciasEntre(DIA, DIA.plusDays(1))).isEqualByComparingTo("12.00");
+
+        // Al ponerse al día vuelve a leerse la réplica, que todavía no tiene la venta
+        latirEnReplica(Instant.now());
+        latidoReplica.medir();
+        assertThat(latidoReplica.alDia()).isTrue();
+        assertThat(ventaService.listarPagina(new FiltroVentas(null, null, null), null, 10).ventas()).isEmpty();
+    }
+}
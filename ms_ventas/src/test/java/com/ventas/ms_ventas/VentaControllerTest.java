@@ -1,13 +1,19 @@
 package com.ventas.ms_ventas;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -15,6 +21,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -26,6 +34,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * Se utiliza @WebMvcTest para aislar la capa web y @MockBean para simular el VentaService.
  */
 @WebMvcTest(VentaController.class)
+@Import(ConfiguracionSerializacion.class)
 public class VentaControllerTest {
 
     @Autowired
@@ -37,6 +46,18 @@ public class VentaControllerTest {
     @MockBean
     private VentaService ventaService; // Simulamos el servicio para no depender de la lógica real ni de la BD
 
+    @MockBean
+    private ExportadorVentas exportadorVentas; // Simulamos la exportación por el mismo motivo
+
+    @MockBean
+    private ImportadorVentas importadorVentas; // Simulamos la importación por lotes
+
+    @MockBean
+    private AnaliticaVentas analiticaVentas; // Simulamos la analítica agrupada
+
+    @MockBean
+    private EscrituraDiferida escrituraDiferida; // Deshabilitada salvo en la prueba que la simula
+
     // ---  CREAR DATOS MOCK ---
 
     /** Crea un objeto DetalleVenta con todos los campos obligatorios. */
@@ -59,18 +80,32 @@ public class VentaControllerTest {
         return venta;
     }
 
+    /** Crea la vista de una venta como la devuelven las lecturas del servicio (GET). */
+    private VentaVista createVista(Venta venta) {
+        List<FilaExportacion> filas = new ArrayList<>();
+        for (DetalleVenta d : venta.getDetalles()) {
+            filas.add(new FilaExportacion(venta.getId(), venta.getCliente(), venta.getFecha(), venta.getTotal(), 0,
+                    d.getId(), d.getProducto(), d.getCantidad(), d.getPrecio(), d.getCosto()));
+        }
+        if (filas.isEmpty()) {
+            filas.add(new FilaExportacion(venta.getId(), venta.getCliente(), venta.getFecha(), venta.getTotal(), 0,
+                    null, null, null, null, null));
+        }
+        return VentaVista.agrupar(filas).get(0);
+    }
+
     // --- PRUEBAS CRUD BÁSICAS ---
 
-    /** Prueba 1: GET /ventas - Listar todas las ventas exitosamente. */
+    /** Prueba 1: GET /ventas - Listar la primera página de ventas exitosamente. */
     @Test
     void testListarTodasLasVentasExitoso() throws Exception {
         // ARRANGE
         DetalleVenta d1 = createDetalle(1, "Prod A", 10, "10.00", "5.00");
-        Venta v1 = createMockVenta(1, "Client A", List.of(d1));
-        List<Venta> ventas = List.of(v1);
+        VentaVista v1 = createVista(createMockVenta(1, "Client A", List.of(d1)));
+        PaginaVentas pagina = new PaginaVentas(List.of(v1), null);
 
-        // MOCKING: Cuando se llama a listarTodas(), devuelve la lista simulada.
-        when(ventaService.listarTodas()).thenReturn(ventas);
+        // MOCKING: Cuando se pide la primera página sin filtros, devuelve la página simulada.
+        when(ventaService.listarPagina(new FiltroVentas(null, null, null), null, 50)).thenReturn(pagina);
 
         // ACT & ASSERT
         mockMvc.perform(get("/ventas")
@@ -81,9 +116,62 @@ public class VentaControllerTest {
                 // Aserción CORREGIDA 2: La lista de ventas está bajo la ruta '._embedded.ventaList'
                 .andExpect(jsonPath("$._embedded.ventaList.length()").value(1))
                 // Aserción CORREGIDA 3: Acceder al cliente a través de la ruta HATEOAS
-                .andExpect(jsonPath("$._embedded.ventaList[0].cliente").value("Client A"));
+                .andExpect(jsonPath("$._embedded.ventaList[0].cliente").value("Client A"))
+                // Importes derivados y enlace 'self' de cada venta
+                .andExpect(jsonPath("$._embedded.ventaList[0].gananciaTotal").value(50.0))
+                .andExpect(jsonPath("$._embedded.ventaList[0].detalles[0].subtotal").value(100.0))
+                .andExpect(jsonPath("$._embedded.ventaList[0]._links.self.href").value("http://localhost/ventas/1"))
+                // Sin más resultados no hay enlace a la página siguiente
+                .andExpect(jsonPath("$._links.next").doesNotExist());
         
-        verify(ventaService, times(1)).listarTodas();
+        verify(ventaService, times(1)).listarPagina(new FiltroVentas(null, null, null), null, 50);
+    }
+
+    /** Prueba 1b: GET /ventas con filtros - El enlace 'next' conserva los filtros y avanza el cursor. */
+    @Test
+    void testListarVentasConFiltrosIncluyeEnlaceSiguiente() throws Exception {
+        // ARRANGE
+        VentaVista v1 = createVista(createMockVenta(7, "Client A", new ArrayList<>()));
+        VentaVista v2 = createVista(createMockVenta(9, "Client A", new ArrayList<>()));
+        FiltroVentas filtro = new FiltroVentas("Client A", LocalDate.of(2025, 10, 1), LocalDate.of(2025, 11, 1));
+
+        // MOCKING: La página tiene más resultados a partir de la venta 9.
+        when(ventaService.listarPagina(filtro, 3, 2)).thenReturn(new PaginaVentas(List.of(v1, v2), 9));
+
+        // ACT & ASSERT
+        mockMvc.perform(get("/ventas")
+                .param("cliente", "Client A")
+                .param("desde", "2025-10-01")
+                .param("hasta", "2025-11-01")
+                .param("despuesDe", "3")
+                .param("tamanio", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.ventaList.length()").value(2))
+                .andExpect(jsonPath("$._links.next.href").value(containsString("despuesDe=9")))
+                .andExpect(jsonPath("$._links.next.href").value(containsString("cliente=Client")));
+
+        verify(ventaService, times(1)).listarPagina(filtro, 3, 2);
+    }
+
+    /** Prueba 1c: GET /ventas con Accept application/cbor - Misma estructura HAL en formato binario. */
+    @Test
+    void testListarVentasEnCbor() throws Exception {
+        // ARRANGE
+        VentaVista v1 = createVista(createMockVenta(1, "Client A", List.of(createDetalle(1, "Prod A", 10, "10.00", "5.00"))));
+        when(ventaService.listarPagina(new FiltroVentas(null, null, null), null, 50))
+                .thenReturn(new PaginaVentas(List.of(v1), null));
+
+        // ACT
+        MvcResult resultado = mockMvc.perform(get("/ventas").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+
+        // ASSERT: Se decodifica con un ObjectMapper CBOR y se comparan los mismos campos que en JSON
+        JsonNode pagina = new ObjectMapper(new CBORFactory()).readTree(resultado.getResponse().getContentAsByteArray());
+        assertThat(pagina.at("/_embedded/ventaList/0/cliente").asText()).isEqualTo("Client A");
+        assertThat(pagina.at("/_embedded/ventaList/0/_links/self/href").asText()).isEqualTo("http://localhost/ventas/1");
+        assertThat(pagina.at("/_embedded/ventaList/0/gananciaTotal").decimalValue()).isEqualByComparingTo("50.00");
     }
 
     /** Prueba 2: GET /ventas/{id} - Buscar una venta por ID existente. */
@@ -91,7 +179,7 @@ public class VentaControllerTest {
     void testBuscarVentaPorIdExistente() throws Exception {
         // ARRANGE
         int id = 5;
-        Venta v1 = createMockVenta(id, "Client B", new ArrayList<>());
+        VentaVista v1 = createVista(createMockVenta(id, "Client B", new ArrayList<>()));
 
         // MOCKING: Cuando se busca el ID, devuelve la venta.
         when(ventaService.buscarPorId(id)).thenReturn(Optional.of(v1));
@@ -129,6 +217,27 @@ public class VentaControllerTest {
         verify(ventaService, times(1)).guardarVenta(any(Venta.class));
     }
     
+    /** Prueba 3b: POST /ventas con escritura diferida - Responde 202 con la venta registrada en el diario. */
+    @Test
+    void testGuardarVentaDiferida() throws Exception {
+        // ARRANGE
+        DetalleVenta d_new = createDetalle(0, "New Prod", 5, "5.00", "2.00");
+        Venta newVenta = createMockVenta(null, "New Client", List.of(d_new));
+        Venta registrada = createMockVenta(11, "New Client", List.of(createDetalle(40, "New Prod", 5, "5.00", "2.00")));
+        when(escrituraDiferida.isHabilitada()).thenReturn(true);
+        when(escrituraDiferida.registrar(any(Venta.class))).thenReturn(registrada);
+
+        // ACT & ASSERT
+        mockMvc.perform(post("/ventas")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(newVenta)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").value(11))
+                .andExpect(jsonPath("$.detalles[0].id").value(40));
+
+        verify(ventaService, never()).guardarVenta(any(Venta.class));
+    }
+
     /** Prueba 4: PUT /ventas/{id} - Actualizar una venta existente. */
     @Test
     void testActualizarVentaExitoso() throws Exception {
@@ -151,6 +260,71 @@ public class VentaControllerTest {
         verify(ventaService, times(1)).actualizarVenta(eq(5), any(Venta.class));
     }
 
+    /** Prueba 4b: PATCH /ventas/{id}/detalles/{idDetalle} - Modificar una sola línea; 404 si no pertenece a la venta y 400 si queda inválida. */
+    @Test
+    void testActualizarDetalle() throws Exception {
+        // ARRANGE
+        DetalleVenta detalle = new DetalleVenta("Prod A", 5, new BigDecimal("12.00"), new BigDecimal("6.00"));
+        detalle.setId(7);
+        CambioDetalle cambio = new CambioDetalle(null, 5, new BigDecimal("12.00"), null);
+
+        // MOCKING: El detalle 7 pertenece a la venta 5; el 8 no; el 9 quedaría con cantidad 0.
+        when(ventaService.actualizarDetalle(5, 7, cambio)).thenReturn(detalle);
+        when(ventaService.actualizarDetalle(eq(5), eq(8), any(CambioDetalle.class)))
+                .thenThrow(new EntityNotFoundException("Detalle 8 no encontrado"));
+        when(ventaService.actualizarDetalle(eq(5), eq(9), any(CambioDetalle.class)))
+                .thenThrow(new IllegalArgumentException("La cantidad de cada detalle debe ser mayor que cero"));
+
+        // ACT & ASSERT
+        mockMvc.perform(patch("/ventas/5/detalles/7")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"cantidad\": 5, \"precio\": 12.00}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(7))
+                .andExpect(jsonPath("$.subtotal").value(60.0));
+        mockMvc.perform(patch("/ventas/5/detalles/8")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"cantidad\": 5}"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(patch("/ventas/5/detalles/9")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"cantidad\": 0}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /** Prueba 4c: PUT /ventas/{id} - 409 si la versión enviada ya no es la vigente. */
+    @Test
+    void testActualizarVentaConVersionObsoleta() throws Exception {
+        // ARRANGE: El cliente envía la versión 2 y la venta ya está en la 3
+        Venta updatedData = createMockVenta(null, "Client Updated", new ArrayList<>());
+        updatedData.setVersion(2L);
+        when(ventaService.actualizarVenta(eq(5), any(Venta.class)))
+                .thenThrow(new VersionObsoletaException(5, 2, 3));
+
+        // ACT & ASSERT
+        mockMvc.perform(put("/ventas/5")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(updatedData)))
+                .andExpect(status().isConflict());
+
+        verify(ventaService, times(1)).actualizarVenta(eq(5), argThat(venta -> venta.getVersion() == 2L));
+    }
+
+    /** Prueba 4d: PUT /ventas/{id} - 404 si la venta no existe. */
+    @Test
+    void testActualizarVentaInexistente() throws Exception {
+        // ARRANGE
+        Venta updatedData = createMockVenta(null, "Client Updated", new ArrayList<>());
+        when(ventaService.actualizarVenta(eq(99), any(Venta.class)))
+                .thenThrow(new EntityNotFoundException("Venta no encontrada con ID: 99"));
+
+        // ACT & ASSERT
+        mockMvc.perform(put("/ventas/99")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(updatedData)))
+                .andExpect(status().isNotFound());
+    }
+
     /** Prueba 5: DELETE /ventas/{id} - Eliminar una venta. */
     @Test
     void testEliminarVentaExitoso() throws Exception {
@@ -226,4 +400,82 @@ public class VentaControllerTest {
         
         verify(ventaService, times(1)).getGananciasAnuales(anio);
     }
-}
\ No newline at end of file
+
+    /** Prueba 8a: GET /ventas/ganancias/mensuales y anuales - 400 si el mes o el año están fuera de rango. */
+    @Test
+    void testGetGananciasConPeriodoInvalido() throws Exception {
+        // ACT & ASSERT
+        mockMvc.perform(get("/ventas/ganancias/mensuales").param("mes", "13").param("anio", "2025"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/ventas/ganancias/mensuales").param("mes", "0").param("anio", "2025"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/ventas/ganancias/mensuales").param("mes", "1").param("anio", "10000"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/ventas/ganancias/anuales").param("anio", "0"))
+                .andExpect(status().isBadRequest());
+
+        verify(ventaService, never()).getGananciasMensuales(anyInt(), anyInt());
+        verify(ventaService, never()).getGananciasAnuales(anyInt());
+    }
+
+    // --- PRUEBAS DE ANALÍTICA ---
+
+    /** Prueba 8b: GET /ventas/analitica - Los parámetros se convierten a los enums y se devuelven los períodos. */
+    @Test
+    void testAnalizarVentas() throws Exception {
+        // ARRANGE
+        LocalDate desde = LocalDate.of(2025, 1, 1);
+        LocalDate hasta = LocalDate.of(2026, 1, 1);
+        FilaAnalitica fila = new FilaAnalitica("Cliente A", 3, new BigDecimal("30.00"), new BigDecimal("18.00"));
+        when(analiticaVentas.agrupar(desde, hasta, DimensionAnalitica.CLIENTE, AgrupacionTiempo.MES, OrdenAnalitica.INGRESOS, 5))
+                .thenReturn(List.of(new PeriodoAnalitica(LocalDate.of(2025, 3, 1),
+                        new FilaAnalitica(null, 3, new BigDecimal("30.00"), new BigDecimal("18.00")), 1, List.of(fila))));
+
+        // ACT & ASSERT
+        mockMvc.perform(get("/ventas/analitica")
+                .param("desde", "2025-01-01")
+                .param("hasta", "2026-01-01")
+                .param("dimension", "CLIENTE")
+                .param("agrupacion", "MES")
+                .param("orden", "INGRESOS")
+                .param("primeros", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].inicio").value("2025-03-01"))
+                .andExpect(jsonPath("$[0].total.ganancia").value(12.0))
+                .andExpect(jsonPath("$[0].primeros[0].clave").value("Cliente A"));
+    }
+
+    // --- PRUEBAS DE EXPORTACIÓN ---
+
+    /** Prueba 9: GET /ventas/exportar - La respuesta se escribe de forma asíncrona con el formato pedido. */
+    @Test
+    void testExportarVentasCsv() throws Exception {
+        // ARRANGE
+        LocalDate desde = LocalDate.of(2025, 10, 1);
+        LocalDate hasta = LocalDate.of(2025, 11, 1);
+
+        // MOCKING: El exportador escribe una línea fija en la salida.
+        doAnswer(invocation -> {
+            OutputStream salida = invocation.getArgument(3);
+            salida.write("id_venta\n".getBytes());
+            return null;
+        }).when(exportadorVentas).exportar(eq(desde), eq(hasta), eq(FormatoExportacion.CSV), any());
+
+        // ACT
+        MvcResult resultado = mockMvc.perform(get("/ventas/exportar")
+                .param("desde", "2025-10-01")
+                .param("hasta", "2025-11-01")
+                .param("formato", "CSV"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // ASSERT
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(header().string("Content-Disposition", containsString("ventas_2025-10-01_2025-11-01.csv")))
+                .andExpect(content().string("id_venta\n"));
+
+        verify(exportadorVentas, times(1)).exportar(eq(desde), eq(hasta), eq(FormatoExportacion.CSV), any());
+    }
+}
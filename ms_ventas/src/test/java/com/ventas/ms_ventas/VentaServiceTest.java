@@ -0,0 +1,262 @@
+package com.ventas.ms_ventas;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Pruebas de integración de VentaService sobre H2: escrituras, acumulado diario y cálculos de ganancias.
+ * Cada prueba se revierte al terminar gracias a @Transactional.
+ */
+@SpringBootTest
+@Transactional
+public class VentaServiceTest {
+
+    private static final LocalDate DIA = LocalDate.of(2025, 10, 5);
+
+    @Autowired
+    private VentaService ventaService;
+
+    @Autowired
+    private GananciaDiariaService gananciaDiariaService;
+
+    @Autowired
+    private GananciaDiariaRepository gananciaDiariaRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Venta crearVenta(String cliente, LocalDateTime fecha, DetalleVenta... detalles) {
+        Venta venta = new Venta();
+        venta.setCliente(cliente);
+        venta.setFecha(fecha);
+        venta.setDetalles(new ArrayList<>(List.of(detalles)));
+        return venta;
+    }
+
+    private DetalleVenta crearDetalle(String producto, int cantidad, String precio, String costo) {
+        return new DetalleVenta(producto, cantidad, new BigDecimal(precio), new BigDecimal(costo));
+    }
+
+    /** Prueba 1: guardar ventas acumula cantidad, ingresos y ganancia del día. */
+    @Test
+    void testGuardarVentaActualizaAcumuladoDiario() {
+        ventaService.guardarVenta(crearVenta("Cliente A", DIA.atTime(10, 0), crearDetalle("Prod A", 3, "10.00", "6.00")));
+        ventaService.guardarVenta(crearVenta("Cliente B", DIA.atTime(18, 0), crearDetalle("Prod B", 2, "5.00", "2.00")));
+
+        GananciaDiaria acumulado = gananciaDiariaRepository.findById(DIA).orElseThrow();
+        assertThat(acumulado.getCantidadVentas()).isEqualTo(2);
+        assertThat(acumulado.getIngresos()).isEqualByComparingTo("40.00");
+        assertThat(acumulado.getGanancia()).isEqualByComparingTo("18.00");
+        assertThat(ventaService.getGananciasDiarias(DIA)).isEqualByComparingTo("18.00");
+        assertThat(ventaService.getGananciasMensuales(10, 2025)).isEqualByComparingTo("18.00");
+        assertThat(ventaService.getGananciasAnuales(2025)).isEqualByComparingTo("18.00");
+    }
+
+    /** Prueba 2: actualizar una venta a otra fecha mueve su aporte entre días. */
+    @Test
+    void testActualizarVentaAplicaDiferencia() {
+        Venta venta = ventaService.guardarVenta(
+                crearVenta("Cliente A", DIA.atTime(10, 0), crearDetalle("Prod A", 3, "10.00", "6.00")));
+
+        ventaService.actualizarVenta(venta.getId(), crearVenta("Cliente A", DIA.plusDays(1).atTime(9, 0),
+                crearDetalle("Prod A", 1, "10.00", "6.00")));
+
+        assertThat(gananciaDiariaRepository.findById(DIA).orElseThrow().getCantidadVentas()).isZero();
+        assertThat(gananciaDiariaRepository.findById(DIA).orElseThrow().getGanancia()).isEqualByComparingTo("0");
+        assertThat(gananciaDiariaRepository.findById(DIA.plusDays(1)).orElseThrow().getGanancia())
+                .isEqualByComparingTo("4.00");
+        assertThat(ventaService.buscarPorId(venta.getId()).orElseThrow().total()).isEqualByComparingTo("10.00");
+    }
+
+    /** Prueba 3: eliminar una venta descuenta su aporte. */
+    @Test
+    void testEliminarVentaDescuentaAcumulado() {
+        Venta venta = ventaService.guardarVenta(
+                crearVenta("Cliente A", DIA.atTime(10, 0), crearDetalle("Prod A", 3, "10.00", "6.00")));
+        ventaService.guardarVenta(crearVenta("Cliente B", DIA.atTime(11, 0), crearDetalle("Prod B", 1, "8.00", "7.50")));
+
+        ventaService.eliminarVenta(venta.getId());
+
+        GananciaDiaria acumulado = gananciaDiariaRepository.findById(DIA).orElseThrow();
+        assertThat(acumulado.getCantidadVentas()).isEqualTo(1);
+        assertThat(acumulado.getGanancia()).isEqualByComparingTo("0.50");
+    }
+
+    /** Prueba 4: la verificación detecta diferencias y la reconstrucción las corrige. */
+    @Test
+    void testVerificarYReconstruirAcumulado() {
+        ventaService.guardarVenta(crearVenta("Cliente A", DIA.atTime(10, 0), crearDetalle("Prod A", 3, "10.00", "6.00")));
+        jdbcTemplate.update("UPDATE GANANCIA_DIARIA SET CANTIDAD_VENTAS = CANTIDAD_VENTAS + 5, "
+                + "INGRESOS = INGRESOS + 100, GANANCIA = GANANCIA + 100 WHERE FECHA = ?", DIA);
+        gananciaDiariaRepository.insertar(DIA.plusDays(3), 1, BigDecimal.TEN, BigDecimal.ONE);
+
+        assertThat(gananciaDiariaService.verificar(DIA, DIA.plusMonths(1)))
+                .extracting(DiscrepanciaGanancia::fecha)
+                .containsExactly(DIA, DIA.plusDays(3));
+
+        assertThat(gananciaDiariaService.reconstruir(DIA.withDayOfMonth(1), DIA.plusMonths(2))).isEqualTo(1);
+        assertThat(gananciaDiariaService.verificar(DIA, DIA.plusMonths(1))).isEmpty();
+        assertThat(ventaService.getGananciasMensuales(10, 2025)).isEqualByComparingTo("12.00");
+    }
+
+    /** Prueba 5: la paginación por clave recorre las ventas filtradas sin repetir ni saltar. */
+    @Test
+    void testListarPaginaRecorreVentasFiltradas() {
+        for (int i = 0; i < 5; i++) {
+            ventaService.guardarVenta(crearVenta("Cliente A", DIA.atTime(10, i), crearDetalle("Prod A", 1, "1.00", "0.50")));
+            ventaService.guardarVenta(crearVenta("Cliente B", DIA.atTime(11, i), crearDetalle("Prod B", 1, "1.00", "0.50")));
+        }
+        ventaService.guardarVenta(crearVenta("Cliente A", DIA.plusDays(1).atTime(10, 0), crearDetalle("Prod A", 1, "1.00", "0.50")));
+        FiltroVentas filtro = new FiltroVentas("Cliente A", DIA, DIA.plusDays(1));
+
+        PaginaVentas primera = ventaService.listarPagina(filtro, null, 2);
+        PaginaVentas segunda = ventaService.listarPagina(filtro, primera.siguienteCursor(), 2);
+        PaginaVentas tercera = ventaService.listarPagina(filtro, segunda.siguienteCursor(), 2);
+
+        assertThat(primera.ventas()).hasSize(2);
+        assertThat(segunda.ventas()).hasSize(2);
+        assertThat(tercera.ventas()).hasSize(1);
+        assertThat(tercera.siguienteCursor()).isNull();
+        assertThat(List.of(primera, segunda, tercera))
+                .flatExtracting(PaginaVentas::ventas)
+                .extracting(VentaVista::cliente)
+                .containsOnly("Cliente A");
+        assertThat(segunda.ventas().get(0).id()).isGreaterThan(primera.siguienteCursor());
+    }
+
+    /** Prueba 6: el tamaño de página se acota al máximo configurado. */
+    @Test
+    void testListarPaginaAcotaTamanio() {
+        ventaService.guardarVenta(crearVenta("Cliente A", DIA.atTime(10, 0), crearDetalle("Prod A", 1, "1.00", "0.50")));
+
+        assertThat(ventaService.listarPagina(new FiltroVentas(null, null, null), null, 0).ventas()).hasSize(1);
+        assertThat(ventaService.listarPagina(new FiltroVentas(null, null, null), null, 100_000).siguienteCursor()).isNull();
+    }
+
+    /** Prueba 7: actualizar una venta grande solo modifica, inserta y elimina las líneas que cambiaron. */
+    @Test
+    void testActualizarVentaSoloEscribeLineasModificadas() {
+        List<DetalleVenta> detalles = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            detalles.add(crearDetalle("Prod " + i, 1, "10.00", "6.00"));
+        }
+        Venta venta = ventaService.guardarVenta(crearVenta("Cliente A", DIA.atTime(10, 0), detalles.toArray(DetalleVenta[]::new)));
+        entityManager.flush();
+        entityManager.clear();
+
+        // Misma venta recibida por PUT: la línea 0 cambia de cantidad, la 1 se quita y se agrega una nueva
+        List<DetalleVenta> recibidos = new ArrayList<>();
+        for (DetalleVenta detalle : venta.getDetalles()) {
+            DetalleVenta copia = crearDetalle(detalle.getProducto(), detalle.getCantidad(), "10.00", "6.00");
+            copia.setId(detalle.getId());
+            recibidos.add(copia);
+        }
+        recibidos.get(0).setCantidad(4);
+        recibidos.remove(1);
+        recibidos.add(crearDetalle("Prod nuevo", 2, "5.00", "1.00"));
+        Statistics estadisticas = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+
+        ventaService.actualizarVenta(venta.getId(), crearVenta("Cliente A", DIA.atTime(10, 0), recibidos.toArray(DetalleVenta[]::new)));
+        entityManager.flush();
+
+        // UPDATE de la línea modificada y del total de la venta
+        assertThat(estadisticas.getEntityUpdateCount()).isEqualTo(2);
+        assertThat(estadisticas.getEntityInsertCount()).isEqualTo(1);
+        assertThat(estadisticas.getEntityDeleteCount()).isEqualTo(1);
+        // Total 500 - 10 (línea quitada) + 30 (3 unidades más) + 10 (línea nueva);
+        // ganancia 200 - 4 + 12 + 8
+        assertThat(ventaService.buscarPorId(venta.getId()).orElseThrow().total()).isEqualByComparingTo("530.00");
+        assertThat(gananciaDiariaRepository.findById(DIA).orElseThrow().getGanancia()).isEqualByComparingTo("216.00");
+    }
+
+    /** Prueba 8: modificar una línea lee solo ese detalle y ajusta el total y el acumulado con la diferencia. */
+    @Test
+    void testActualizarDetalleModificaUnaLinea() {
+        Venta venta = ventaService.guardarVenta(crearVenta("Cliente A", DIA.atTime(10, 0),
+                crearDetalle("Prod A", 3, "10.00", "6.00"), crearDetalle("Prod B", 2, "5.00", "2.00")));
+        int idDetalle = venta.getDetalles().get(0).getId();
+        entityManager.flush();
+        entityManager.clear();
+        Statistics estadisticas = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+
+        DetalleVenta detalle = ventaService.actualizarDetalle(venta.getId(), idDetalle,
+                new CambioDetalle(null, 5, new BigDecimal("12.00"), null));
+        entityManager.flush();
+
+        assertThat(estadisticas.getCollectionLoadCount()).isZero();
+        assertThat(estadisticas.getEntityUpdateCount()).isEqualTo(2);
+        assertThat(detalle.getProducto()).isEqualTo("Prod A");
+        assertThat(detalle.getSubtotal()).isEqualByComparingTo("60.00");
+        // 60 + 10 de la otra línea; ganancia (12 - 6) * 5 + (5 - 2) * 2
+        assertThat(detalle.getVenta().getTotal()).isEqualByComparingTo("70.00");
+        assertThat(gananciaDiariaRepository.findById(DIA).orElseThrow().getGanancia()).isEqualByComparingTo("36.00");
+    }
+
+    /** Prueba 9: un detalle de otra venta no se puede modificar a través de esta. */
+    @Test
+    void testActualizarDetalleDeOtraVentaFalla() {
+        Venta venta = ventaService.guardarVenta(crearVenta("Cliente A", DIA.atTime(10, 0), crearDetalle("Prod A", 3, "10.00", "6.00")));
+        Venta otra = ventaService.guardarVenta(crearVenta("Cliente B", DIA.atTime(11, 0), crearDetalle("Prod B", 1, "8.00", "7.50")));
+        entityManager.flush();
+
+        assertThatThrownBy(() -> ventaService.actualizarDetalle(
+                        venta.getId(), otra.getDetalles().get(0).getId(), new CambioDetalle(null, 9, null, null)))
+                .isInstanceOf(EntityNotFoundException.class);
+    }
+
+    /** Prueba 10: un importe con más de 2 decimales se rechaza sin redondearlo ni guardar nada. */
+    @Test
+    void testGuardarVentaConMasDeDosDecimalesFalla() {
+        assertThatThrownBy(() -> ventaService.guardarVenta(
+                        crearVenta("Cliente A", DIA.atTime(10, 0), crearDetalle("Prod A", 3, "10.005", "6.00"))))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(gananciaDiariaRepository.findById(DIA)).isEmpty();
+    }
+
+    /** Prueba 11: un cambio de línea que la deja inválida se rechaza sin modificar la venta. */
+    @Test
+    void testActualizarDetalleInvalidoFalla() {
+        Venta venta = ventaService.guardarVenta(crearVenta("Cliente A", DIA.atTime(10, 0), crearDetalle("Prod A", 3, "10.00", "6.00")));
+        int idDetalle = venta.getDetalles().get(0).getId();
+        entityManager.flush();
+        entityManager.clear();
+
+        for (CambioDetalle cambio : List.of(
+                new CambioDetalle(null, 0, null, null),
+                new CambioDetalle(" ", null, null, null),
+                new CambioDetalle(null, null, new BigDecimal("-1.00"), null),
+                new CambioDetalle(null, null, null, new BigDecimal("-0.01")))) {
+            assertThatThrownBy(() -> ventaService.actualizarDetalle(venta.getId(), idDetalle, cambio))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Venta guardada = entityManager.find(Venta.class, venta.getId());
+        assertThat(guardada.getVersion()).isEqualTo(venta.getVersion());
+        assertThat(guardada.getTotal()).isEqualByComparingTo("30.00");
+        assertThat(gananciaDiariaRepository.findById(DIA).orElseThrow().getGanancia()).isEqualByComparingTo("12.00");
+    }
+}
@@ -0,0 +1,56 @@
+package com.ventas.ms_ventas;
+
+import java.time.LocalDate;
+
+// Período de un cálculo de ganancias: un día, un mes o un año a partir de su primer día.
+// Es la clave de CacheGanancias.
+public record ClaveGanancia(Granularidad granularidad, LocalDate inicio) {
+
+    public enum Granularidad { DIARIA, MENSUAL, ANUAL }
+
+    // Años que admite FECHA: el TIMESTAMP de Oracle llega hasta el 9999
+    public static final int ANIO_MINIMO = 1;
+    public static final int ANIO_MAXIMO = 9999;
+
+    // Validan mes y año antes de armar la clave, que falla con DateTimeException fuera de rango
+    public static boolean anioValido(int anio) {
+        return anio >= ANIO_MINIMO && anio <= ANIO_MAXIMO;
+    }
+
+    public static boolean mesValido(int mes, int anio) {
+        return mes >= 1 && mes <= 12 && anioValido(anio);
+    }
+
+    public static ClaveGanancia diaria(LocalDate fecha) {
+        return new ClaveGanancia(Granularidad.DIARIA, fecha);
+    }
+
+    public static ClaveGanancia mensual(int mes, int anio) {
+        return new ClaveGanancia(Granularidad.MENSUAL, LocalDate.of(anio, mes, 1));
+    }
+
+    public static ClaveGanancia anual(int anio) {
+        return new ClaveGanancia(Granularidad.ANUAL, LocalDate.of(anio, 1, 1));
+    }
+
+    // Los tres períodos que contienen una fecha
+    public static ClaveGanancia[] periodosDe(LocalDate fecha) {
+        return new ClaveGanancia[] {
+                diaria(fecha), mensual(fecha.getMonthValue(), fecha.getYear()), anual(fecha.getYear())
+        };
+    }
+
+    // Fin exclusivo del período: [inicio, fin)
+    public LocalDate fin() {
+        return switch (granularidad) {
+            case DIARIA -> inicio.plusDays(1);
+            case MENSUAL -> inicio.plusMonths(1);
+            case ANUAL -> inicio.plusYears(1);
+        };
+    }
+
+    // Un período está cerrado cuando terminó antes del día de hoy
+    public boolean cerrado(LocalDate hoy) {
+        return !fin().isAfter(hoy);
+    }
+}
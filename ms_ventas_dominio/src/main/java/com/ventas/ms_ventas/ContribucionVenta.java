@@ -0,0 +1,28 @@
+package com.ventas.ms_ventas;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Aporte de una venta al acumulado diario. Se toma una foto antes y después de cada
+// escritura para aplicar solo la diferencia sobre GANANCIA_DIARIA.
+public record ContribucionVenta(LocalDate fecha, BigDecimal ingresos, BigDecimal costos) {
+
+    public static ContribucionVenta de(Venta venta) {
+        long ingresosCentavos = 0;
+        long costosCentavos = 0;
+        if (venta.getDetalles() != null) {
+            for (DetalleVenta detalle : venta.getDetalles()) {
+                ingresosCentavos = Math.addExact(ingresosCentavos, detalle.getSubtotalCentavos());
+                costosCentavos = Math.addExact(costosCentavos, detalle.getCostoTotalCentavos());
+            }
+        }
+        return new ContribucionVenta(venta.getFecha().toLocalDate(),
+                Dinero.deCentavos(ingresosCentavos), Dinero.deCentavos(costosCentavos));
+    }
+
+    // Aporte de un solo detalle, para aplicar la diferencia cuando cambia una línea de la venta
+    public static ContribucionVenta de(LocalDate fecha, DetalleVenta detalle) {
+        return new ContribucionVenta(fecha,
+                Dinero.deCentavos(detalle.getSubtotalCentavos()), Dinero.deCentavos(detalle.getCostoTotalCentavos()));
+    }
+}
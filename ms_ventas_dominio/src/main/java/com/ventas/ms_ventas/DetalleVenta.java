@@ -0,0 +1,117 @@
+package com.ventas.ms_ventas;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+// Índice de la clave foránea ID_VENTA que además cubre las columnas de las sumas de ganancias
+@Entity
+@Table(name = "DETALLE_VENTA", indexes = {
+        @Index(name = "IX_DETALLE_VENTA_GANANCIA", columnList = "ID_VENTA, PRECIO, COSTO, CANTIDAD")
+})
+public class DetalleVenta {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "detalle_venta_seq")
+    @SequenceGenerator(name = "detalle_venta_seq", sequenceName = "DETALLE_VENTA_SEQ", allocationSize = 50)
+    @Column(name = "ID")
+    private int id; // Se necesita una clave primaria para esta entidad
+
+    @Column(name = "PRODUCTO", nullable = false)
+    private String producto;
+
+    @Column(name = "CANTIDAD", nullable = false)
+    private int cantidad;
+
+    @Column(name = "PRECIO", nullable = false, precision = Dinero.PRECISION, scale = Dinero.ESCALA)
+    private BigDecimal precio;
+
+    @Column(name = "COSTO", nullable = false, precision = Dinero.PRECISION, scale = Dinero.ESCALA)
+    private BigDecimal costo;
+
+    // Precio y costo en centavos para que subtotales y ganancias se sumen con aritmética de long
+    // sin crear BigDecimal por línea. Hibernate asigna los campos directamente (al cargar o al
+    // copiar en un merge), así que se recalculan cuando cambia la referencia de precio o costo.
+    // Es inmutable para que una venta compartida entre hilos (caché) nunca vea valores a medias.
+    private transient Centavos centavos;
+
+    private record Centavos(BigDecimal precio, BigDecimal costo, long precioCentavos, long costoCentavos) {}
+    
+    // Mapeo de la relación muchos a uno
+    @ManyToOne
+    @JoinColumn(name = "ID_VENTA", nullable = false) 
+    @JsonIgnore
+    private Venta venta;
+
+    // Constructor sin argumentos
+    public DetalleVenta() {}
+
+    // Constructor con argumentos para crear un objeto DetalleVenta
+    public DetalleVenta(String producto, int cantidad, BigDecimal precio, BigDecimal costo) {
+        this.producto = producto;
+        this.cantidad = cantidad;
+        setPrecio(precio);
+        setCosto(costo);
+    }
+
+    private Centavos centavos() {
+        Centavos actual = this.centavos;
+        if (actual == null || actual.precio() != this.precio || actual.costo() != this.costo) {
+            actual = new Centavos(this.precio, this.costo, Dinero.aCentavos(this.precio), Dinero.aCentavos(this.costo));
+            this.centavos = actual;
+        }
+        return actual;
+    }
+
+    public BigDecimal getSubtotal() {
+        return Dinero.deCentavos(getSubtotalCentavos());
+    }
+
+    public BigDecimal getGanancia() {
+        return Dinero.deCentavos(getGananciaCentavos());
+    }
+
+    // --- IMPORTES EN CENTAVOS (sin crear objetos en cada cálculo) ---
+
+    @JsonIgnore
+    public long getSubtotalCentavos() {
+        return Math.multiplyExact(centavos().precioCentavos(), (long) this.cantidad);
+    }
+
+    @JsonIgnore
+    public long getCostoTotalCentavos() {
+        return Math.multiplyExact(centavos().costoCentavos(), (long) this.cantidad);
+    }
+
+    @JsonIgnore
+    public long getGananciaCentavos() {
+        Centavos actual = centavos();
+        return Math.multiplyExact(actual.precioCentavos() - actual.costoCentavos(), (long) this.cantidad);
+    }
+    
+    // Copia los datos de otro detalle. Hibernate compara los valores al hacer flush, así que si
+    // ninguno cambió no se emite UPDATE.
+    public void actualizarDesde(DetalleVenta otro) {
+        setProducto(otro.getProducto());
+        setCantidad(otro.getCantidad());
+        setPrecio(otro.getPrecio());
+        setCosto(otro.getCosto());
+    }
+
+    // Getters
+    public int getId() { return id; }
+    public String getProducto() { return producto; }
+    public int getCantidad() { return cantidad; }
+    public BigDecimal getPrecio() { return precio; }
+    public BigDecimal getCosto() { return costo; }
+    public Venta getVenta() { return venta; }
+
+    // Setters
+    public void setId(int id) { this.id = id; }
+    public void setProducto(String producto) { this.producto = producto; }
+    public void setCantidad(int cantidad) { this.cantidad = cantidad; }
+    public void setPrecio(BigDecimal precio) { this.precio = Dinero.normalizar(precio); }
+    public void setCosto(BigDecimal costo) { this.costo = Dinero.normalizar(costo); }
+    public void setVenta(Venta venta) { this.venta = venta; }
+}
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.ventas.ms_ventas;
+
+import java.math.BigDecimal;
+
+// Un detalle tal como se devuelve en las lecturas (ver VentaVista). Subtotal y ganancia se
+// calculan al armar la vista y no en cada serialización.
+public record DetalleVista(int id, String producto, int cantidad, BigDecimal precio, BigDecimal costo,
+                           BigDecimal subtotal, BigDecimal ganancia) {
+}
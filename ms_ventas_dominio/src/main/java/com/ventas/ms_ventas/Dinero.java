@@ -0,0 +1,41 @@
+package com.ventas.ms_ventas;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Representación de los importes: BigDecimal con escala fija de 2 decimales (NUMBER(19,2) en la
+// base de datos) y, para sumar sin crear objetos, un long con la cantidad de centavos. Los importes
+// nunca se redondean: los de más de 2 decimales se rechazan en ValidacionVenta.
+public final class Dinero {
+
+    public static final int ESCALA = 2;
+    public static final int PRECISION = 19;
+
+    private Dinero() {}
+
+    // Indica si el importe se puede llevar a la escala fija sin perder decimales (10.500 sí, 10.005 no)
+    public static boolean tieneEscalaValida(BigDecimal valor) {
+        return valor.scale() <= ESCALA || valor.stripTrailingZeros().scale() <= ESCALA;
+    }
+
+    // Indica si el importe entra en NUMBER(19,2): como mucho 17 dígitos enteros
+    public static boolean entraEnColumna(BigDecimal valor) {
+        return valor.precision() - valor.scale() <= PRECISION - ESCALA;
+    }
+
+    // Lleva un importe a la escala fija. Null y los importes con más decimales se mantienen tal cual
+    // para que la validación los rechace.
+    public static BigDecimal normalizar(BigDecimal valor) {
+        return valor == null || !tieneEscalaValida(valor) ? valor : valor.setScale(ESCALA, RoundingMode.UNNECESSARY);
+    }
+
+    // Importe en centavos. Se usa al asignar precios y costos, no en los cálculos repetidos.
+    // ArithmeticException si tiene más de 2 decimales o no entra en un long.
+    public static long aCentavos(BigDecimal valor) {
+        return valor == null ? 0L : valor.setScale(ESCALA, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal deCentavos(long centavos) {
+        return BigDecimal.valueOf(centavos, ESCALA);
+    }
+}
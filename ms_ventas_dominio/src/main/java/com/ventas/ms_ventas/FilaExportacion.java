@@ -0,0 +1,11 @@
+package com.ventas.ms_ventas;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Una fila de la exportación y de las lecturas de VentaVista: los datos de la venta y uno de sus detalles. Los campos del
+// detalle son null para una venta sin detalles (LEFT JOIN).
+public record FilaExportacion(int idVenta, String cliente, LocalDateTime fecha, BigDecimal total, long version,
+                              Integer idDetalle, String producto, Integer cantidad,
+                              BigDecimal precio, BigDecimal costo) {
+}
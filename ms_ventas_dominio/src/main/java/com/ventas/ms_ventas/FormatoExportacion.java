@@ -0,0 +1,20 @@
+package com.ventas.ms_ventas;
+
+import org.springframework.http.MediaType;
+
+// Formatos soportados por GET /ventas/exportar
+public enum FormatoExportacion {
+
+    // Una venta por línea en JSON, con sus detalles anidados
+    NDJSON(MediaType.parseMediaType("application/x-ndjson")),
+    // Un detalle por línea, repitiendo los datos de la venta
+    CSV(MediaType.parseMediaType("text/csv;charset=UTF-8"));
+
+    private final MediaType mediaType;
+
+    FormatoExportacion(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType getMediaType() { return mediaType; }
+}
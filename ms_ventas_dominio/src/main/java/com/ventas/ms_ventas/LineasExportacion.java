@@ -0,0 +1,80 @@
+package com.ventas.ms_ventas;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.Writer;
+
+// Formato de las líneas de GET /ventas/exportar a partir de las filas ordenadas por venta. Lo usan
+// ExportadorVentas y el exportador de ms_ventas_reactivo, así que las dos variantes del servicio
+// escriben exactamente el mismo NDJSON y el mismo CSV.
+public final class LineasExportacion {
+
+    public static final String CABECERA_CSV = "id_venta,cliente,fecha,total,id_detalle,producto,cantidad,precio,costo";
+
+    private LineasExportacion() {}
+
+    // Abre el objeto de una venta con los datos de su primera fila y el arreglo de detalles
+    public static void abrirVenta(JsonGenerator json, FilaExportacion fila) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("id", fila.idVenta());
+        json.writeStringField("cliente", fila.cliente());
+        json.writeStringField("fecha", fila.fecha().toString());
+        json.writeNumberField("total", fila.total());
+        json.writeArrayFieldStart("detalles");
+    }
+
+    // Agrega el detalle de la fila, si tiene (una venta sin detalles trae una fila sin detalle)
+    public static void escribirDetalle(JsonGenerator json, FilaExportacion fila) throws IOException {
+        if (fila.idDetalle() == null) {
+            return;
+        }
+        json.writeStartObject();
+        json.writeNumberField("id", fila.idDetalle());
+        json.writeStringField("producto", fila.producto());
+        json.writeNumberField("cantidad", fila.cantidad());
+        json.writeNumberField("precio", fila.precio());
+        json.writeNumberField("costo", fila.costo());
+        json.writeEndObject();
+    }
+
+    public static void cerrarVenta(JsonGenerator json) throws IOException {
+        json.writeEndArray();
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    // Un detalle por línea, repitiendo los datos de la venta (ventas sin detalles: columnas vacías)
+    public static void escribirCsv(Writer csv, FilaExportacion fila) throws IOException {
+        csv.write(Integer.toString(fila.idVenta()));
+        csv.write(',');
+        csv.write(campoCsv(fila.cliente()));
+        csv.write(',');
+        csv.write(fila.fecha().toString());
+        csv.write(',');
+        csv.write(fila.total().toPlainString());
+        csv.write(',');
+        if (fila.idDetalle() != null) {
+            csv.write(Integer.toString(fila.idDetalle()));
+            csv.write(',');
+            csv.write(campoCsv(fila.producto()));
+            csv.write(',');
+            csv.write(Integer.toString(fila.cantidad()));
+            csv.write(',');
+            csv.write(fila.precio().toPlainString());
+            csv.write(',');
+            csv.write(fila.costo().toPlainString());
+        } else {
+            csv.write(",,,,");
+        }
+        csv.write('\n');
+    }
+
+    // Encierra entre comillas los textos con separadores, comillas o saltos de línea
+    private static String campoCsv(String valor) {
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            return valor;
+        }
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,114 @@
+package com.ventas.ms_ventas;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+// Validación de una venta nueva, antes de asignarle IDs y guardarla. La usan la importación por
+// lotes (ImportadorVentas), la escritura diferida (EscrituraDiferida) y el POST de ms_ventas_reactivo.
+// Además de los campos obligatorios comprueba que los valores entren en las columnas, para que una
+// venta aceptada no falle después al insertarla.
+public final class ValidacionVenta {
+
+    // Largo de CLIENTE y PRODUCTO (VARCHAR2(255)). Se mide en bytes UTF-8, que es lo que limita
+    // Oracle con la semántica de largo por defecto.
+    public static final int LARGO_TEXTO = 255;
+
+    private ValidacionVenta() {}
+
+    // Validaciones de campos obligatorios y de los límites de las columnas antes de tocar la base de
+    // datos. Retorna el error o null.
+    public static String validar(Venta venta) {
+        if (venta == null) {
+            return "La venta está vacía";
+        }
+        if (venta.getId() != 0) {
+            return "Una venta nueva no debe traer ID";
+        }
+        if (venta.getCliente() == null || venta.getCliente().isBlank()) {
+            return "El cliente es obligatorio";
+        }
+        if (!textoValido(venta.getCliente())) {
+            return "El cliente admite hasta " + LARGO_TEXTO + " bytes";
+        }
+        if (venta.getFecha() == null) {
+            return "La fecha es obligatoria";
+        }
+        if (venta.getDetalles() == null) {
+            venta.setDetalles(new ArrayList<>());
+        }
+        for (DetalleVenta detalle : venta.getDetalles()) {
+            if (detalle.getId() != 0) {
+                return "Un detalle nuevo no debe traer ID";
+            }
+            String error = validar(detalle);
+            if (error != null) {
+                return error;
+            }
+        }
+        // El total se recalcula porque el cuerpo puede traer otro
+        BigDecimal total;
+        try {
+            total = venta.calcularTotal();
+        } catch (ArithmeticException e) {
+            total = null;
+        }
+        if (total == null || !Dinero.entraEnColumna(total)) {
+            return "El total de la venta supera el importe máximo";
+        }
+        return null;
+    }
+
+    // Validaciones de una línea. La usa también el PATCH de una línea de ms_ventas (CambioDetalle)
+    // con los valores que quedarían después del cambio. Retorna el error o null.
+    public static String validar(DetalleVenta detalle) {
+        if (detalle.getProducto() == null || detalle.getProducto().isBlank()
+                || detalle.getPrecio() == null || detalle.getCosto() == null) {
+            return "Cada detalle debe tener producto, precio y costo";
+        }
+        if (detalle.getCantidad() <= 0) {
+            return "La cantidad de cada detalle debe ser mayor que cero";
+        }
+        if (detalle.getPrecio().signum() < 0 || detalle.getCosto().signum() < 0) {
+            return "El precio y el costo de cada detalle no pueden ser negativos";
+        }
+        if (!importeValido(detalle.getPrecio()) || !importeValido(detalle.getCosto())) {
+            return "El precio y el costo de cada detalle admiten hasta " + Dinero.ESCALA + " decimales";
+        }
+        if (!textoValido(detalle.getProducto())) {
+            return "El producto admite hasta " + LARGO_TEXTO + " bytes";
+        }
+        if (!Dinero.entraEnColumna(detalle.getPrecio()) || !Dinero.entraEnColumna(detalle.getCosto())) {
+            return "El precio y el costo de cada detalle superan el importe máximo";
+        }
+        try {
+            detalle.getSubtotalCentavos();
+            detalle.getCostoTotalCentavos();
+        } catch (ArithmeticException e) {
+            return "El subtotal de cada detalle supera el importe máximo";
+        }
+        return null;
+    }
+
+    // Los importes se guardan con 2 decimales y no se redondean. La usan también el POST y el PUT
+    // sincrónicos de ms_ventas, que no pasan por validar. Retorna el error o null.
+    public static String validarImportes(Venta venta) {
+        if (venta.getDetalles() == null) {
+            return null;
+        }
+        for (DetalleVenta detalle : venta.getDetalles()) {
+            if (!importeValido(detalle.getPrecio()) || !importeValido(detalle.getCosto())) {
+                return "El precio y el costo de cada detalle admiten hasta " + Dinero.ESCALA + " decimales";
+            }
+        }
+        return null;
+    }
+
+    private static boolean textoValido(String texto) {
+        return texto.length() <= LARGO_TEXTO && texto.getBytes(StandardCharsets.UTF_8).length <= LARGO_TEXTO;
+    }
+
+    private static boolean importeValido(BigDecimal importe) {
+        return importe == null || Dinero.tieneEscalaValida(importe);
+    }
+}
@@ -0,0 +1,118 @@
+package com.ventas.ms_ventas;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Índices creados por las migraciones de Flyway (db/migration/V3): FECHA para los rangos de fechas
+// y CLIENTE para el listado filtrado, ambos con ID para la paginación por clave.
+@Entity
+@Table(name = "VENTA", indexes = {
+        @Index(name = "IX_VENTA_FECHA", columnList = "FECHA, ID"),
+        @Index(name = "IX_VENTA_CLIENTE", columnList = "CLIENTE, ID")
+})
+public class Venta {
+
+    // IDs de una secuencia con optimizador pooled: Hibernate reserva 50 IDs por consulta a la
+    // secuencia y puede agrupar los INSERT en lotes JDBC (con IDENTITY no puede).
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "venta_seq")
+    @SequenceGenerator(name = "venta_seq", sequenceName = "VENTA_SEQ", allocationSize = 50)
+    @Column(name = "ID")
+    private int id;
+
+    @Column(name = "CLIENTE", nullable = false)
+    private String cliente;
+
+    // Mapeo de la relación uno a muchos. Las lecturas de VentaService cargan los detalles de
+    // forma explícita; @BatchSize cubre cualquier otro acceso cargando los detalles de hasta
+    // 100 ventas por consulta (IN) en lugar de una consulta por venta.
+    @OneToMany(mappedBy = "venta", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 100)
+    private List<DetalleVenta> detalles;
+
+    @Column(name = "TOTAL", nullable = false, precision = Dinero.PRECISION, scale = Dinero.ESCALA)
+    private BigDecimal total = Dinero.deCentavos(0);
+
+    @Column(name = "FECHA", nullable = false)
+    private LocalDateTime fecha;
+
+    // Versión para el control de concurrencia optimista (migración V4). Cada escritura la incrementa
+    // y el UPDATE o DELETE de la venta solo afecta la fila si sigue en la versión leída, así que una
+    // escritura basada en datos que otra ya modificó se rechaza en lugar de sobrescribirlos (ver
+    // VentaService). Es null hasta que la venta se guarda: así Spring Data distingue las ventas nuevas.
+    @Version
+    @Column(name = "VERSION", nullable = false)
+    private Long version;
+
+    // Constructor sin argumentos, necesario para JPA
+    public Venta() {}
+
+    // Constructor con argumentos para crear un objeto Venta
+    public Venta(String cliente, List<DetalleVenta> detalles, LocalDateTime fecha) {
+        this.cliente = cliente;
+        this.detalles = detalles;
+        this.fecha = fecha;
+        // La lógica del total se manejará en el setter
+    }
+    
+    // Método para calcular el total. Se suma en centavos (long) y se convierte una sola vez.
+    public BigDecimal calcularTotal() {
+        long totalCentavos = 0;
+        if (this.detalles != null) {
+            for (int i = 0; i < this.detalles.size(); i++) {
+                totalCentavos = Math.addExact(totalCentavos, this.detalles.get(i).getSubtotalCentavos());
+            }
+        }
+        return Dinero.deCentavos(totalCentavos);
+    }
+
+    public BigDecimal getGananciaTotal() {
+        long gananciaCentavos = 0;
+        if (this.detalles != null) {
+            for (int i = 0; i < this.detalles.size(); i++) {
+                gananciaCentavos = Math.addExact(gananciaCentavos, this.detalles.get(i).getGananciaCentavos());
+            }
+        }
+        return Dinero.deCentavos(gananciaCentavos);
+    }
+    
+    // Getters
+    public int getId() { return id; }
+    public String getCliente() { return cliente; }
+    public List<DetalleVenta> getDetalles() { return detalles; }
+    public BigDecimal getTotal() { return total; }
+    public LocalDateTime getFecha() { return fecha; }
+    public Long getVersion() { return version; }
+
+    // Setters
+    public void setId(int id) { this.id = id; }
+    public void setCliente(String cliente) { this.cliente = cliente; }
+
+    // Este es el método que necesitas modificar.
+    public void setDetalles(List<DetalleVenta> detalles) {
+        this.detalles = detalles;
+        // Agregamos la lógica para asegurar la bidireccionalidad.
+        if (this.detalles != null) {
+            for (DetalleVenta detalle : this.detalles) {
+                detalle.setVenta(this);
+            }
+        }
+        // Llamamos a calcularTotal() aquí para que el total se establezca
+        // justo después de que la lista de detalles haya sido poblada.
+        // Si algún importe no se puede llevar a centavos el total queda sin calcular y la venta se
+        // rechaza al validarla (ValidacionVenta), no al leer el JSON.
+        try {
+            this.total = calcularTotal();
+        } catch (ArithmeticException e) {
+            this.total = null;
+        }
+    }
+    
+    public void setTotal(BigDecimal total) { this.total = Dinero.normalizar(total); }
+    public void setFecha(LocalDateTime fecha) { this.fecha = fecha; }
+    public void setVersion(Long version) { this.version = version; }
+}
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.ventas.ms_ventas;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Una venta tal como se devuelve en GET /ventas y GET /ventas/{id}, con los mismos campos JSON
+// que la entidad. Se arma desde proyecciones (ver LecturaVentas): no pasa por entidades ni
+// proxies de Hibernate, y los importes derivados se calculan una sola vez. Es inmutable, así
+// que puede compartirse entre hilos desde la caché de ventas. La versión es la que el cliente
+// devuelve en PUT /ventas/{id} para que se rechace si la venta cambió desde que la leyó.
+public record VentaVista(int id, String cliente, LocalDateTime fecha, BigDecimal total,
+                         BigDecimal gananciaTotal, List<DetalleVista> detalles, long version) {
+
+    // Agrupa filas ordenadas por venta (como las de VentaRepository.exportarEntre) en una vista por
+    // venta. Subtotales y ganancias se suman en centavos, igual que en la entidad.
+    public static List<VentaVista> agrupar(List<FilaExportacion> filas) {
+        List<VentaVista> ventas = new ArrayList<>();
+        int inicio = 0;
+        while (inicio < filas.size()) {
+            FilaExportacion cabecera = filas.get(inicio);
+            List<DetalleVista> detalles = new ArrayList<>();
+            long gananciaCentavos = 0;
+            int fin = inicio;
+            for (; fin < filas.size() && filas.get(fin).idVenta() == cabecera.idVenta(); fin++) {
+                FilaExportacion fila = filas.get(fin);
+                if (fila.idDetalle() == null) {
+                    continue;
+                }
+                long precio = Dinero.aCentavos(fila.precio());
+                long ganancia = Math.multiplyExact(precio - Dinero.aCentavos(fila.costo()), (long) fila.cantidad());
+                gananciaCentavos = Math.addExact(gananciaCentavos, ganancia);
+                detalles.add(new DetalleVista(fila.idDetalle(), fila.producto(), fila.cantidad(),
+                        Dinero.normalizar(fila.precio()), Dinero.normalizar(fila.costo()),
+                        Dinero.deCentavos(Math.multiplyExact(precio, (long) fila.cantidad())),
+                        Dinero.deCentavos(ganancia)));
+            }
+            ventas.add(new VentaVista(cabecera.idVenta(), cabecera.cliente(), cabecera.fecha(),
+                    Dinero.normalizar(cabecera.total()), Dinero.deCentavos(gananciaCentavos), List.copyOf(detalles),
+                    cabecera.version()));
+            inicio = fin;
+        }
+        return ventas;
+    }
+}
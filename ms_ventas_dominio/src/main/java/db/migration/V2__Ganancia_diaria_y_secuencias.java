@@ -0,0 +1,49 @@
+package db.migration;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+// Objetos agregados al esquema de antes de Flyway. Van aparte de la versión 1 para que también se
+// creen en las bases que la registraron como punto de partida. Es una migración Java porque el valor
+// inicial de las secuencias depende de los datos de cada base.
+public class V2__Ganancia_diaria_y_secuencias extends BaseJavaMigration {
+
+    // Debe coincidir con el allocationSize de Venta y DetalleVenta y con ReservaIds.INCREMENTO
+    static final int INCREMENTO = 50;
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        try (Statement sentencia = context.getConnection().createStatement()) {
+            // Acumulado diario de ventas mantenido por GananciaDiariaService. Para poblarlo con ventas
+            // existentes: POST /ventas/ganancias/rollup/reconstruir?desde=...&hasta=...
+            sentencia.execute("""
+                    CREATE TABLE GANANCIA_DIARIA (
+                        FECHA DATE NOT NULL,
+                        CANTIDAD_VENTAS NUMBER(19) DEFAULT 0 NOT NULL,
+                        INGRESOS NUMBER DEFAULT 0 NOT NULL,
+                        COSTOS NUMBER DEFAULT 0 NOT NULL,
+                        GANANCIA NUMBER DEFAULT 0 NOT NULL,
+                        CONSTRAINT PK_GANANCIA_DIARIA PRIMARY KEY (FECHA)
+                    )""");
+            crearSecuencia(sentencia, "VENTA_SEQ", "VENTA");
+            crearSecuencia(sentencia, "DETALLE_VENTA_SEQ", "DETALLE_VENTA");
+        }
+    }
+
+    // Secuencia de IDs para el optimizador pooled de Hibernate: cada NEXTVAL es el último ID de un
+    // bloque de INCREMENTO, así que en una tabla con datos el primer valor es MAX(ID) + INCREMENTO
+    // para que el primer bloque empiece justo después del último ID existente.
+    private static void crearSecuencia(Statement sentencia, String secuencia, String tabla) throws SQLException {
+        long maximo;
+        try (ResultSet fila = sentencia.executeQuery("SELECT COALESCE(MAX(ID), 0) FROM " + tabla)) {
+            fila.next();
+            maximo = fila.getLong(1);
+        }
+        long inicio = maximo == 0 ? 1 : maximo + INCREMENTO;
+        sentencia.execute("CREATE SEQUENCE " + secuencia + " START WITH " + inicio + " INCREMENT BY " + INCREMENTO);
+    }
+}
@@ -0,0 +1,21 @@
+-- Esquema inicial de ms-ventas: las tablas que existían antes de usar Flyway. En una base existente
+-- esta migración no se ejecuta: spring.flyway.baseline-on-migrate registra la versión 1 como
+-- punto de partida y se aplican solo las siguientes, así que todo objeto nuevo va en otra versión.
+CREATE TABLE VENTA (
+    ID NUMBER(10) NOT NULL,
+    CLIENTE VARCHAR2(255) NOT NULL,
+    TOTAL NUMBER(19, 2) NOT NULL,
+    FECHA TIMESTAMP NOT NULL,
+    CONSTRAINT PK_VENTA PRIMARY KEY (ID)
+);
+
+CREATE TABLE DETALLE_VENTA (
+    ID NUMBER(10) NOT NULL,
+    ID_VENTA NUMBER(10) NOT NULL,
+    PRODUCTO VARCHAR2(255) NOT NULL,
+    CANTIDAD NUMBER(10) NOT NULL,
+    PRECIO NUMBER(19, 2) NOT NULL,
+    COSTO NUMBER(19, 2) NOT NULL,
+    CONSTRAINT PK_DETALLE_VENTA PRIMARY KEY (ID),
+    CONSTRAINT FK_DETALLE_VENTA_VENTA FOREIGN KEY (ID_VENTA) REFERENCES VENTA (ID)
+);
@@ -0,0 +1,10 @@
+-- Rango de fechas de las ganancias, la exportación y el listado filtrado por fecha. Con ID en el
+-- índice el filtro por fecha entrega los IDs de venta sin leer la tabla.
+CREATE INDEX IX_VENTA_FECHA ON VENTA (FECHA, ID);
+
+-- Listado filtrado por cliente y ordenado por ID (paginación por clave)
+CREATE INDEX IX_VENTA_CLIENTE ON VENTA (CLIENTE, ID);
+
+-- Detalles de una venta (clave foránea) e índice de cobertura para las sumas de ganancias:
+-- SUM((PRECIO - COSTO) * CANTIDAD) por ID_VENTA se resuelve leyendo solo el índice.
+CREATE INDEX IX_DETALLE_VENTA_GANANCIA ON DETALLE_VENTA (ID_VENTA, PRECIO, COSTO, CANTIDAD);
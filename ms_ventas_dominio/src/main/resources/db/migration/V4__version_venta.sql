@@ -0,0 +1,4 @@
+-- Versión de cada venta para el control de concurrencia optimista (ver Venta). Las ventas existentes
+-- y las que se insertan sin indicarla (escritura diferida) empiezan en 0. En Oracle 11g o superior
+-- agregar una columna NOT NULL con DEFAULT solo cambia el diccionario, sin reescribir las filas.
+ALTER TABLE VENTA ADD VERSION NUMBER(19) DEFAULT 0 NOT NULL;
@@ -0,0 +1,6 @@
+-- Latido para medir el retraso de la réplica de lectura (ver LatidoReplica): cada instancia escribe la
+-- hora en la fila 1 del primario y compara con la que ya llegó a la réplica.
+CREATE TABLE LATIDO_REPLICA (
+    ID NUMBER(10) PRIMARY KEY,
+    INSTANTE TIMESTAMP NOT NULL
+);
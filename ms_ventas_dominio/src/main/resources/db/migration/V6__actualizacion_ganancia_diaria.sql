@@ -0,0 +1,6 @@
+-- Hora de la última escritura de cada día según el reloj de la base de datos. Toda escritura de
+-- GANANCIA_DIARIA la actualiza con SYSTIMESTAMP (los INSERT con el valor por defecto) y cada instancia
+-- de ms_ventas lee los días escritos recientemente para invalidar su caché de ganancias (ver AvisoGanancias).
+ALTER TABLE GANANCIA_DIARIA ADD ACTUALIZADA TIMESTAMP DEFAULT SYSTIMESTAMP NOT NULL;
+
+CREATE INDEX IX_GANANCIA_DIARIA_ACTUALIZADA ON GANANCIA_DIARIA (ACTUALIZADA);
@@ -0,0 +1,108 @@
+package com.ventas.ms_ventas;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Pruebas de Dinero y de la aritmética en centavos de Venta y DetalleVenta, sin Spring.
+ */
+public class DineroTest {
+
+    private static Venta venta(DetalleVenta... detalles) {
+        Venta venta = new Venta();
+        venta.setCliente("Cliente A");
+        venta.setFecha(LocalDateTime.of(2025, 10, 5, 10, 0));
+        venta.setDetalles(new ArrayList<>(List.of(detalles)));
+        return venta;
+    }
+
+    /** Prueba 1: normalizar lleva los importes a 2 decimales sin cambiar su valor. */
+    @Test
+    void testNormalizarCompletaLaEscala() {
+        assertThat(Dinero.normalizar(new BigDecimal("10"))).isEqualTo(new BigDecimal("10.00"));
+        assertThat(Dinero.normalizar(new BigDecimal("10.5"))).isEqualTo(new BigDecimal("10.50"));
+        // Los ceros a la derecha no son decimales de más
+        assertThat(Dinero.normalizar(new BigDecimal("10.500"))).isEqualTo(new BigDecimal("10.50"));
+        assertThat(Dinero.normalizar(null)).isNull();
+    }
+
+    /** Prueba 2: un importe con más de 2 decimales no se redondea: se mantiene y no se pasa a centavos. */
+    @Test
+    void testMasDeDosDecimalesNoSeRedondea() {
+        BigDecimal importe = new BigDecimal("10.005");
+
+        assertThat(Dinero.tieneEscalaValida(importe)).isFalse();
+        assertThat(Dinero.normalizar(importe)).isEqualTo(importe);
+        assertThatThrownBy(() -> Dinero.aCentavos(importe)).isInstanceOf(ArithmeticException.class);
+    }
+
+    /** Prueba 3: la conversión a centavos es exacta hasta el límite del long y falla al pasarlo. */
+    @Test
+    void testCentavosFueraDeRangoFalla() {
+        assertThat(Dinero.aCentavos(new BigDecimal("92233720368547758.07"))).isEqualTo(Long.MAX_VALUE);
+        assertThatThrownBy(() -> Dinero.aCentavos(new BigDecimal("92233720368547758.08")))
+                .isInstanceOf(ArithmeticException.class);
+        // El subtotal también se desborda con error en lugar de dar la vuelta
+        DetalleVenta detalle = new DetalleVenta("Prod A", 2, new BigDecimal("50000000000000000.00"), BigDecimal.ZERO);
+        assertThatThrownBy(detalle::getSubtotalCentavos).isInstanceOf(ArithmeticException.class);
+    }
+
+    /** Prueba 4: los importes negativos y las ganancias negativas se calculan en centavos sin perder signo. */
+    @Test
+    void testImportesNegativos() {
+        assertThat(Dinero.aCentavos(new BigDecimal("-0.01"))).isEqualTo(-1);
+        assertThat(Dinero.deCentavos(-150)).isEqualTo(new BigDecimal("-1.50"));
+
+        // Venta por debajo del costo: 3 x (5.00 - 6.25) + 1 x (2.00 - 1.00)
+        Venta venta = venta(new DetalleVenta("Prod A", 3, new BigDecimal("5.00"), new BigDecimal("6.25")),
+                new DetalleVenta("Prod B", 1, new BigDecimal("2.00"), new BigDecimal("1.00")));
+
+        assertThat(venta.getTotal()).isEqualTo(new BigDecimal("17.00"));
+        assertThat(venta.getGananciaTotal()).isEqualTo(new BigDecimal("-2.75"));
+    }
+
+    /** Prueba 5: una venta con un importe de más de 2 decimales se lee sin total y la validación la rechaza. */
+    @Test
+    void testValidacionRechazaMasDeDosDecimales() {
+        Venta venta = venta(new DetalleVenta("Prod A", 1, new BigDecimal("10.00"), new BigDecimal("6.125")));
+
+        assertThat(venta.getTotal()).isNull();
+        assertThat(ValidacionVenta.validar(venta)).contains("2 decimales");
+    }
+
+    /** Prueba 6: la validación rechaza textos e importes que no entran en las columnas. */
+    @Test
+    void testValidacionRechazaValoresQueNoEntranEnLasColumnas() {
+        assertThat(Dinero.entraEnColumna(new BigDecimal("99999999999999999.99"))).isTrue();
+        assertThat(Dinero.entraEnColumna(new BigDecimal("100000000000000000.00"))).isFalse();
+        assertThat(Dinero.entraEnColumna(new BigDecimal("1E+17"))).isFalse();
+
+        Venta clienteLargo = venta(new DetalleVenta("Prod A", 1, new BigDecimal("10.00"), new BigDecimal("6.00")));
+        clienteLargo.setCliente("x".repeat(256));
+        assertThat(ValidacionVenta.validar(clienteLargo)).contains("cliente");
+        // 128 caracteres de 2 bytes superan los 255 bytes de la columna
+        clienteLargo.setCliente("ñ".repeat(128));
+        assertThat(ValidacionVenta.validar(clienteLargo)).contains("cliente");
+        clienteLargo.setCliente("x".repeat(255));
+        assertThat(ValidacionVenta.validar(clienteLargo)).isNull();
+
+        assertThat(ValidacionVenta.validar(venta(new DetalleVenta("x".repeat(256), 1,
+                new BigDecimal("10.00"), new BigDecimal("6.00"))))).contains("producto");
+        assertThat(ValidacionVenta.validar(venta(new DetalleVenta("Prod A", 1,
+                new BigDecimal("1E+17"), new BigDecimal("6.00"))))).contains("importe máximo");
+        // Cada importe entra, pero el subtotal no entra en centavos
+        assertThat(ValidacionVenta.validar(venta(new DetalleVenta("Prod A", 2_000_000,
+                new BigDecimal("90000000000000.00"), new BigDecimal("6.00"))))).contains("subtotal");
+        // Cada línea entra, pero la suma no
+        DetalleVenta grande = new DetalleVenta("Prod A", 1, new BigDecimal("90000000000000000.00"), new BigDecimal("6.00"));
+        DetalleVenta otra = new DetalleVenta("Prod B", 1, new BigDecimal("90000000000000000.00"), new BigDecimal("6.00"));
+        assertThat(ValidacionVenta.validar(venta(grande, otra))).contains("total");
+    }
+}
@@ -0,0 +1,83 @@
+package com.ventas.ms_ventas;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+// Exportación de las ventas de un rango de fechas como un flujo de bloques de bytes, con el mismo
+// formato que ExportadorVentas (LineasExportacion). Cada bloque junta VENTAS_POR_ENVIO ventas (NDJSON)
+// o filas (CSV) y se arma cuando el servidor pide el siguiente: si el cliente lee lento no se piden
+// más filas a la base de datos, y solo el bloque en curso queda en memoria.
+@Service
+public class ExportadorVentasReactivo {
+
+    // Ventas (o filas en CSV) por bloque enviado al cliente
+    private static final int VENTAS_POR_ENVIO = 500;
+
+    private final VentaServiceReactivo ventaService;
+    private final ObjectMapper objectMapper;
+
+    public ExportadorVentasReactivo(VentaServiceReactivo ventaService, ObjectMapper objectMapper) {
+        this.ventaService = ventaService;
+        this.objectMapper = objectMapper;
+    }
+
+    // Exporta las ventas con FECHA en [desde, hasta) ordenadas por ID
+    public Flux<DataBuffer> exportar(LocalDate desde, LocalDate hasta, FormatoExportacion formato) {
+        Flux<FilaExportacion> filas = ventaService.filasEntre(desde, hasta);
+        if (formato == FormatoExportacion.CSV) {
+            Flux<DataBuffer> cabecera = Flux.defer(() ->
+                    Flux.just(bloque((LineasExportacion.CABECERA_CSV + '\n').getBytes(StandardCharsets.UTF_8))));
+            return cabecera.concatWith(filas.buffer(VENTAS_POR_ENVIO).map(this::escribirCsv));
+        }
+        return filas.bufferUntilChanged(FilaExportacion::idVenta)
+                .buffer(VENTAS_POR_ENVIO)
+                .map(this::escribirNdjson);
+    }
+
+    // Una venta por línea a partir de las filas de cada venta
+    private DataBuffer escribirNdjson(List<List<FilaExportacion>> ventas) {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(salida)) {
+            json.setRootValueSeparator(null);
+            for (List<FilaExportacion> filas : ventas) {
+                LineasExportacion.abrirVenta(json, filas.get(0));
+                for (FilaExportacion fila : filas) {
+                    LineasExportacion.escribirDetalle(json, fila);
+                }
+                LineasExportacion.cerrarVenta(json);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bloque(salida.toByteArray());
+    }
+
+    private DataBuffer escribirCsv(List<FilaExportacion> filas) {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (Writer csv = new OutputStreamWriter(salida, StandardCharsets.UTF_8)) {
+            for (FilaExportacion fila : filas) {
+                LineasExportacion.escribirCsv(csv, fila);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bloque(salida.toByteArray());
+    }
+
+    private static DataBuffer bloque(byte[] bytes) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(bytes);
+    }
+}
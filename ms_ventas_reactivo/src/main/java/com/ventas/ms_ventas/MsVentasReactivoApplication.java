@@ -0,0 +1,15 @@
+package com.ventas.ms_ventas;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+// Variante reactiva de ms_ventas: los mismos endpoints de lectura, exportación, ganancias y alta de
+// ventas sobre WebFlux y R2DBC, con la misma base de datos y las mismas clases de dominio.
+@SpringBootApplication
+public class MsVentasReactivoApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(MsVentasReactivoApplication.class, args);
+	}
+
+}
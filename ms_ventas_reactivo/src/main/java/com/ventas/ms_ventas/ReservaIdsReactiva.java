@@ -0,0 +1,50 @@
+package com.ventas.ms_ventas;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+// IDs tomados de una secuencia en bloques de ReservaIds.INCREMENTO, igual que ReservaIds en ms_ventas
+// y que el optimizador pooled de Hibernate, así que los bloques de las dos variantes nunca se
+// superponen. Sin bloquear: cuando el bloque se agota, el siguiente ID llega después del NEXTVAL.
+// Si dos peticiones agotan el bloque a la vez, las dos piden uno nuevo y solo se usa el primero que
+// llega: el otro queda como un hueco en los IDs, pero nunca se entrega un mismo ID dos veces.
+final class ReservaIdsReactiva {
+
+    static final int INCREMENTO = 50;
+
+    private final DatabaseClient databaseClient;
+    private final String consulta;
+    private long siguiente;
+    private long ultimo = -1;
+
+    ReservaIdsReactiva(DatabaseClient databaseClient, String secuencia) {
+        this.databaseClient = databaseClient;
+        this.consulta = "SELECT " + secuencia + ".NEXTVAL FROM DUAL";
+    }
+
+    Mono<Integer> siguiente() {
+        return Mono.defer(() -> {
+            Integer id = tomar();
+            if (id != null) {
+                return Mono.just(id);
+            }
+            return databaseClient.sql(consulta)
+                    .map(fila -> ((Number) fila.get(0)).longValue())
+                    .one()
+                    .doOnNext(this::instalar)
+                    .then(Mono.defer(this::siguiente));
+        });
+    }
+
+    private synchronized Integer tomar() {
+        return siguiente > ultimo ? null : Math.toIntExact(siguiente++);
+    }
+
+    private synchronized void instalar(long nuevoUltimo) {
+        if (siguiente > ultimo) {
+            ultimo = nuevoUltimo;
+            // El primer valor de la secuencia (1) deja un bloque de un solo ID
+            siguiente = Math.max(1, nuevoUltimo - INCREMENTO + 1);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.ventas.ms_ventas;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Los endpoints de VentaController que no dependen de JPA ni de las cachés de ms_ventas, con los
+// mismos parámetros y el mismo JSON. Las listas se devuelven como Flux: con Accept
+// application/x-ndjson cada venta se envía apenas se arma, y en JSON se escribe el arreglo a medida
+// que llegan. PUT, PATCH, DELETE, la importación por lotes, la analítica y los enlaces HAL del
+// listado quedan en ms_ventas.
+@RestController
+@RequestMapping("/ventas")
+public class VentaControllerReactivo {
+
+    private final VentaServiceReactivo ventaService;
+    private final ExportadorVentasReactivo exportadorVentas;
+
+    public VentaControllerReactivo(VentaServiceReactivo ventaService, ExportadorVentasReactivo exportadorVentas) {
+        this.ventaService = ventaService;
+        this.exportadorVentas = exportadorVentas;
+    }
+
+    // Método GET para listar las ventas por páginas, sin enlaces: la página siguiente se pide con
+    // despuesDe igual al ID de la última venta recibida. Filtros opcionales por cliente y fechas [desde, hasta).
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<VentaVista> listarTodasLasVentas(
+            @RequestParam(required = false) String cliente,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) Integer despuesDe,
+            @RequestParam(defaultValue = "50") int tamanio) {
+        return ventaService.listar(cliente, desde, hasta, despuesDe, tamanio);
+    }
+
+    // Método GET para exportar las ventas de un rango de fechas [desde, hasta) como NDJSON o CSV.
+    // La respuesta se escribe por bloques a medida que el cliente la lee.
+    @GetMapping("/exportar")
+    public ResponseEntity<Flux<DataBuffer>> exportarVentas(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(defaultValue = "NDJSON") FormatoExportacion formato) {
+        String archivo = "ventas_" + desde + "_" + hasta + "." + formato.name().toLowerCase();
+        return ResponseEntity.ok()
+                .contentType(formato.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + archivo + "\"")
+                .body(exportadorVentas.exportar(desde, hasta, formato));
+    }
+
+    // Método GET para buscar una venta por su ID; 404 si no existe
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<VentaVista>> buscarVentaPorId(@PathVariable int id) {
+        return ventaService.buscarPorId(id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    // Método POST para guardar una nueva venta; 400 si le faltan datos obligatorios
+    @PostMapping
+    public Mono<ResponseEntity<Venta>> guardarVenta(@RequestBody Venta venta) {
+        return ventaService.guardarVenta(venta)
+                .map(ResponseEntity::ok)
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.badRequest().build()));
+    }
+
+    // --- MÉTODOS DE CÁLCULO ---
+
+    @GetMapping("/ganancias/diarias")
+    public Mono<BigDecimal> getGananciasDiarias(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha) {
+        return ventaService.getGananciasDiarias(fecha);
+    }
+
+    // 400 si el mes o el año están fuera de rango, como en ms_ventas
+    @GetMapping("/ganancias/mensuales")
+    public Mono<ResponseEntity<BigDecimal>> getGananciasMensuales(@RequestParam int mes, @RequestParam int anio) {
+        if (!ClaveGanancia.mesValido(mes, anio)) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return ventaService.getGananciasMensuales(mes, anio).map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/ganancias/anuales")
+    public Mono<ResponseEntity<BigDecimal>> getGananciasAnuales(@RequestParam int anio) {
+        if (!ClaveGanancia.anioValido(anio)) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return ventaService.getGananciasAnuales(anio).map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/ganancias/rango")
+    public Mono<BigDecimal> getGananciasEntre(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+                                              @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        return ventaService.getGananciasEntre(desde, hasta);
+    }
+}
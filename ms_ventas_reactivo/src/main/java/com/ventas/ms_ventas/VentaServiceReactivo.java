@@ -0,0 +1,237 @@
+package com.ventas.ms_ventas;
+
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Lecturas, ganancias y alta de ventas sobre R2DBC, con las mismas consultas que ms_ventas hace con
+// JPA. Ningún método bloquea un hilo: las filas llegan a medida que el suscriptor las pide, así que
+// un cliente lento frena la lectura del cursor en lugar de acumular filas en memoria.
+@Service
+public class VentaServiceReactivo {
+
+    // Columnas de FilaExportacion; las filas se ordenan por venta y detalle para agruparlas
+    private static final String COLUMNAS = """
+            SELECT v.ID, v.CLIENTE, v.FECHA, v.TOTAL, v.VERSION,
+                   d.ID AS ID_DETALLE, d.PRODUCTO, d.CANTIDAD, d.PRECIO, d.COSTO
+            """;
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transaccion;
+    private final ReservaIdsReactiva idsVenta;
+    private final ReservaIdsReactiva idsDetalle;
+    private final int tamanioMaximoPagina;
+
+    public VentaServiceReactivo(DatabaseClient databaseClient, TransactionalOperator transaccion,
+                                @Value("${ventas.paginacion.tamanio-maximo:500}") int tamanioMaximoPagina) {
+        this.databaseClient = databaseClient;
+        this.transaccion = transaccion;
+        this.idsVenta = new ReservaIdsReactiva(databaseClient, "VENTA_SEQ");
+        this.idsDetalle = new ReservaIdsReactiva(databaseClient, "DETALLE_VENTA_SEQ");
+        this.tamanioMaximoPagina = tamanioMaximoPagina;
+    }
+
+    // --- LECTURAS ---
+
+    // Las ventas ordenadas por ID a partir de la venta con ID despuesDe (exclusivo, null para la
+    // primera), con filtros opcionales por cliente y fechas [desde, hasta). El tamaño se acota a
+    // ventas.paginacion.tamanio-maximo; el cliente pide la página siguiente con el ID de la última
+    // venta recibida. Una sola consulta: los IDs de la página en una subconsulta y sus detalles con
+    // LEFT JOIN, agrupados por venta a medida que llegan.
+    public Flux<VentaVista> listar(String cliente, LocalDate desde, LocalDate hasta, Integer despuesDe, int tamanio) {
+        int tamanioPagina = Math.max(1, Math.min(tamanio, tamanioMaximoPagina));
+        StringBuilder ids = new StringBuilder("SELECT ID FROM VENTA WHERE ID > :despuesDe");
+        if (cliente != null) {
+            ids.append(" AND CLIENTE = :cliente");
+        }
+        if (desde != null) {
+            ids.append(" AND FECHA >= :desde");
+        }
+        if (hasta != null) {
+            ids.append(" AND FECHA < :hasta");
+        }
+        ids.append(" ORDER BY ID FETCH FIRST ").append(tamanioPagina).append(" ROWS ONLY");
+
+        DatabaseClient.GenericExecuteSpec consulta = databaseClient.sql(COLUMNAS
+                        + "FROM (" + ids + ") p JOIN VENTA v ON v.ID = p.ID"
+                        + " LEFT JOIN DETALLE_VENTA d ON d.ID_VENTA = v.ID ORDER BY v.ID, d.ID")
+                .bind("despuesDe", despuesDe == null ? 0 : despuesDe);
+        if (cliente != null) {
+            consulta = consulta.bind("cliente", cliente);
+        }
+        if (desde != null) {
+            consulta = consulta.bind("desde", desde.atStartOfDay());
+        }
+        if (hasta != null) {
+            consulta = consulta.bind("hasta", hasta.atStartOfDay());
+        }
+        return agrupar(consulta.map(VentaServiceReactivo::fila).all());
+    }
+
+    public Mono<VentaVista> buscarPorId(int id) {
+        Flux<FilaExportacion> filas = databaseClient.sql(COLUMNAS
+                        + "FROM VENTA v LEFT JOIN DETALLE_VENTA d ON d.ID_VENTA = v.ID WHERE v.ID = :id ORDER BY d.ID")
+                .bind("id", id)
+                .map(VentaServiceReactivo::fila)
+                .all();
+        return agrupar(filas).next();
+    }
+
+    // Filas de las ventas con FECHA en [desde, hasta) ordenadas por venta, para la exportación
+    public Flux<FilaExportacion> filasEntre(LocalDate desde, LocalDate hasta) {
+        return databaseClient.sql(COLUMNAS
+                        + "FROM VENTA v LEFT JOIN DETALLE_VENTA d ON d.ID_VENTA = v.ID"
+                        + " WHERE v.FECHA >= :desde AND v.FECHA < :hasta ORDER BY v.ID, d.ID")
+                .bind("desde", desde.atStartOfDay())
+                .bind("hasta", hasta.atStartOfDay())
+                .map(VentaServiceReactivo::fila)
+                .all();
+    }
+
+    // Agrupa las filas consecutivas de cada venta con VentaVista.agrupar; solo las filas de la venta
+    // en curso quedan en memoria
+    static Flux<VentaVista> agrupar(Flux<FilaExportacion> filas) {
+        return filas.bufferUntilChanged(FilaExportacion::idVenta)
+                .map(filasVenta -> VentaVista.agrupar(filasVenta).get(0));
+    }
+
+    // Los números se leen sin tipo porque cada driver devuelve NUMBER con su propio tipo
+    private static FilaExportacion fila(Readable fila) {
+        Number idDetalle = (Number) fila.get("ID_DETALLE");
+        Number cantidad = (Number) fila.get("CANTIDAD");
+        return new FilaExportacion(((Number) fila.get("ID")).intValue(), fila.get("CLIENTE", String.class),
+                fila.get("FECHA", LocalDateTime.class), importe(fila.get("TOTAL")), ((Number) fila.get("VERSION")).longValue(),
+                idDetalle == null ? null : idDetalle.intValue(), fila.get("PRODUCTO", String.class),
+                cantidad == null ? null : cantidad.intValue(), importe(fila.get("PRECIO")), importe(fila.get("COSTO")));
+    }
+
+    private static BigDecimal importe(Object valor) {
+        return valor == null || valor instanceof BigDecimal ? (BigDecimal) valor : new BigDecimal(valor.toString());
+    }
+
+    // --- MÉTODOS DE CÁLCULO ---
+    // Igual que en ms_ventas: la ganancia diaria se suma sobre los detalles del día y las mensuales,
+    // anuales y de un rango sobre GANANCIA_DIARIA. No hay caché de resultados ni almacén columnar.
+
+    public Mono<BigDecimal> getGananciasDiarias(LocalDate fecha) {
+        return databaseClient.sql("""
+                        SELECT COALESCE(SUM((d.PRECIO - d.COSTO) * d.CANTIDAD), 0)
+                        FROM DETALLE_VENTA d JOIN VENTA v ON v.ID = d.ID_VENTA
+                        WHERE v.FECHA >= :desde AND v.FECHA < :hasta
+                        """)
+                .bind("desde", fecha.atStartOfDay())
+                .bind("hasta", fecha.plusDays(1).atStartOfDay())
+                .map(fila -> Dinero.normalizar(importe(fila.get(0))))
+                .one();
+    }
+
+    public Mono<BigDecimal> getGananciasMensuales(int mes, int anio) {
+        ClaveGanancia periodo = ClaveGanancia.mensual(mes, anio);
+        return getGananciasEntre(periodo.inicio(), periodo.fin());
+    }
+
+    public Mono<BigDecimal> getGananciasAnuales(int anio) {
+        ClaveGanancia periodo = ClaveGanancia.anual(anio);
+        return getGananciasEntre(periodo.inicio(), periodo.fin());
+    }
+
+    public Mono<BigDecimal> getGananciasEntre(LocalDate desde, LocalDate hasta) {
+        return databaseClient.sql("SELECT COALESCE(SUM(GANANCIA), 0) FROM GANANCIA_DIARIA WHERE FECHA >= :desde AND FECHA < :hasta")
+                .bind("desde", desde)
+                .bind("hasta", hasta)
+                .map(fila -> Dinero.normalizar(importe(fila.get(0))))
+                .one();
+    }
+
+    // --- ALTA ---
+
+    // Guarda una venta nueva y suma su aporte a GANANCIA_DIARIA en la misma transacción, como
+    // VentaService.guardarVenta. La venta se valida con ValidacionVenta (IllegalArgumentException si
+    // no es válida) y sus IDs se toman de las mismas secuencias que usa Hibernate.
+    public Mono<Venta> guardarVenta(Venta venta) {
+        String error = ValidacionVenta.validar(venta);
+        if (error != null) {
+            return Mono.error(new IllegalArgumentException(error));
+        }
+        // Asigna la venta a cada detalle y recalcula el total desde las líneas
+        venta.setDetalles(venta.getDetalles());
+        Mono<Venta> alta = idsVenta.siguiente()
+                .flatMap(id -> {
+                    venta.setId(id);
+                    return databaseClient.sql("INSERT INTO VENTA (ID, CLIENTE, TOTAL, FECHA, VERSION) VALUES (:id, :cliente, :total, :fecha, 0)")
+                            .bind("id", id)
+                            .bind("cliente", venta.getCliente())
+                            .bind("total", venta.getTotal())
+                            .bind("fecha", venta.getFecha())
+                            .then();
+                })
+                .thenMany(Flux.fromIterable(venta.getDetalles()))
+                .concatMap(detalle -> idsDetalle.siguiente().flatMap(id -> {
+                    detalle.setId(id);
+                    return databaseClient.sql("""
+                                    INSERT INTO DETALLE_VENTA (ID, ID_VENTA, PRODUCTO, CANTIDAD, PRECIO, COSTO)
+                                    VALUES (:id, :idVenta, :producto, :cantidad, :precio, :costo)
+                                    """)
+                            .bind("id", id)
+                            .bind("idVenta", venta.getId())
+                            .bind("producto", detalle.getProducto())
+                            .bind("cantidad", detalle.getCantidad())
+                            .bind("precio", detalle.getPrecio())
+                            .bind("costo", detalle.getCosto())
+                            .then();
+                }))
+                .then(Mono.defer(() -> acumular(ContribucionVenta.de(venta))))
+                .then(Mono.fromSupplier(() -> {
+                    venta.setVersion(0L);
+                    return venta;
+                }));
+        return transaccion.transactional(alta);
+    }
+
+    // Suma el aporte directamente en la fila del día, como GananciaDiariaService.acumular; la primera
+    // venta del día crea la fila. El UPDATE marca ACTUALIZADA (el INSERT la toma por defecto) para que
+    // las instancias de ms_ventas invaliden el día en su caché de ganancias (AvisoGanancias). Si otra transacción la creó entre el UPDATE y el INSERT, el INSERT
+    // falla por la clave primaria (solo se deshace esa sentencia) y se repite el UPDATE.
+    private Mono<Void> acumular(ContribucionVenta nueva) {
+        BigDecimal ganancia = nueva.ingresos().subtract(nueva.costos());
+        return sumarAlDia(nueva, ganancia)
+                .flatMap(actualizadas -> actualizadas > 0 ? Mono.<Void>empty() : databaseClient.sql("""
+                                INSERT INTO GANANCIA_DIARIA (FECHA, CANTIDAD_VENTAS, INGRESOS, COSTOS, GANANCIA)
+                                VALUES (:fecha, 1, :ingresos, :costos, :ganancia)
+                                """)
+                        .bind("fecha", nueva.fecha())
+                        .bind("ingresos", nueva.ingresos())
+                        .bind("costos", nueva.costos())
+                        .bind("ganancia", ganancia)
+                        .then()
+                        .onErrorResume(DataIntegrityViolationException.class, e -> sumarAlDia(nueva, ganancia)
+                                .flatMap(repetidas -> repetidas > 0 ? Mono.empty() : Mono.error(e))));
+    }
+
+    private Mono<Long> sumarAlDia(ContribucionVenta nueva, BigDecimal ganancia) {
+        return databaseClient.sql("""
+                        UPDATE GANANCIA_DIARIA
+                        SET CANTIDAD_VENTAS = CANTIDAD_VENTAS + 1,
+                            INGRESOS = INGRESOS + :ingresos,
+                            COSTOS = COSTOS + :costos,
+                            GANANCIA = GANANCIA + :ganancia,
+                            ACTUALIZADA = SYSTIMESTAMP
+                        WHERE FECHA = :fecha
+                        """)
+                .bind("ingresos", nueva.ingresos())
+                .bind("costos", nueva.costos())
+                .bind("ganancia", ganancia)
+                .bind("fecha", nueva.fecha())
+                .fetch()
+                .rowsUpdated();
+    }
+}
@@ -0,0 +1,205 @@
+package com.ventas.ms_ventas;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pruebas de los endpoints reactivos sobre H2 (R2DBC) con el esquema de las migraciones de ms_ventas.
+ * Las ventas se guardan por POST /ventas, así que también se prueba el alta.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class VentaControllerReactivoTest {
+
+    private static final LocalDate DIA = LocalDate.of(2025, 10, 5);
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private VentaServiceReactivo ventaService;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @AfterEach
+    void limpiar() {
+        for (String tabla : List.of("DETALLE_VENTA", "VENTA", "GANANCIA_DIARIA")) {
+            databaseClient.sql("DELETE FROM " + tabla).then().block();
+        }
+    }
+
+    private Venta guardarVenta(String cliente, LocalDateTime fecha, DetalleVenta... detalles) {
+        Venta venta = new Venta();
+        venta.setCliente(cliente);
+        venta.setFecha(fecha);
+        venta.setDetalles(new ArrayList<>(List.of(detalles)));
+        return webTestClient.post().uri("/ventas").bodyValue(venta)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Venta.class).returnResult().getResponseBody();
+    }
+
+    /** Prueba 1: POST guarda la venta con IDs de secuencia, GET la devuelve y se suma al acumulado diario. */
+    @Test
+    void testGuardarYBuscarVenta() {
+        Venta guardada = guardarVenta("Cliente A", DIA.atTime(10, 0),
+                new DetalleVenta("Prod A", 3, new BigDecimal("10.00"), new BigDecimal("6.00")),
+                new DetalleVenta("Prod B", 1, new BigDecimal("5.00"), new BigDecimal("2.00")));
+        assertThat(guardada.getId()).isPositive();
+        assertThat(guardada.getTotal()).isEqualByComparingTo("35.00");
+        assertThat(guardada.getDetalles()).allSatisfy(detalle -> assertThat(detalle.getId()).isPositive());
+
+        VentaVista vista = webTestClient.get().uri("/ventas/{id}", guardada.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(VentaVista.class).returnResult().getResponseBody();
+        assertThat(vista.cliente()).isEqualTo("Cliente A");
+        assertThat(vista.gananciaTotal()).isEqualByComparingTo("15.00");
+        assertThat(vista.detalles()).extracting(DetalleVista::producto).containsExactly("Prod A", "Prod B");
+        assertThat(vista.version()).isZero();
+
+        // La diaria suma los detalles y el rango, el mes y el año suman GANANCIA_DIARIA
+        webTestClient.get().uri("/ventas/ganancias/diarias?fecha=2025-10-05").exchange()
+                .expectBody(BigDecimal.class).isEqualTo(new BigDecimal("15.00"));
+        webTestClient.get().uri("/ventas/ganancias/mensuales?mes=10&anio=2025").exchange()
+                .expectBody(BigDecimal.class).isEqualTo(new BigDecimal("15.00"));
+        webTestClient.get().uri("/ventas/ganancias/rango?desde=2025-10-06&hasta=2025-11-01").exchange()
+                .expectBody(BigDecimal.class).isEqualTo(new BigDecimal("0.00"));
+        webTestClient.get().uri("/ventas/{id}", guardada.getId() + 1000).exchange()
+                .expectStatus().isNotFound();
+    }
+
+    /** Prueba 2: una venta sin cliente se rechaza con 400 sin tocar la base de datos. */
+    @Test
+    void testGuardarVentaInvalida() {
+        Venta venta = new Venta();
+        venta.setFecha(DIA.atTime(10, 0));
+        webTestClient.post().uri("/ventas").bodyValue(venta).exchange().expectStatus().isBadRequest();
+        StepVerifier.create(ventaService.getGananciasEntre(DIA, DIA.plusDays(1)))
+                .expectNextMatches(ganancia -> ganancia.signum() == 0)
+                .verifyComplete();
+    }
+
+    /** Prueba 3: el listado filtra y pagina por ID, en JSON y como NDJSON. */
+    @Test
+    void testListarVentas() {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(guardarVenta(i % 2 == 0 ? "Cliente A" : "Cliente B", DIA.atTime(10, i),
+                    new DetalleVenta("Prod A", 1, new BigDecimal("10.00"), new BigDecimal("6.00"))).getId());
+        }
+        guardarVenta("Cliente A", DIA.plusMonths(1).atTime(10, 0));
+
+        webTestClient.get().uri("/ventas?cliente=Cliente A&tamanio=2").exchange()
+                .expectStatus().isOk()
+                .expectBodyList(VentaVista.class).value(pagina ->
+                        assertThat(pagina).extracting(VentaVista::id).containsExactly(ids.get(0), ids.get(2)));
+        webTestClient.get().uri("/ventas?cliente=Cliente A&hasta=2025-11-01&despuesDe={id}", ids.get(2)).exchange()
+                .expectBodyList(VentaVista.class).value(pagina ->
+                        assertThat(pagina).extracting(VentaVista::id).containsExactly(ids.get(4)));
+
+        List<VentaVista> ndjson = webTestClient.get().uri("/ventas?desde=2025-10-05&hasta=2025-10-06")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(VentaVista.class).getResponseBody().collectList().block();
+        assertThat(ndjson).extracting(VentaVista::id).containsExactlyElementsOf(ids);
+        assertThat(ndjson).allSatisfy(venta -> assertThat(venta.detalles()).hasSize(1));
+    }
+
+    /** Prueba 4: la lectura sigue la demanda del suscriptor: se piden dos ventas y se cancela el resto. */
+    @Test
+    void testListadoConContrapresion() {
+        for (int i = 0; i < 10; i++) {
+            guardarVenta("Cliente A", DIA.atTime(11, i), new DetalleVenta("Prod A", 1, new BigDecimal("10.00"), new BigDecimal("6.00")));
+        }
+        StepVerifier.create(ventaService.listar(null, null, null, null, 10), 2)
+                .expectNextCount(2)
+                .expectNoEvent(Duration.ofMillis(100))
+                .thenRequest(1)
+                .expectNextCount(1)
+                .thenCancel()
+                .verify();
+    }
+
+    /** Prueba 5: la exportación escribe el mismo NDJSON y CSV que ms_ventas. */
+    @Test
+    void testExportarVentas() {
+        int conDetalles = guardarVenta("Pérez, Juan", DIA.atTime(10, 0),
+                new DetalleVenta("Prod \"A\"", 2, new BigDecimal("10.00"), new BigDecimal("6.00")),
+                new DetalleVenta("Prod B", 1, new BigDecimal("5.00"), new BigDecimal("2.00"))).getId();
+        int sinDetalles = guardarVenta("Cliente B", LocalDateTime.of(2025, 10, 31, 23, 0)).getId();
+        guardarVenta("Cliente C", LocalDateTime.of(2025, 11, 1, 0, 0));
+        List<Integer> idsDetalle = webTestClient.get().uri("/ventas/{id}", conDetalles).exchange()
+                .expectBody(VentaVista.class).returnResult().getResponseBody()
+                .detalles().stream().map(DetalleVista::id).toList();
+
+        String csv = webTestClient.get().uri("/ventas/exportar?desde=2025-10-01&hasta=2025-11-01&formato=CSV")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType("text/csv;charset=UTF-8")
+                .expectHeader().valueEquals("Content-Disposition", "attachment; filename=\"ventas_2025-10-01_2025-11-01.csv\"")
+                .expectBody(String.class).returnResult().getResponseBody();
+        assertThat(csv.split("\n")).containsExactly(
+                "id_venta,cliente,fecha,total,id_detalle,producto,cantidad,precio,costo",
+                conDetalles + ",\"Pérez, Juan\",2025-10-05T10:00,25.00," + idsDetalle.get(0) + ",\"Prod \"\"A\"\"\",2,10.00,6.00",
+                conDetalles + ",\"Pérez, Juan\",2025-10-05T10:00,25.00," + idsDetalle.get(1) + ",Prod B,1,5.00,2.00",
+                sinDetalles + ",Cliente B,2025-10-31T23:00,0.00,,,,,");
+
+        String ndjson = webTestClient.get().uri("/ventas/exportar?desde=2025-10-01&hasta=2025-11-01")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType("application/x-ndjson")
+                .expectBody(String.class).returnResult().getResponseBody();
+        assertThat(ndjson.split("\n")).containsExactly(
+                "{\"id\":" + conDetalles + ",\"cliente\":\"Pérez, Juan\",\"fecha\":\"2025-10-05T10:00\",\"total\":25.00,\"detalles\":["
+                        + "{\"id\":" + idsDetalle.get(0) + ",\"producto\":\"Prod \\\"A\\\"\",\"cantidad\":2,\"precio\":10.00,\"costo\":6.00},"
+                        + "{\"id\":" + idsDetalle.get(1) + ",\"producto\":\"Prod B\",\"cantidad\":1,\"precio\":5.00,\"costo\":2.00}]}",
+                "{\"id\":" + sinDetalles + ",\"cliente\":\"Cliente B\",\"fecha\":\"2025-10-31T23:00\",\"total\":0.00,\"detalles\":[]}");
+    }
+
+    /** Prueba 6: cada alta marca ACTUALIZADA del día para que ms_ventas invalide su caché de ganancias. */
+    @Test
+    void testAltaMarcaActualizacionDelDia() throws Exception {
+        guardarVenta("Cliente A", DIA.atTime(10, 0), new DetalleVenta("Prod A", 1, new BigDecimal("10.00"), new BigDecimal("6.00")));
+        LocalDateTime primera = actualizacionDelDia();
+
+        Thread.sleep(5);
+        guardarVenta("Cliente B", DIA.atTime(11, 0), new DetalleVenta("Prod B", 1, new BigDecimal("5.00"), new BigDecimal("2.00")));
+
+        assertThat(actualizacionDelDia()).isAfter(primera);
+    }
+
+    /** Prueba 7: un mes o un año fuera de rango se rechaza con 400. */
+    @Test
+    void testGananciasConPeriodoInvalido() {
+        webTestClient.get().uri("/ventas/ganancias/mensuales?mes=13&anio=2025").exchange().expectStatus().isBadRequest();
+        webTestClient.get().uri("/ventas/ganancias/mensuales?mes=0&anio=2025").exchange().expectStatus().isBadRequest();
+        webTestClient.get().uri("/ventas/ganancias/anuales?anio=0").exchange().expectStatus().isBadRequest();
+        webTestClient.get().uri("/ventas/ganancias/anuales?anio=2025").exchange().expectStatus().isOk();
+    }
+
+    private LocalDateTime actualizacionDelDia() {
+        return databaseClient.sql("SELECT ACTUALIZADA FROM GANANCIA_DIARIA WHERE FECHA = :fecha")
+                .bind("fecha", DIA)
+                .map(fila -> fila.get(0, LocalDateTime.class))
+                .one()
+                .block();
+    }
+}